@@ -10,29 +10,63 @@ mkdir -p build/classes
 javac -encoding UTF-8 -d build/classes \
     -cp . \
     src/main/java/com/gameengine/math/Vector2.java \
+    src/main/java/com/gameengine/spatial/SpatialHashGrid.java \
+    src/main/java/com/gameengine/spatial/SweepAndPrune.java \
+    src/main/java/com/gameengine/pool/GameObjectPool.java \
+    src/main/java/com/gameengine/jobs/JobSystem.java \
+    src/main/java/com/gameengine/jobs/JobGraph.java \
     src/main/java/com/gameengine/input/InputManager.java \
     src/main/java/com/gameengine/core/Component.java \
+    src/main/java/com/gameengine/core/ComponentType.java \
+    src/main/java/com/gameengine/core/Tags.java \
     src/main/java/com/gameengine/core/GameObject.java \
     src/main/java/com/gameengine/components/AttackComponent.java \
     src/main/java/com/gameengine/components/HealthComponent.java \
     src/main/java/com/gameengine/components/TransformComponent.java \
     src/main/java/com/gameengine/components/PhysicsComponent.java \
+    src/main/java/com/gameengine/components/ColliderComponent.java \
     src/main/java/com/gameengine/components/BulletComponent.java \
     src/main/java/com/gameengine/components/HudComponent.java \
     src/main/java/com/gameengine/components/PlayerRenderComponent.java \
     src/main/java/com/gameengine/components/RenderComponent.java \
     src/main/java/com/gameengine/graphics/Renderer.java \
+    src/main/java/com/gameengine/graphics/ParticleSystem.java \
     src/main/java/com/gameengine/core/GameEngine.java \
+    src/main/java/com/gameengine/core/CollisionSystem.java \
+    src/main/java/com/gameengine/core/TargetIndex.java \
+    src/main/java/com/gameengine/core/MeleeSystem.java \
     src/main/java/com/gameengine/core/GameLogic.java \
+    src/main/java/com/gameengine/scene/EntityList.java \
+    src/main/java/com/gameengine/scene/EntityQuery.java \
+    src/main/java/com/gameengine/scene/KinematicsStore.java \
     src/main/java/com/gameengine/scene/Scene.java \
+    src/main/java/com/gameengine/recording/EntityState.java \
+    src/main/java/com/gameengine/recording/Keyframe.java \
+    src/main/java/com/gameengine/recording/KeyframeAssembler.java \
+    src/main/java/com/gameengine/recording/RecordingHeader.java \
+    src/main/java/com/gameengine/recording/RecordBuffer.java \
+    src/main/java/com/gameengine/recording/RecordingCodec.java \
+    src/main/java/com/gameengine/recording/BinaryRecordingCodec.java \
+    src/main/java/com/gameengine/recording/DecodedRecord.java \
+    src/main/java/com/gameengine/recording/JsonlTokenizer.java \
+    src/main/java/com/gameengine/recording/JsonlRecordingCodec.java \
+    src/main/java/com/gameengine/recording/RecordingIndex.java \
     src/main/java/com/gameengine/recording/RecordingStorage.java \
+    src/main/java/com/gameengine/recording/MappedRecording.java \
     src/main/java/com/gameengine/recording/FileRecordingStorage.java \
     src/main/java/com/gameengine/recording/RecordingConfig.java \
+    src/main/java/com/gameengine/recording/RecordingSnapshot.java \
+    src/main/java/com/gameengine/recording/AsyncRecordingWriter.java \
     src/main/java/com/gameengine/recording/RecordingService.java \
+    src/main/java/com/gameengine/recording/StateChecksum.java \
+    src/main/java/com/gameengine/recording/InputReplay.java \
     src/main/java/com/gameengine/recording/EntityFactory.java \
+    src/main/java/com/gameengine/recording/ReplayLoader.java \
     src/main/java/com/gameengine/recording/ReplayScene.java \
     src/main/java/com/gameengine/example/MenuScene.java \
-    src/main/java/com/gameengine/example/GameExample.java
+    src/main/java/com/gameengine/example/GameExample.java \
+    src/main/java/com/gameengine/example/HeadlessBenchmark.java \
+    src/main/java/com/gameengine/example/RecordingBenchmark.java
 
 if [ $? -eq 0 ]; then
     echo "编译成功！"
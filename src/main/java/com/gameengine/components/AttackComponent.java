@@ -1,10 +1,9 @@
 package com.gameengine.components;
 
 import com.gameengine.core.Component;
-import com.gameengine.math.Vector2;
+import com.gameengine.core.MeleeSystem;
+import com.gameengine.core.Tags;
 import com.gameengine.scene.Scene;
-import com.gameengine.core.GameObject;
-import java.util.List;
 
 public class AttackComponent extends Component<AttackComponent> {
     private int damage;
@@ -31,6 +30,16 @@ public class AttackComponent extends Component<AttackComponent> {
     public void render() {
     }
 
+    @Override
+    public void reset() {
+        this.burnTime = 0f;
+        this.burnDps = 0f;
+        this.slowTime = 0f;
+        this.slowFactor = 1.0f;
+        this.rootTime = 0f;
+        this.rootKill = false;
+    }
+
     @Override
     public void initialize() {
     }
@@ -66,39 +75,14 @@ public class AttackComponent extends Component<AttackComponent> {
         }
     }
 
+    /**
+     * 对名为 targetName 的对象发动一次近战攻击
+     * 每步由 MeleeSystem 统一结算时不需要逐个调用，这里保留给单独结算的场景；名字未登记为标签时不攻击
+     */
     public void tryAttack(Scene scene, String targetName) {
-        TransformComponent ownerTransform = owner.getComponent(TransformComponent.class);
-        if (ownerTransform == null)
-            return;
-        Vector2 myPos = ownerTransform.getPosition();
-        RenderComponent renderComponent = owner.getComponent(RenderComponent.class);
-        Vector2 myCenter = renderComponent != null ? myPos.add(new Vector2(renderComponent.getSize().x * 0.5f, renderComponent.getSize().y * 0.5f)) : myPos;
-
-        /*
-         * 没有子弹的攻击逻辑
-         */
-        List<GameObject> targets = scene.findGameObjectsByComponent(TransformComponent.class);
-        for (GameObject obj : targets) {
-            if (!obj.getName().equals(targetName))
-                continue;
-
-            TransformComponent targetTransform = obj.getComponent(TransformComponent.class);
-            if (targetTransform == null)
-                continue;
-
-            Vector2 targetPos = targetTransform.getPosition();
-            RenderComponent targetRenderComponent = obj.getComponent(RenderComponent.class);
-            Vector2 targetCenter = targetRenderComponent != null ? targetPos.add(new Vector2(targetRenderComponent.getSize().x * 0.5f, targetRenderComponent.getSize().y * 0.5f)) : targetPos;
-            float distance = myCenter.distance(targetCenter);
-            if (distance <= this.attackRange) {
-                // System.out.println(owner.getName() + " 攻击 " + targetName + "，造成 " + damage +
-                        // " 点伤害");
-
-                HealthComponent health = obj.getComponent(HealthComponent.class);
-                if (health != null) {
-                    health.damage(this.damage);
-                }
-            }
+        long mask = Tags.find(targetName);
+        if (mask != 0L) {
+            MeleeSystem.attack(this, scene, mask);
         }
     }
 
@@ -2,12 +2,16 @@ package com.gameengine.components;
 
 import com.gameengine.core.Component;
 import com.gameengine.core.GameObject;
+import com.gameengine.core.TargetIndex;
+import com.gameengine.core.Tags;
 import com.gameengine.graphics.Renderer;
 import com.gameengine.math.Vector2;
 import com.gameengine.scene.Scene;
 
 public class BulletComponent extends Component<BulletComponent> {
     private GameObject targetRef;
+    // 设置目标时记录的目标 id
+    private int targetId;
     private float life;
     private float trail;
     private float speed;
@@ -24,6 +28,12 @@ public class BulletComponent extends Component<BulletComponent> {
     private float rootDuration;
     private boolean rootKill;
 
+    /**
+     * 供对象池创建空子弹，取出后用 configure 设置参数
+     */
+    public BulletComponent() {
+    }
+
     public BulletComponent(GameObject target,
                            float speed,
                            int damage,
@@ -38,7 +48,31 @@ public class BulletComponent extends Component<BulletComponent> {
                            boolean enableRoot,
                            float rootDuration,
                            boolean rootKill) {
+        configure(target, speed, damage, chain, invisible,
+                enableBurn, burnDuration, burnDps,
+                enableSlow, slowDuration, slowFactor,
+                enableRoot, rootDuration, rootKill);
+    }
+
+    /**
+     * 设置子弹参数，复用池中的子弹时调用
+     */
+    public void configure(GameObject target,
+                          float speed,
+                          int damage,
+                          boolean chain,
+                          boolean invisible,
+                          boolean enableBurn,
+                          float burnDuration,
+                          float burnDps,
+                          boolean enableSlow,
+                          float slowDuration,
+                          float slowFactor,
+                          boolean enableRoot,
+                          float rootDuration,
+                          boolean rootKill) {
         this.targetRef = target;
+        this.targetId = target != null ? target.getId() : 0;
         this.speed = speed;
         this.damage = damage;
         this.chainAvailable = chain;
@@ -56,8 +90,24 @@ public class BulletComponent extends Component<BulletComponent> {
         this.trail = 0f;
     }
 
+    @Override
+    public void reset() {
+        this.targetRef = null;
+        this.targetId = 0;
+        this.chainAvailable = false;
+        this.life = 0f;
+        this.trail = 0f;
+    }
+
+    /**
+     * 目标是否仍然有效（目标被回收复用后 id 会变化）
+     */
+    private boolean isTargetAlive() {
+        return targetRef != null && targetRef.isActive() && targetRef.getId() == targetId;
+    }
+
     public GameObject getTarget() {
-        return targetRef;
+        return isTargetAlive() ? targetRef : null;
     }
 
     @Override
@@ -73,18 +123,14 @@ public class BulletComponent extends Component<BulletComponent> {
 
         TransformComponent bulletTransform = owner.getComponent(TransformComponent.class);
         PhysicsComponent bulletPhysics = owner.getComponent(PhysicsComponent.class);
-        if (bulletTransform == null || bulletPhysics == null || targetRef == null || !targetRef.isActive()) {
-            owner.destroy();
-            Scene s = owner.getScene();
-            if (s != null) s.removeGameObject(owner);
+        if (bulletTransform == null || bulletPhysics == null || !isTargetAlive()) {
+            despawnSelf();
             return;
         }
 
         TransformComponent targetTransform = targetRef.getComponent(TransformComponent.class);
         if (targetTransform == null) {
-            owner.destroy();
-            Scene s = owner.getScene();
-            if (s != null) s.removeGameObject(owner);
+            despawnSelf();
             return;
         }
 
@@ -99,84 +145,134 @@ public class BulletComponent extends Component<BulletComponent> {
         Vector2 dir = enemyCenter.subtract(bulletCenter).normalize();
         bulletPhysics.setVelocity(dir.multiply(speed));
 
-        if (bulletCenter.distance(enemyCenter) < 15f) {
-            HealthComponent enemyHealth = targetRef.getComponent(HealthComponent.class);
-            if (enemyHealth != null) {
-                enemyHealth.damage(damage);
-                if (enableBurn) {
-                    AttackComponent attackComponent = targetRef.getComponent(AttackComponent.class);
-                    if (attackComponent != null) attackComponent.applyBurn(burnDuration, burnDps);
-                }
-                if (enableSlow) {
-                    AttackComponent attackComponent = targetRef.getComponent(AttackComponent.class);
-                    if (attackComponent != null) attackComponent.applySlow(slowDuration, slowFactor);
-                }
-                if (enableRoot) {
-                    AttackComponent attackComponent = targetRef.getComponent(AttackComponent.class);
-                    if (attackComponent != null) attackComponent.applyRoot(rootDuration, rootKill);
-                }
-                if (enemyHealth.getHealth() <= 0) {
-                    // 留给example的 removeDeadObjects 统一销毁与计数
-                }
+        if (trail > 0.03f) {
+            createParticle(bulletTransform.getPosition());
+            trail = 0f;
+        }
+
+        if (life > 3.0f) {
+            despawnSelf();
+            return;
+        }
+    }
+
+    /**
+     * 碰撞系统报告子弹与 other 接触时调用；只有碰到自己的目标才算命中，返回是否命中
+     */
+    public boolean onContact(GameObject other) {
+        return onContact(other, null);
+    }
+
+    /**
+     * 同上，连锁时用 index 查找最近的其他敌人；index 为 null 时遍历场景
+     */
+    public boolean onContact(GameObject other, TargetIndex index) {
+        if (other != targetRef || !isTargetAlive() || !owner.isActive()) {
+            return false;
+        }
+        TransformComponent bulletTransform = owner.getComponent(TransformComponent.class);
+        if (bulletTransform == null) {
+            return false;
+        }
+        RenderComponent bulletRenderComponent = owner.getComponent(RenderComponent.class);
+        Vector2 bulletSize = bulletRenderComponent != null ? bulletRenderComponent.getSize() : new Vector2(12, 12);
+        Vector2 bulletCenter = bulletTransform.getPosition().add(new Vector2(bulletSize.x * 0.5f, bulletSize.y * 0.5f));
+        hit(bulletCenter, index);
+        despawnSelf();
+        return true;
+    }
+
+    /**
+     * 对目标造成伤害与附加效果，爆炸，可连锁时向最近的其他敌人发射一颗子弹
+     */
+    private void hit(Vector2 bulletCenter, TargetIndex index) {
+        HealthComponent enemyHealth = targetRef.getComponent(HealthComponent.class);
+        if (enemyHealth != null) {
+            enemyHealth.damage(damage);
+            if (enableBurn) {
+                AttackComponent attackComponent = targetRef.getComponent(AttackComponent.class);
+                if (attackComponent != null) attackComponent.applyBurn(burnDuration, burnDps);
             }
-            if (!enableRoot) {
-                createExplosion(bulletCenter);
+            if (enableSlow) {
+                AttackComponent attackComponent = targetRef.getComponent(AttackComponent.class);
+                if (attackComponent != null) attackComponent.applySlow(slowDuration, slowFactor);
             }
-            if (chainAvailable) {
-                GameObject nextTarget = null;
-                float best = Float.MAX_VALUE;
-                Scene s = owner.getScene();
-                if (s != null) {
-                    for (GameObject obj : s.getGameObjects()) {
-                        if (obj.getName().equals("Enemy") && obj.isActive() && obj != targetRef) {
-                            TransformComponent candidateTransform = obj.getComponent(TransformComponent.class);
-                            RenderComponent candidateRender = obj.getComponent(RenderComponent.class);
-                            if (candidateTransform != null) {
-                                Vector2 candidateSize = candidateRender != null ? candidateRender.getSize() : new Vector2(20, 20);
-                                Vector2 candidateCenter = candidateTransform.getPosition().add(new Vector2(candidateSize.x * 0.5f, candidateSize.y * 0.5f));
-                                float distanceToCandidate = bulletCenter.distance(candidateCenter);
-                                if (distanceToCandidate < best) {
-                                    best = distanceToCandidate;
-                                    nextTarget = obj;
-                                }
+            if (enableRoot) {
+                AttackComponent attackComponent = targetRef.getComponent(AttackComponent.class);
+                if (attackComponent != null) attackComponent.applyRoot(rootDuration, rootKill);
+            }
+            if (enemyHealth.getHealth() <= 0) {
+                // 留给example的 removeDeadObjects 统一销毁与计数
+            }
+        }
+        if (!enableRoot) {
+            createExplosion(bulletCenter);
+        }
+        if (chainAvailable) {
+            GameObject nextTarget = null;
+            float best = Float.MAX_VALUE;
+            Scene s = owner.getScene();
+            if (index != null) {
+                nextTarget = index.nearestExcept(bulletCenter.x, bulletCenter.y, targetRef);
+            } else if (s != null) {
+                for (GameObject obj : s.findGameObjectsByTag(Tags.ENEMY)) {
+                    if (obj.isActive() && obj != targetRef) {
+                        TransformComponent candidateTransform = obj.getComponent(TransformComponent.class);
+                        RenderComponent candidateRender = obj.getComponent(RenderComponent.class);
+                        if (candidateTransform != null) {
+                            Vector2 candidateSize = candidateRender != null ? candidateRender.getSize() : new Vector2(20, 20);
+                            Vector2 candidateCenter = candidateTransform.getPosition().add(new Vector2(candidateSize.x * 0.5f, candidateSize.y * 0.5f));
+                            float distanceToCandidate = bulletCenter.distance(candidateCenter);
+                            if (distanceToCandidate < best) {
+                                best = distanceToCandidate;
+                                nextTarget = obj;
                             }
                         }
                     }
                 }
-                if (nextTarget != null) {
-                    spawnBulletFrom(bulletCenter, nextTarget, false);
-                }
-                chainAvailable = false;
             }
-            owner.destroy();
-            Scene s2 = owner.getScene();
-            if (s2 != null) s2.removeGameObject(owner);
-            return;
-        }
-
-        if (trail > 0.03f) {
-            createParticle(bulletTransform.getPosition());
-            trail = 0f;
+            if (nextTarget != null) {
+                spawnBulletFrom(bulletCenter, nextTarget, false);
+            }
+            chainAvailable = false;
         }
+    }
 
-        if (life > 3.0f) {
+    private void despawnSelf() {
+        Scene s = owner.getScene();
+        if (s != null) {
+            s.despawn(owner);
+        } else {
             owner.destroy();
-            Scene s3 = owner.getScene();
-            if (s3 != null) s3.removeGameObject(owner);
-            return;
         }
     }
 
     private void spawnBulletFrom(Vector2 start, GameObject target, boolean allowChain) {
         Scene s = owner.getScene();
         if (s == null) return;
-        GameObject bullet = new GameObject("Bullet");
-        bullet.addComponent(new TransformComponent(start));
+        GameObject bullet = s.spawn("Bullet");
+        if (bullet != null) {
+            bullet.getComponent(TransformComponent.class).setPosition(start.x, start.y);
+        } else {
+            bullet = new GameObject("Bullet");
+            bullet.addComponent(new TransformComponent(start));
+            bullet.addComponent(new RenderComponent(RenderComponent.RenderType.CIRCLE, new Vector2(6, 6), new RenderComponent.Color(0.8f, 0.9f, 1.0f, 0.5f)));
+            bullet.addComponent(new PhysicsComponent(0.1f));
+            bullet.addComponent(new BulletComponent());
+            bullet.addComponent(new ColliderComponent(3f, 3f, 3f, ColliderComponent.LAYER_BULLET, ColliderComponent.LAYER_ENEMY));
+            s.addGameObject(bullet);
+        }
         RenderComponent ownerRenderComponent = owner.getComponent(RenderComponent.class);
-        RenderComponent bulletRenderComponent2 = bullet.addComponent(new RenderComponent(RenderComponent.RenderType.CIRCLE, new Vector2(6, 6), ownerRenderComponent != null ? ownerRenderComponent.getColor() : new RenderComponent.Color(0.8f, 0.9f, 1.0f, 0.5f)));
+        RenderComponent bulletRenderComponent2 = bullet.getComponent(RenderComponent.class);
+        if (ownerRenderComponent != null) {
+            RenderComponent.Color c = ownerRenderComponent.getColor();
+            bulletRenderComponent2.setColor(c.r, c.g, c.b, c.a);
+        } else {
+            bulletRenderComponent2.setColor(0.8f, 0.9f, 1.0f, 0.5f);
+        }
         bulletRenderComponent2.setRenderer(s.getRenderer());
-        if (invisible) bulletRenderComponent2.setVisible(false);
-        PhysicsComponent physicsComponent = bullet.addComponent(new PhysicsComponent(0.1f));
+        bulletRenderComponent2.setVisible(!invisible);
+        PhysicsComponent physicsComponent = bullet.getComponent(PhysicsComponent.class);
         physicsComponent.setFriction(1.0f);
         TransformComponent targetTransformComponent = target.getComponent(TransformComponent.class);
         Vector2 targetPos = targetTransformComponent != null ? targetTransformComponent.getPosition() : new Vector2(0, 0);
@@ -185,69 +281,25 @@ public class BulletComponent extends Component<BulletComponent> {
         Vector2 targetCenter = targetPos.add(new Vector2(targetSize.x * 0.5f, targetSize.y * 0.5f));
         Vector2 dir = targetCenter.subtract(start).normalize();
         physicsComponent.setVelocity(dir.multiply(speed));
-        bullet.addComponent(new BulletComponent(target, speed, damage, allowChain && chainAvailable, invisible,
+        bullet.getComponent(BulletComponent.class).configure(target, speed, damage, allowChain && chainAvailable, invisible,
                 enableBurn, burnDuration, burnDps,
                 enableSlow, slowDuration, slowFactor,
-                enableRoot, rootDuration, rootKill));
-        s.addGameObject(bullet);
+                enableRoot, rootDuration, rootKill);
     }
 
     private void createParticle(Vector2 pos) {
         Scene s = owner.getScene();
         if (s == null) return;
-        GameObject particle = new GameObject("Particle") {
-            private float life = 0f;
-            @Override
-            public void update(float dt) {
-                super.update(dt);
-                life += dt;
-                if (life > 0.2f) {
-                    this.destroy();
-                    s.removeGameObject(this);
-                }
-            }
-            @Override
-            public void render() { renderComponents(); }
-        };
-        particle.addComponent(new TransformComponent(pos));
         RenderComponent ownerRender = owner.getComponent(RenderComponent.class);
         RenderComponent.Color color = ownerRender != null ? ownerRender.getColor() : new RenderComponent.Color(0.8f, 0.9f, 1.0f, 0.5f);
-        RenderComponent particleRenderComponent = particle.addComponent(new RenderComponent(RenderComponent.RenderType.CIRCLE, new Vector2(3, 3), color));
-        particleRenderComponent.setRenderer(s.getRenderer());
-        s.addGameObject(particle);
+        // 直径 3 的拖尾点，0.2 秒后消失
+        s.getParticles().emit(pos.x + 1.5f, pos.y + 1.5f, 3f, 3f, 0.2f, color.r, color.g, color.b, color.a);
     }
 
     private void createExplosion(Vector2 explosionCenter) {
         Scene s = owner.getScene();
         if (s == null) return;
-        GameObject explosion = new GameObject("Explosion") {
-            private float life = 0f;
-            private float duration = 0.4f;
-            private Vector2 c = explosionCenter;
-            @Override
-            public void update(float dt) {
-                super.update(dt);
-                life += dt;
-                float t = Math.min(1f, life / duration);
-                RenderComponent renderComponent = this.getComponent(RenderComponent.class);
-                float w = 10 + 50 * t;
-                float h = 10 + 50 * t;
-                if (renderComponent != null) renderComponent.setSize(new Vector2(w, h));
-                TransformComponent transformComponent = this.getComponent(TransformComponent.class);
-                if (transformComponent != null) transformComponent.setPosition(new Vector2(c.x - w * 0.5f, c.y - h * 0.5f));
-                if (life > duration) {
-                    this.destroy();
-                    s.removeGameObject(this);
-                }
-            }
-            @Override
-            public void render() { renderComponents(); }
-        };
-        TransformComponent explosionTransform = explosion.addComponent(new TransformComponent(explosionCenter));
-        RenderComponent explosionRenderComponent = explosion.addComponent(new RenderComponent(RenderComponent.RenderType.CIRCLE, new Vector2(10, 10), new RenderComponent.Color(1.0f, 0.5f, 0.0f, 0.5f)));
-        explosionRenderComponent.setRenderer(s.getRenderer());
-        Vector2 explosionSizeNow = explosionRenderComponent.getSize();
-        explosionTransform.setPosition(new Vector2(explosionCenter.x - explosionSizeNow.x * 0.5f, explosionCenter.y - explosionSizeNow.y * 0.5f));
-        s.addGameObject(explosion);
+        // 0.4 秒内直径从 10 扩大到 60
+        s.getParticles().emit(explosionCenter.x, explosionCenter.y, 10f, 60f, 0.4f, 1.0f, 0.5f, 0.0f, 0.5f);
     }
 }
\ No newline at end of file
@@ -0,0 +1,55 @@
+package com.gameengine.components;
+
+import com.gameengine.core.Component;
+
+/**
+ * 圆形碰撞体，由 CollisionSystem 每步统一做宽相位检测并产生接触
+ *
+ * 圆心为 Transform 位置加上 (offsetX, offsetY)。layer 为自身所在的层（一个位），
+ * mask 为要与之接触的层；两个碰撞体互相在对方的 mask 中时才产生接触。
+ */
+public class ColliderComponent extends Component<ColliderComponent> {
+    public static final int LAYER_PLAYER = 1;
+    public static final int LAYER_ENEMY = 1 << 1;
+    public static final int LAYER_BULLET = 1 << 2;
+
+    private float radius;
+    private float offsetX;
+    private float offsetY;
+    private int layer;
+    private int mask;
+
+    public ColliderComponent(float radius, float offsetX, float offsetY, int layer, int mask) {
+        this.radius = radius;
+        this.offsetX = offsetX;
+        this.offsetY = offsetY;
+        this.layer = layer;
+        this.mask = mask;
+    }
+
+    @Override
+    public void initialize() {}
+
+    @Override
+    public void update(float deltaTime) {}
+
+    @Override
+    public void render() {}
+
+    /**
+     * 两个碰撞体的层是否互相接受
+     */
+    public boolean accepts(ColliderComponent other) {
+        return (mask & other.layer) != 0 && (other.mask & layer) != 0;
+    }
+
+    public float getRadius() { return radius; }
+    public void setRadius(float radius) { this.radius = radius; }
+    public float getOffsetX() { return offsetX; }
+    public float getOffsetY() { return offsetY; }
+    public void setOffset(float offsetX, float offsetY) { this.offsetX = offsetX; this.offsetY = offsetY; }
+    public int getLayer() { return layer; }
+    public void setLayer(int layer) { this.layer = layer; }
+    public int getMask() { return mask; }
+    public void setMask(int mask) { this.mask = mask; }
+}
@@ -1,6 +1,7 @@
 package com.gameengine.components;
 
 import com.gameengine.core.Component;
+import com.gameengine.core.Tags;
 import com.gameengine.graphics.Renderer;
 import com.gameengine.math.Vector2;
 import com.gameengine.scene.Scene;
@@ -39,6 +40,11 @@ public class HealthComponent extends Component<HealthComponent> {
         return (this.currentHealth <= 0);
     }
 
+    @Override
+    public void reset() {
+        this.currentHealth = this.maxHealth;
+    }
+
     @Override
     public void initialize() {
     }
@@ -56,12 +62,12 @@ public class HealthComponent extends Component<HealthComponent> {
         if (renderer == null) return;
         TransformComponent transformComponent = owner.getComponent(TransformComponent.class);
         if (transformComponent == null) return;
-        Vector2 pos = transformComponent.getPosition();
+        Vector2 pos = transformComponent.getRenderPosition();
         float ratio = Math.max(0f, Math.min(1f, currentHealth / (float) Math.max(1, maxHealth)));
         float r = ratio < 0.5f ? 1.0f : 2 - 2 * ratio;
         float g = ratio > 0.5f ? 1.0f : 2 * ratio;
         float b = 0.0f;
-        int fontSize = owner.getName().equals("Enemy") ? 10 : 16;
+        int fontSize = owner.hasTag(Tags.ENEMY) ? 10 : 16;
         renderer.drawText(pos.x - 20, pos.y - 30, "HP: " + currentHealth, fontSize, r, g, b, 1f);
     }
 }
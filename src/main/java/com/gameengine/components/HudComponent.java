@@ -3,9 +3,12 @@ package com.gameengine.components;
 import com.gameengine.core.Component;
 import com.gameengine.core.GameObject;
 import com.gameengine.core.GameLogic;
+import com.gameengine.core.Tags;
 import com.gameengine.graphics.Renderer;
 import com.gameengine.scene.Scene;
 
+import java.util.List;
+
 public class HudComponent extends Component<HudComponent> {
     private GameLogic logic;
 
@@ -30,8 +33,10 @@ public class HudComponent extends Component<HudComponent> {
         renderer.drawText(panelW - 270, 50, "Kills: " + kills, 40, 1f, 1f, 0f, 1f);
 
         GameObject player = null;
-        for (GameObject obj : s.getGameObjects()) {
-            if (obj.getName().equals("Player") && obj.isActive()) { player = obj; break; }
+        List<GameObject> players = s.findGameObjectsByTag(Tags.PLAYER);
+        for (int i = 0; i < players.size(); i++) {
+            GameObject obj = players.get(i);
+            if (obj.isActive()) { player = obj; break; }
         }
         if (player != null) {
             HealthComponent healthComponent = player.getComponent(HealthComponent.class);
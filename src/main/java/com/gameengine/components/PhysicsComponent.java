@@ -3,9 +3,11 @@ package com.gameengine.components;
 import com.gameengine.core.Component;
 import com.gameengine.core.GameObject;
 import com.gameengine.math.Vector2;
+import com.gameengine.scene.KinematicsStore;
 
 /**
  * 物理组件，处理物理运动
+ * 绑定到场景的 KinematicsStore 后，速度与加速度直接读写存储数组
  */
 public class PhysicsComponent extends Component<PhysicsComponent> {
     private Vector2 velocity;
@@ -14,6 +16,8 @@ public class PhysicsComponent extends Component<PhysicsComponent> {
     private float friction;
     private boolean useGravity;
     private Vector2 gravity;
+    private KinematicsStore store;
+    private int slot;
 
     public PhysicsComponent() {
         this.velocity = new Vector2();
@@ -43,6 +47,20 @@ public class PhysicsComponent extends Component<PhysicsComponent> {
         if (transform == null)
             return;
 
+        if (store != null) {
+            int i = slot;
+            if (useGravity) {
+                store.ax[i] += gravity.x;
+                store.ay[i] += gravity.y;
+            }
+            store.vx[i] = (store.vx[i] + store.ax[i] * deltaTime) * friction;
+            store.vy[i] = (store.vy[i] + store.ay[i] * deltaTime) * friction;
+            transform.translate(store.vx[i] * deltaTime, store.vy[i] * deltaTime);
+            store.ax[i] = 0f;
+            store.ay[i] = 0f;
+            return;
+        }
+
         // 应用重力
         if (useGravity) {
             acceleration = acceleration.add(gravity);
@@ -67,12 +85,28 @@ public class PhysicsComponent extends Component<PhysicsComponent> {
         // 物理组件不直接渲染
     }
 
+    @Override
+    public void reset() {
+        setVelocity(0f, 0f);
+        if (store != null) {
+            store.ax[slot] = 0f;
+            store.ay[slot] = 0f;
+        } else {
+            acceleration = new Vector2();
+        }
+    }
+
     /**
      * 应用力
      */
     public void applyForce(Vector2 force) {
         if (mass > 0) {
-            acceleration = acceleration.add(force.multiply(1.0f / mass));
+            if (store != null) {
+                store.ax[slot] += force.x * (1.0f / mass);
+                store.ay[slot] += force.y * (1.0f / mass);
+            } else {
+                acceleration = acceleration.add(force.multiply(1.0f / mass));
+            }
         }
     }
 
@@ -81,7 +115,7 @@ public class PhysicsComponent extends Component<PhysicsComponent> {
      */
     public void applyImpulse(Vector2 impulse) {
         if (mass > 0) {
-            velocity = velocity.add(impulse.multiply(1.0f / mass));
+            addVelocity(impulse.x * (1.0f / mass), impulse.y * (1.0f / mass));
         }
     }
 
@@ -89,21 +123,63 @@ public class PhysicsComponent extends Component<PhysicsComponent> {
      * 设置速度
      */
     public void setVelocity(Vector2 velocity) {
-        this.velocity = new Vector2(velocity);
+        setVelocity(velocity.x, velocity.y);
     }
 
     /**
      * 设置速度
      */
     public void setVelocity(float x, float y) {
-        this.velocity = new Vector2(x, y);
+        if (store != null) {
+            store.vx[slot] = x;
+            store.vy[slot] = y;
+        } else {
+            this.velocity = new Vector2(x, y);
+        }
     }
 
     /**
      * 添加速度
      */
     public void addVelocity(Vector2 delta) {
-        this.velocity = velocity.add(delta);
+        addVelocity(delta.x, delta.y);
+    }
+
+    public void addVelocity(float dx, float dy) {
+        if (store != null) {
+            store.vx[slot] += dx;
+            store.vy[slot] += dy;
+        } else {
+            this.velocity = new Vector2(velocity.x + dx, velocity.y + dy);
+        }
+    }
+
+    /**
+     * 绑定到场景的结构数组存储，当前速度与加速度写入槽位
+     */
+    public void bind(KinematicsStore store, int slot) {
+        store.vx[slot] = getVelocityX();
+        store.vy[slot] = getVelocityY();
+        Vector2 a = getAcceleration();
+        store.ax[slot] = a.x;
+        store.ay[slot] = a.y;
+        this.store = store;
+        this.slot = slot;
+    }
+
+    /**
+     * 解除绑定，速度与加速度写回组件自身
+     */
+    public void unbind() {
+        if (store != null) {
+            this.velocity = new Vector2(store.vx[slot], store.vy[slot]);
+            this.acceleration = new Vector2(store.ax[slot], store.ay[slot]);
+            this.store = null;
+        }
+    }
+
+    public boolean isBound() {
+        return store != null;
     }
 
     /**
@@ -136,11 +212,19 @@ public class PhysicsComponent extends Component<PhysicsComponent> {
 
     // Getters
     public Vector2 getVelocity() {
-        return new Vector2(velocity);
+        return new Vector2(getVelocityX(), getVelocityY());
+    }
+
+    public float getVelocityX() {
+        return store != null ? store.vx[slot] : velocity.x;
+    }
+
+    public float getVelocityY() {
+        return store != null ? store.vy[slot] : velocity.y;
     }
 
     public Vector2 getAcceleration() {
-        return new Vector2(acceleration);
+        return store != null ? new Vector2(store.ax[slot], store.ay[slot]) : new Vector2(acceleration);
     }
 
     public float getMass() {
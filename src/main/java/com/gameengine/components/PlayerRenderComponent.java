@@ -19,7 +19,7 @@ public class PlayerRenderComponent extends Component<PlayerRenderComponent> {
         Renderer renderer = s.getRenderer();
         TransformComponent transformComponent = owner.getComponent(TransformComponent.class);
         if (transformComponent == null) return;
-        Vector2 basePosition = transformComponent.getPosition();
+        Vector2 basePosition = transformComponent.getRenderPosition();
         renderer.drawRect(basePosition.x - 8, basePosition.y - 10, 16, 20, 1.0f, 0.0f, 0.0f, 1.0f);
         renderer.drawRect(basePosition.x - 6, basePosition.y - 22, 12, 12, 1.0f, 0.5f, 0.0f, 1.0f);
         renderer.drawRect(basePosition.x - 13, basePosition.y - 5, 6, 12, 1.0f, 0.8f, 0.0f, 1.0f);
@@ -105,7 +105,7 @@ public class RenderComponent extends Component<RenderComponent> {
             return;
         }
 
-        Vector2 position = transform.getPosition();
+        Vector2 position = transform.getRenderPosition();
 
         switch (renderType) {
             case RECTANGLE:
@@ -175,6 +175,14 @@ public class RenderComponent extends Component<RenderComponent> {
         return new Vector2(size);
     }
 
+    public float getWidth() {
+        return size.x;
+    }
+
+    public float getHeight() {
+        return size.y;
+    }
+
     public Color getColor() {
         return color;
     }
@@ -3,14 +3,18 @@ package com.gameengine.components;
 import com.gameengine.core.Component;
 import com.gameengine.core.GameObject;
 import com.gameengine.math.Vector2;
+import com.gameengine.scene.KinematicsStore;
 
 /**
  * 变换组件，管理位置、旋转、缩放
+ * 绑定到场景的 KinematicsStore 后，位置读写直接落到存储数组上
  */
 public class TransformComponent extends Component<TransformComponent> {
     private Vector2 position;
     private Vector2 scale;
     private float rotation;
+    private KinematicsStore store;
+    private int slot;
     
     public TransformComponent() {
         this.position = new Vector2();
@@ -48,14 +52,50 @@ public class TransformComponent extends Component<TransformComponent> {
      * 移动到指定位置
      */
     public void moveTo(Vector2 newPosition) {
-        this.position = new Vector2(newPosition);
+        setPosition(newPosition.x, newPosition.y);
     }
     
     /**
      * 移动相对距离
      */
     public void translate(Vector2 delta) {
-        this.position = position.add(delta);
+        translate(delta.x, delta.y);
+    }
+
+    public void translate(float dx, float dy) {
+        if (store != null) {
+            store.x[slot] += dx;
+            store.y[slot] += dy;
+        } else {
+            this.position = new Vector2(position.x + dx, position.y + dy);
+        }
+    }
+
+    /**
+     * 绑定到场景的结构数组存储，当前位置写入槽位（上一步位置同样取当前值，新对象不做插值）
+     */
+    public void bind(KinematicsStore store, int slot) {
+        Vector2 p = getPosition();
+        store.x[slot] = p.x;
+        store.y[slot] = p.y;
+        store.px[slot] = p.x;
+        store.py[slot] = p.y;
+        this.store = store;
+        this.slot = slot;
+    }
+
+    /**
+     * 解除绑定，位置写回组件自身
+     */
+    public void unbind() {
+        if (store != null) {
+            this.position = new Vector2(store.x[slot], store.y[slot]);
+            this.store = null;
+        }
+    }
+
+    public boolean isBound() {
+        return store != null;
     }
     
     /**
@@ -88,11 +128,51 @@ public class TransformComponent extends Component<TransformComponent> {
     
     // Getters and Setters
     public Vector2 getPosition() {
-        return new Vector2(position);
+        return new Vector2(getX(), getY());
     }
     
     public void setPosition(Vector2 position) {
-        this.position = new Vector2(position);
+        setPosition(position.x, position.y);
+    }
+
+    public void setPosition(float x, float y) {
+        if (store != null) {
+            store.x[slot] = x;
+            store.y[slot] = y;
+        } else {
+            this.position = new Vector2(x, y);
+        }
+    }
+
+    public float getX() {
+        return store != null ? store.x[slot] : position.x;
+    }
+
+    public float getY() {
+        return store != null ? store.y[slot] : position.y;
+    }
+
+    /**
+     * 渲染用位置：在上一步与当前位置之间按插值系数插值，未绑定存储时即当前位置
+     */
+    public float getRenderX() {
+        if (store == null) {
+            return position.x;
+        }
+        float p = store.px[slot];
+        return p + (store.x[slot] - p) * store.alpha;
+    }
+
+    public float getRenderY() {
+        if (store == null) {
+            return position.y;
+        }
+        float p = store.py[slot];
+        return p + (store.y[slot] - p) * store.alpha;
+    }
+
+    public Vector2 getRenderPosition() {
+        return new Vector2(getRenderX(), getRenderY());
     }
     
     public Vector2 getScale() {
@@ -0,0 +1,150 @@
+package com.gameengine.core;
+
+import com.gameengine.components.ColliderComponent;
+import com.gameengine.components.TransformComponent;
+import com.gameengine.scene.Scene;
+import com.gameengine.spatial.SweepAndPrune;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 碰撞系统：每步对场景中所有 ColliderComponent 做一次宽相位（SweepAndPrune）与圆形窄相位检测，
+ * 生成按层过滤后的接触列表，玩法代码通过 forEachContact 处理接触，不再各自遍历对象求距离
+ *
+ * update 之后接触列表在下一次 update 之前保持不变；碰撞体数组与接触数组只在容量不足时扩容。
+ */
+public class CollisionSystem {
+    /**
+     * 接触回调：a 属于查询的第一层，(dx, dy) 为从 a 的圆心指向 b 的圆心，返回 false 停止遍历
+     */
+    public interface ContactListener {
+        boolean onContact(GameObject a, GameObject b, float dx, float dy, float distance);
+    }
+
+    private final SweepAndPrune broadphase = new SweepAndPrune();
+    private ColliderComponent[] colliders = new ColliderComponent[0];
+    private float[] centerX = new float[0];
+    private float[] centerY = new float[0];
+    private int colliderCount;
+    // 接触：两个碰撞体下标与圆心距离
+    private int[] contactA = new int[64];
+    private int[] contactB = new int[64];
+    private float[] contactDistance = new float[64];
+    private int contactCount;
+
+    /**
+     * 收集活跃的碰撞体，重建宽相位并计算接触，返回接触数
+     */
+    public int update(Scene scene) {
+        List<ColliderComponent> list = scene.getComponents(ColliderComponent.class);
+        ensureColliderCapacity(list.size());
+        int n = 0;
+        for (int i = 0; i < list.size(); i++) {
+            ColliderComponent c = list.get(i);
+            GameObject owner = c.getOwner();
+            if (!c.isEnabled() || owner == null || !owner.isActive()) {
+                continue;
+            }
+            TransformComponent tc = owner.getComponent(TransformComponent.class);
+            if (tc == null) {
+                continue;
+            }
+            colliders[n] = c;
+            centerX[n] = tc.getX() + c.getOffsetX();
+            centerY[n] = tc.getY() + c.getOffsetY();
+            n++;
+        }
+        for (int i = n; i < colliderCount; i++) {
+            colliders[i] = null;
+        }
+        colliderCount = n;
+
+        broadphase.begin(n);
+        for (int i = 0; i < n; i++) {
+            float r = colliders[i].getRadius();
+            broadphase.set(i, centerX[i] - r, centerY[i] - r, centerX[i] + r, centerY[i] + r,
+                    colliders[i].getLayer(), colliders[i].getMask());
+        }
+        int pairs = broadphase.findPairs();
+
+        contactCount = 0;
+        for (int k = 0; k < pairs; k++) {
+            int a = broadphase.getPairA(k);
+            int b = broadphase.getPairB(k);
+            float dx = centerX[b] - centerX[a];
+            float dy = centerY[b] - centerY[a];
+            float r = colliders[a].getRadius() + colliders[b].getRadius();
+            float d2 = dx * dx + dy * dy;
+            if (d2 < r * r) {
+                addContact(a, b, (float) Math.sqrt(d2));
+            }
+        }
+        return contactCount;
+    }
+
+    /**
+     * 遍历 layerA 与 layerB 之间的接触，回调中 a 在 layerA、b 在 layerB
+     */
+    public void forEachContact(int layerA, int layerB, ContactListener listener) {
+        for (int k = 0; k < contactCount; k++) {
+            int a = contactA[k];
+            int b = contactB[k];
+            int la = colliders[a].getLayer();
+            int lb = colliders[b].getLayer();
+            if ((la & layerA) == 0 || (lb & layerB) == 0) {
+                if ((lb & layerA) == 0 || (la & layerB) == 0) {
+                    continue;
+                }
+                int t = a;
+                a = b;
+                b = t;
+            }
+            GameObject oa = colliders[a].getOwner();
+            GameObject ob = colliders[b].getOwner();
+            // 前面的接触处理中已被移除的对象不再回调
+            if (!oa.isActive() || !ob.isActive()) {
+                continue;
+            }
+            if (!listener.onContact(oa, ob, centerX[b] - centerX[a], centerY[b] - centerY[a], contactDistance[k])) {
+                return;
+            }
+        }
+    }
+
+    public int getContactCount() {
+        return contactCount;
+    }
+
+    public int getColliderCount() {
+        return colliderCount;
+    }
+
+    /**
+     * 宽相位候选对数（窄相位之前）
+     */
+    public int getPairCount() {
+        return broadphase.getPairCount();
+    }
+
+    private void addContact(int a, int b, float distance) {
+        if (contactCount == contactA.length) {
+            contactA = Arrays.copyOf(contactA, contactCount * 2);
+            contactB = Arrays.copyOf(contactB, contactCount * 2);
+            contactDistance = Arrays.copyOf(contactDistance, contactCount * 2);
+        }
+        contactA[contactCount] = a;
+        contactB[contactCount] = b;
+        contactDistance[contactCount] = distance;
+        contactCount++;
+    }
+
+    private void ensureColliderCapacity(int n) {
+        if (colliders.length < n) {
+            int cap = Math.max(n, colliders.length * 2);
+            colliders = Arrays.copyOf(colliders, cap);
+            centerX = new float[cap];
+            centerY = new float[cap];
+        }
+    }
+}
@@ -37,6 +37,12 @@ public abstract class Component<T extends Component<T>> {
         this.enabled = false;
     }
     
+    /**
+     * 重置为刚创建时的状态，所属对象回收到对象池时调用
+     */
+    public void reset() {
+    }
+    
     /**
      * 获取组件类型
      */
@@ -0,0 +1,60 @@
+package com.gameengine.core;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 组件类型注册表，为每个组件类分配一个小整数 id
+ *
+ * GameObject 以 id 为下标保存组件槽位，查找组件只需一次数组访问。
+ * 组件登记时同时占用自身类及其父类（不含 Component）的 id，按父类查找子类组件仍然有效。
+ */
+public final class ComponentType {
+    private static final AtomicInteger NEXT_ID = new AtomicInteger();
+
+    private static final ClassValue<Integer> IDS = new ClassValue<Integer>() {
+        @Override
+        protected Integer computeValue(Class<?> type) {
+            return NEXT_ID.getAndIncrement();
+        }
+    };
+
+    private static final ClassValue<int[]> HIERARCHIES = new ClassValue<int[]>() {
+        @Override
+        protected int[] computeValue(Class<?> type) {
+            int depth = 0;
+            for (Class<?> c = type; c != null && c != Component.class; c = c.getSuperclass()) {
+                depth++;
+            }
+            int[] ids = new int[depth];
+            int i = 0;
+            for (Class<?> c = type; c != null && c != Component.class; c = c.getSuperclass()) {
+                ids[i++] = idOf(c);
+            }
+            return ids;
+        }
+    };
+
+    private ComponentType() {
+    }
+
+    /**
+     * 获取组件类的 id
+     */
+    public static int idOf(Class<?> type) {
+        return IDS.get(type);
+    }
+
+    /**
+     * 获取组件类自身及其父类的 id，返回的数组为共享实例，不要修改
+     */
+    public static int[] hierarchyOf(Class<?> type) {
+        return HIERARCHIES.get(type);
+    }
+
+    /**
+     * 已分配的 id 数量
+     */
+    public static int count() {
+        return NEXT_ID.get();
+    }
+}
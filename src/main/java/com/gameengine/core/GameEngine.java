@@ -2,33 +2,69 @@ package com.gameengine.core;
 
 import com.gameengine.graphics.Renderer;
 import com.gameengine.input.InputManager;
+import com.gameengine.jobs.JobSystem;
 import com.gameengine.scene.Scene;
-import javax.swing.Timer;
+
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * 游戏引擎
+ *
+ * 模拟按固定步长推进：每帧把经过的时间累加起来，够一步就调用一次 Scene.update，
+ * 单帧最多追赶 maxCatchUpSteps 步，超出的时间直接丢弃（宁可变慢也不卡死）。
+ * 渲染按显示帧率进行，用剩余时间占步长的比例在上一步与当前状态之间插值。
+ * 更新与生成绘制命令都在独立的游戏循环线程中执行，Swing 事件线程只负责输入和绘制。
+ * 无窗口模式（headless）不创建窗口也不渲染，可以按固定频率运行，也可以不限速地连续推进，
+ * 或由调用方用 runTicks 同步推进指定步数，用于基准测试和服务端模拟。
  */
 public class GameEngine {
     private Renderer renderer;
     private InputManager inputManager;
     private Scene currentScene;
-    private boolean running;
-    private float targetFPS;
+    private volatile boolean running;
+    private volatile float targetFPS;
     private float deltaTime;
     private long lastTime;
     private String title;
-    private Timer gameTimer;
+    private Thread loopThread;
+    private JobSystem jobSystem;
+    // 模拟频率（步/秒）与单帧最多追赶的步数
+    private volatile float tickRate;
+    private volatile int maxCatchUpSteps;
+    private float accumulator;
+    // 单帧计入累加器的最长时间，避免窗口拖动、断点等长停顿后连续追赶
+    private static final float MAX_FRAME_TIME = 0.25f;
+    // 不限速时每次循环固定推进一步，不按真实时间休眠
+    private volatile boolean unthrottled;
+    private volatile long tickCount;
 
     public GameEngine(int width, int height, String title) {
+        this(new Renderer(width, height, title), title);
+    }
+
+    private GameEngine(Renderer renderer, String title) {
         this.title = title;
-        this.renderer = new Renderer(width, height, title);
+        this.renderer = renderer;
+        this.jobSystem = new JobSystem();
         this.inputManager = InputManager.getInstance();
         this.running = false;
         this.targetFPS = 60.0f;
-        this.deltaTime = 0.0f;
+        this.tickRate = 60.0f;
+        this.maxCatchUpSteps = 5;
+        this.accumulator = 0.0f;
+        this.deltaTime = 1.0f / tickRate;
         this.lastTime = System.nanoTime();
     }
 
+    /**
+     * 创建无窗口引擎，世界尺寸为 width x height，默认不限速运行
+     */
+    public static GameEngine headless(int width, int height) {
+        GameEngine engine = new GameEngine(Renderer.headless(width, height), "headless");
+        engine.unthrottled = true;
+        return engine;
+    }
+
     /**
      * 初始化游戏引擎
      */
@@ -40,6 +76,9 @@ public class GameEngine {
      * 运行游戏引擎
      */
     public void run() {
+        if (running) {
+            throw new IllegalStateException("engine is already running");
+        }
         if (!initialize()) {
             System.err.println("游戏引擎初始化失败");
             return;
@@ -47,71 +86,135 @@ public class GameEngine {
 
         running = true;
 
+        loopThread = new Thread(this::loop, "GameLoop");
+        loopThread.start();
+    }
+
+    /**
+     * 游戏循环线程：每帧更新并生成绘制命令，然后休眠到下一帧
+     */
+    private void loop() {
         // 初始化当前场景
         if (currentScene != null) {
             currentScene.initialize();
         }
 
-        // 创建游戏循环定时器
-        gameTimer = new Timer((int) (1000 / targetFPS), e -> {
-            if (running) {
+        lastTime = System.nanoTime();
+        accumulator = 0.0f;
+        long nextFrame = System.nanoTime();
+        try {
+            while (running) {
+                if (unthrottled) {
+                    tick(1.0f / tickRate);
+                    checkExit();
+                    continue;
+                }
                 update();
                 render();
-            }
-        });
 
-        gameTimer.start();
+                nextFrame += (long) (1_000_000_000L / targetFPS);
+                long wait = nextFrame - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                } else {
+                    // 落后时不补帧，从当前时间重新计时
+                    nextFrame = System.nanoTime();
+                }
+            }
+        } finally {
+            cleanup();
+        }
     }
 
     /**
-     * 更新游戏逻辑
+     * 在调用线程上同步推进 ticks 步（不渲染，不休眠），首次调用时初始化当前场景
+     * 不能与 run 同时使用；结束后调用 stop 释放资源
      */
-    private void update() {
-        // 计算时间间隔
-        long currentTime = System.nanoTime();
-        deltaTime = (currentTime - lastTime) / 1_000_000_000.0f; // 转换为秒
-        lastTime = currentTime;
+    public void runTicks(int ticks) {
+        if (loopThread != null) {
+            throw new IllegalStateException("engine is running on its own loop thread");
+        }
+        if (!running) {
+            if (!initialize()) {
+                System.err.println("游戏引擎初始化失败");
+                return;
+            }
+            running = true;
+            if (currentScene != null) {
+                currentScene.initialize();
+            }
+        }
+        float step = 1.0f / tickRate;
+        for (int i = 0; i < ticks && running; i++) {
+            tick(step);
+        }
+    }
 
+    /**
+     * 推进一个模拟步
+     */
+    private void tick(float step) {
+        deltaTime = step;
         // 更新场景
         if (currentScene != null) {
-            currentScene.update(deltaTime);
+            currentScene.update(step);
+        }
+        tickCount++;
+        // 更新输入状态（清除上一步的JustPressed状态）
+        inputManager.update();
+    }
+
+    /**
+     * 检查退出条件（ESC键或窗口关闭），资源在循环退出时清理
+     */
+    private void checkExit() {
+        if (inputManager.isKeyPressed(27) || renderer.shouldClose()) {
+            running = false;
         }
+    }
+
+    /**
+     * 更新游戏逻辑：按固定步长推进模拟
+     */
+    private void update() {
+        // 计算本帧经过的时间
+        long currentTime = System.nanoTime();
+        float frameTime = (currentTime - lastTime) / 1_000_000_000.0f; // 转换为秒
+        lastTime = currentTime;
+        accumulator += Math.min(frameTime, MAX_FRAME_TIME);
 
         // 处理事件
         renderer.pollEvents();
 
-        // 检查退出条件
-        if (inputManager.isKeyPressed(27)) { // ESC键
-            running = false;
-            gameTimer.stop();
-            if (currentScene != null) {
-                currentScene.clear();
-            }
-            renderer.cleanup();
+        float step = 1.0f / tickRate;
+        deltaTime = step;
+        int steps = 0;
+        while (accumulator >= step && steps < maxCatchUpSteps) {
+            // 没有执行任何一步时输入的JustPressed状态保留，留给下一步处理
+            tick(step);
+            accumulator -= step;
+            steps++;
         }
-
-        // 检查窗口是否关闭
-        if (renderer.shouldClose()) {
-            running = false;
-            gameTimer.stop();
-            if (currentScene != null) {
-                currentScene.clear();
-            }
-            renderer.cleanup();
+        if (steps == maxCatchUpSteps && accumulator >= step) {
+            // 追赶不上时丢弃积压，只保留不足一步的部分
+            accumulator %= step;
         }
 
-        // 更新输入状态（清除上一帧的JustPressed状态）
-        inputManager.update();
+        checkExit();
     }
 
     /**
      * 渲染游戏
      */
     private void render() {
+        if (!running || renderer.isHeadless()) {
+            return;
+        }
         renderer.beginFrame();
 
-        // 渲染场景
+        // 渲染场景，按剩余时间在上一步与当前状态之间插值
         if (currentScene != null) {
+            currentScene.setInterpolationAlpha(accumulator * tickRate);
             currentScene.render();
         }
 
@@ -120,9 +223,13 @@ public class GameEngine {
 
     /**
      * 设置当前场景
+     * 引擎运行后应在游戏循环线程中调用（例如在场景的 update 中切换）
      */
     public void setScene(Scene scene) {
         this.currentScene = scene;
+        if (scene != null && scene.getJobSystem() == null) {
+            scene.setJobSystem(jobSystem);
+        }
         if (scene != null && running) {
             scene.initialize();
         }
@@ -137,16 +244,14 @@ public class GameEngine {
 
     /**
      * 停止游戏引擎
+     * 循环线程在运行时由它在退出前清理，否则直接清理
      */
     public void stop() {
         running = false;
-        if (gameTimer != null) {
-            gameTimer.stop();
-        }
-        if (currentScene != null) {
-            currentScene.clear();
+        Thread t = loopThread;
+        if (t == null || !t.isAlive()) {
+            cleanup();
         }
-        renderer.cleanup();
     }
 
     /**
@@ -156,6 +261,7 @@ public class GameEngine {
         if (currentScene != null) {
             currentScene.clear();
         }
+        jobSystem.shutdown();
         renderer.cleanup();
     }
 
@@ -166,6 +272,13 @@ public class GameEngine {
         return renderer;
     }
 
+    /**
+     * 获取引擎的任务系统
+     */
+    public JobSystem getJobSystem() {
+        return jobSystem;
+    }
+
     /**
      * 获取输入管理器
      */
@@ -174,7 +287,7 @@ public class GameEngine {
     }
 
     /**
-     * 获取时间间隔
+     * 获取时间间隔（固定步长）
      */
     public float getDeltaTime() {
         return deltaTime;
@@ -185,9 +298,6 @@ public class GameEngine {
      */
     public void setTargetFPS(float fps) {
         this.targetFPS = fps;
-        if (gameTimer != null) {
-            gameTimer.setDelay((int) (1000 / fps));
-        }
     }
 
     /**
@@ -197,6 +307,56 @@ public class GameEngine {
         return targetFPS;
     }
 
+    /**
+     * 设置模拟频率（步/秒），与显示帧率无关；负载高时可以降低
+     */
+    public void setTickRate(float tickRate) {
+        if (tickRate <= 0f) {
+            throw new IllegalArgumentException("tickRate must be positive");
+        }
+        this.tickRate = tickRate;
+    }
+
+    public float getTickRate() {
+        return tickRate;
+    }
+
+    /**
+     * 设置单帧最多执行的模拟步数
+     */
+    public void setMaxCatchUpSteps(int maxCatchUpSteps) {
+        if (maxCatchUpSteps < 1) {
+            throw new IllegalArgumentException("maxCatchUpSteps must be at least 1");
+        }
+        this.maxCatchUpSteps = maxCatchUpSteps;
+    }
+
+    public int getMaxCatchUpSteps() {
+        return maxCatchUpSteps;
+    }
+
+    /**
+     * 设置是否不限速：为 true 时循环不休眠，每次固定推进一步，模拟时间与真实时间无关
+     */
+    public void setUnthrottled(boolean unthrottled) {
+        this.unthrottled = unthrottled;
+    }
+
+    public boolean isUnthrottled() {
+        return unthrottled;
+    }
+
+    public boolean isHeadless() {
+        return renderer.isHeadless();
+    }
+
+    /**
+     * 已执行的模拟步数
+     */
+    public long getTickCount() {
+        return tickCount;
+    }
+
     /**
      * 检查引擎是否正在运行
      */
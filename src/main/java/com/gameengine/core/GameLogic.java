@@ -7,16 +7,18 @@ import com.gameengine.components.PhysicsComponent;
 import com.gameengine.components.RenderComponent;
 import com.gameengine.core.GameObject;
 import com.gameengine.components.BulletComponent;
+import com.gameengine.components.ColliderComponent;
 import com.gameengine.input.InputManager;
+import com.gameengine.jobs.JobGraph;
+import com.gameengine.jobs.JobSystem;
 import com.gameengine.math.Vector2;
+import com.gameengine.scene.EntityQuery;
+import com.gameengine.scene.KinematicsStore;
 import com.gameengine.scene.Scene;
+import com.gameengine.spatial.SpatialHashGrid;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Future;
-import java.util.stream.Collectors;
 
 import javax.xml.crypto.dsig.Transform;
 
@@ -31,7 +33,9 @@ public class GameLogic {
     private boolean pauseKeyPrev = false;
     private boolean restartKeyPrev = false;
     private boolean shootKeyPrev = false;
-    private ExecutorService physicsExecutor;
+    // 物理与避让每批最少处理的对象数，数量不足一批时直接在当前线程执行
+    private static final int PHYSICS_MIN_BATCH = 256;
+    private static final int AVOIDANCE_MIN_BATCH = 64;
     private static final boolean PERF_DEBUG = true;
     private long perfLastLogNs;
     private double physicsAccMs;
@@ -53,34 +57,72 @@ public class GameLogic {
     private int avoidanceLastThreadCount;
     private int avoidanceLastBatchSize;
     private int lastEnemyCount;
-    private java.util.Map<GameObject, Long> lastShotNs = new java.util.HashMap<>();
+    // 每个目标（按 id）上次被选中的模拟时间，用于射击冷却；池化对象复用时换新 id，不会继承旧的冷却
+    private java.util.Map<Integer, Long> lastShotNs = new java.util.HashMap<>();
+    // 模拟时钟：只随 advanceTime 推进，与真实时间无关，保证同样的输入得到同样的结果
+    private long simTimeNs;
     private int killCount;
     private float enemySpeed;
     private int currentColorIdx = 1;
+    // 敌人避让：半径与网格边长一致，网格和中心点数组每帧复用
+    private static final float AVOID_RADIUS = 45f;
+    private final SpatialHashGrid avoidanceGrid = new SpatialHashGrid(AVOID_RADIUS);
+    private final CollisionSystem collisions = new CollisionSystem();
+    private final MeleeSystem melee = new MeleeSystem();
+    // 近战与避让的任务图，首次使用时创建，每步复用
+    private JobGraph contactGraph;
+    private float contactDeltaTime;
+    // 场景增量维护的实体查询，见 Scene.createQuery
+    private EntityQuery players;
+    private EntityQuery enemies;
+    private TargetIndex targets;
+    // 选目标时的临时状态：被子弹锁定的敌人按索引编号记下本轮的戳，不用每次新建集合
+    private int[] targetedStamps = new int[0];
+    private int targetStamp;
+    private int[] nearestIndex = new int[0];
+    private float[] nearestDist2 = new float[0];
+    private long shootNowNs;
+    private boolean shootPurple;
+    private final java.util.function.IntPredicate shootFilter = this::isShootable;
+    private int[] avoidIndex = new int[0];
+    private float[] avoidCenterX = new float[0];
+    private float[] avoidCenterY = new float[0];
+    private int[][] avoidScratch = new int[0][];
 
     public GameLogic(Scene scene) {
+        this(scene, InputManager.getInstance());
+    }
+
+    /**
+     * 使用指定的输入源，例如回放时由录制的按键事件驱动的独立 InputManager
+     */
+    public GameLogic(Scene scene, InputManager inputManager) {
         this.scene = scene;
-        this.inputManager = InputManager.getInstance();
-        int threadCount = Math.max(4, Runtime.getRuntime().availableProcessors() - 1);
-        physicsExecutor = Executors.newFixedThreadPool(threadCount);
+        this.inputManager = inputManager;
+        this.players = scene.createQuery(Tags.PLAYER, PhysicsComponent.class);
+        this.enemies = scene.createQuery(Tags.ENEMY);
+        this.targets = new TargetIndex(enemies);
         if (PERF_DEBUG)
             perfLastLogNs = System.nanoTime();
     }
 
+    /**
+     * 注销在场景上登记的查询；场景重开时换用新的 GameLogic 之前调用
+     */
+    public void release() {
+        scene.removeQuery(players);
+        scene.removeQuery(enemies);
+    }
+
     private GameObject getUserPlayer() {
-        for (GameObject obj : scene.getGameObjects()) {
-            if (obj.getName().equals("Player") && obj.hasComponent(PhysicsComponent.class)) {
-                return obj;
-            }
-        }
-        return null;
+        return players.first();
     }
 
+    /**
+     * 活跃的敌人，场景维护的只读列表
+     */
     private List<GameObject> getEnemy() {
-        return scene.getGameObjects().stream()
-                .filter(obj -> obj.getName().equals("Enemy"))
-                .filter(obj -> obj.isActive())
-                .collect(Collectors.toList());
+        return enemies.getObjects();
     }
 
     /**
@@ -128,16 +170,25 @@ public class GameLogic {
         return 0;
     }
 
+    /**
+     * 推进模拟时钟，场景每个运行中的模拟步调用一次
+     */
+    public void advanceTime(float deltaTime) {
+        simTimeNs += (long) (deltaTime * 1_000_000_000L);
+    }
+
+    public long getSimTimeNs() { return simTimeNs; }
+
     public GameState getGameState() { return gameState; }
     public void setRunning() { gameState = GameState.RUNNING; }
     public void setGameOver() { gameState = GameState.GAME_OVER; }
 
     public void handlePlayerInput() {
-        List<GameObject> players = scene.findGameObjectsByComponent(TransformComponent.class);
-        if (players.isEmpty())
+        // 组件列表的顺序不固定，玩家从玩家查询中取
+        GameObject player = getUserPlayer();
+        if (player == null)
             return;
 
-        GameObject player = players.get(0);
         TransformComponent transform = player.getComponent(TransformComponent.class);
         PhysicsComponent physics = player.getComponent(PhysicsComponent.class);
 
@@ -184,77 +235,115 @@ public class GameLogic {
             float sf = attack.getSlowTime() > 0f ? attack.getSlowFactor() : 1.0f;
             physics.setVelocity(direction.multiply(enemySpeed * sf));
         }
-        attack.tryAttack(scene, "Player");
+    }
+
+    /**
+     * 敌人对玩家的近战攻击，每步在敌人 AI 之后统一结算一次
+     */
+    public void resolveMelee() {
+        GameObject player = getUserPlayer();
+        if (player == null || !player.isActive()) return;
+        melee.update(scene, Tags.ENEMY, Tags.PLAYER);
+    }
+
+    /**
+     * 近战结算与敌人避让：两者都只读位置，前者只写玩家血量、后者只写敌人速度，
+     * 有任务系统时作为任务图中互不依赖的两个节点并行执行
+     */
+    public void resolveMeleeAndAvoidance(float deltaTime) {
+        JobSystem jobs = scene.getJobSystem();
+        if (jobs == null) {
+            resolveMelee();
+            handleEnemyAvoidance(deltaTime);
+            return;
+        }
+        if (contactGraph == null) {
+            contactGraph = new JobGraph();
+            contactGraph.add("melee", this::resolveMelee);
+            contactGraph.add("avoidance", () -> handleEnemyAvoidance(contactDeltaTime));
+        }
+        contactDeltaTime = deltaTime;
+        jobs.run(contactGraph);
+    }
+
+    public MeleeSystem getMeleeSystem() {
+        return melee;
     }
 
     public void cleanupDeadObjects() {
-        for (GameObject obj : scene.getGameObjects().toArray(new GameObject[0])) {
-            HealthComponent healthComponent = obj.getComponent(HealthComponent.class);
-            if (healthComponent != null && healthComponent.getHealth() <= 0) {
-                if (obj.getName().equals("Enemy")) {
+        // 非池化对象销毁时立即从组件列表移除（末尾元素填补空位），从后往前遍历不会漏掉对象
+        List<HealthComponent> healths = scene.getComponents(HealthComponent.class);
+        for (int i = healths.size() - 1; i >= 0; i--) {
+            HealthComponent healthComponent = healths.get(i);
+            GameObject obj = healthComponent.getOwner();
+            if (healthComponent.getHealth() <= 0) {
+                if (obj.hasTag(Tags.ENEMY)) {
                     killCount++;
                 }
-                obj.destroy();
-                scene.removeGameObject(obj);
+                lastShotNs.remove(obj.getId());
+                scene.despawn(obj);
             }
         }
     }
 
+    /**
+     * 选出离玩家最近、尚未被子弹锁定且不在冷却中的至多 available 个敌人
+     * 在目标索引上做 k 近邻查询，不对全部敌人排序
+     */
     public List<GameObject> chooseTargetsForShooting(int maxBullets, boolean isPurple) {
+        targets.invalidate();
         int activeBullets = 0;
-        for (GameObject obj : scene.getGameObjects()) {
-            if (obj.getName().equals("Bullet") && obj.isActive()) activeBullets++;
+        targetStamp++;
+        List<BulletComponent> bullets = scene.getComponents(BulletComponent.class);
+        for (int i = 0; i < bullets.size(); i++) {
+            BulletComponent bulletComponent = bullets.get(i);
+            GameObject obj = bulletComponent.getOwner();
+            if (obj == null || !obj.isActive() || !obj.hasTag(Tags.BULLET)) continue;
+            activeBullets++;
+            GameObject t = bulletComponent.getTarget();
+            int index = t != null ? targets.indexOf(t) : -1;
+            if (index >= 0) {
+                if (index >= targetedStamps.length) {
+                    targetedStamps = java.util.Arrays.copyOf(targetedStamps, Math.max(index + 1, targetedStamps.length * 2));
+                }
+                targetedStamps[index] = targetStamp;
+            }
         }
         int limit = isPurple ? 1 : maxBullets;
         int available = Math.max(0, limit - activeBullets);
         if (available <= 0) return java.util.Collections.emptyList();
-        java.util.Set<GameObject> targeted = new java.util.HashSet<>();
-        for (GameObject obj : scene.getGameObjects()) {
-            if (obj.getName().equals("Bullet") && obj.isActive()) {
-                BulletComponent bulletComponent = obj.getComponent(BulletComponent.class);
-                if (bulletComponent != null) {
-                    GameObject t = bulletComponent.getTarget();
-                    if (t != null) targeted.add(t);
-                }
-            }
-        }
         GameObject player = getUserPlayer();
         TransformComponent playerTransform = player != null ? player.getComponent(TransformComponent.class) : null;
-        Vector2 playerPos = playerTransform != null ? playerTransform.getPosition() : new Vector2(0, 0);
-        java.util.List<GameObject> targets = new java.util.ArrayList<>();
-        long now = System.nanoTime();
-        for (GameObject obj : scene.getGameObjects()) {
-            if (!obj.isActive() || !obj.getName().equals("Enemy")) continue;
-            if (targeted.contains(obj)) continue;
-            Long lt = lastShotNs.get(obj);
-            if (lt != null && now - lt < 250_000_000L) continue;
-            if (isPurple) {
-                AttackComponent attackComponent = obj.getComponent(AttackComponent.class);
-                if (attackComponent != null && attackComponent.getRootTime() > 0f) continue;
-            }
-            targets.add(obj);
-        }
-        targets.sort((a, b) -> {
-            TransformComponent transformA = a.getComponent(TransformComponent.class);
-            TransformComponent transformB = b.getComponent(TransformComponent.class);
-            RenderComponent renderA = a.getComponent(RenderComponent.class);
-            RenderComponent renderB = b.getComponent(RenderComponent.class);
-            Vector2 sizeA = renderA != null ? renderA.getSize() : new Vector2(20, 20);
-            Vector2 sizeB = renderB != null ? renderB.getSize() : new Vector2(20, 20);
-            float distanceA = transformA != null ? playerPos.distance(transformA.getPosition().add(new Vector2(sizeA.x * 0.5f, sizeA.y * 0.5f))) : Float.MAX_VALUE;
-            float distanceB = transformB != null ? playerPos.distance(transformB.getPosition().add(new Vector2(sizeB.x * 0.5f, sizeB.y * 0.5f))) : Float.MAX_VALUE;
-            return Float.compare(distanceA, distanceB);
-        });
-        int canFire = Math.min(available, targets.size());
-        java.util.List<GameObject> result = new java.util.ArrayList<>();
+        float px = playerTransform != null ? playerTransform.getX() : 0f;
+        float py = playerTransform != null ? playerTransform.getY() : 0f;
+        if (nearestIndex.length < available) {
+            nearestIndex = new int[available];
+            nearestDist2 = new float[available];
+        }
+        shootNowNs = simTimeNs;
+        shootPurple = isPurple;
+        int canFire = targets.nearest(px, py, available, shootFilter, nearestIndex, nearestDist2);
+        java.util.List<GameObject> result = new java.util.ArrayList<>(canFire);
         for (int i = 0; i < canFire; i++) {
-            GameObject t = targets.get(i);
-            lastShotNs.put(t, now);
+            GameObject t = targets.get(nearestIndex[i]);
+            lastShotNs.put(t.getId(), shootNowNs);
             result.add(t);
         }
         return result;
     }
 
+    private boolean isShootable(int index) {
+        if (index < targetedStamps.length && targetedStamps[index] == targetStamp) return false;
+        GameObject obj = targets.get(index);
+        Long lt = lastShotNs.get(obj.getId());
+        if (lt != null && shootNowNs - lt < 250_000_000L) return false;
+        if (shootPurple) {
+            AttackComponent attackComponent = obj.getComponent(AttackComponent.class);
+            if (attackComponent != null && attackComponent.getRootTime() > 0f) return false;
+        }
+        return true;
+    }
+
     public int getKillCount() { return killCount; }
     public void resetKillCount() { killCount = 0; }
     public void setEnemySpeed(float s) { enemySpeed = s; }
@@ -272,35 +361,32 @@ public class GameLogic {
         if (PERF_DEBUG)
             t0 = System.nanoTime();
 
-        int threadCount = Runtime.getRuntime().availableProcessors() - 1;
-        threadCount = Math.max(4, threadCount);
-        int batchSize = Math.max(1, physicsComponents.size() / threadCount + 1);
-        if (PERF_DEBUG) {
-            physicsLastThreadCount = threadCount;
-            physicsLastBatchSize = batchSize;
-        }
-
-        List<Future<?>> futures = new ArrayList<>();
-
-        for (int i = 0; i < physicsComponents.size(); i += batchSize) {
-            final int start = i;
-            final int end = Math.min(i + batchSize, physicsComponents.size());
-
-            Future<?> future = physicsExecutor.submit(() -> {
-                for (int j = start; j < end; ++j) {
-                    PhysicsComponent component = physicsComponents.get(j);
-                    updateSinglePhysics(component);
-                }
-            });
-            futures.add(future);
-        }
-
-        for (Future<?> future : futures) {
-            try {
-                future.get();
-            } catch (Exception e) {
-                e.printStackTrace();
+        JobSystem jobs = scene.getJobSystem();
+        int count = physicsComponents.size();
+        KinematicsStore kinematics = scene.getKinematics();
+        JobSystem.RangeBody body = (start, end, batch) -> {
+            if (kinematics != null) {
+                updatePhysicsRange(kinematics, physicsComponents, start, end);
+                return;
+            }
+            for (int j = start; j < end; ++j) {
+                PhysicsComponent component = physicsComponents.get(j);
+                updateSinglePhysics(component);
+            }
+        };
+        if (jobs != null) {
+            if (PERF_DEBUG) {
+                int batches = jobs.batchCount(count, PHYSICS_MIN_BATCH);
+                physicsLastThreadCount = Math.min(batches, jobs.getParallelism());
+                physicsLastBatchSize = (count + batches - 1) / batches;
+            }
+            jobs.parallelFor(count, PHYSICS_MIN_BATCH, body);
+        } else {
+            if (PERF_DEBUG) {
+                physicsLastThreadCount = 1;
+                physicsLastBatchSize = count;
             }
+            body.run(0, count, 0);
         }
         if (PERF_DEBUG) {
             double elapsedMs = (System.nanoTime() - t0) / 1_000_000.0;
@@ -345,6 +431,45 @@ public class GameLogic {
         }
     }
 
+    /**
+     * 结构数组版本的边界反弹与约束，逻辑与 updateSinglePhysics 一致，直接读写槽位数据
+     */
+    private void updatePhysicsRange(KinematicsStore k, List<PhysicsComponent> physicsComponents, int start, int end) {
+        int screenW = scene.getRenderer() != null ? scene.getRenderer().getWidth() : 1600;
+        int screenH = scene.getRenderer() != null ? scene.getRenderer().getHeight() : 900;
+        float[] x = k.x;
+        float[] y = k.y;
+        float[] vx = k.vx;
+        float[] vy = k.vy;
+        for (int j = start; j < end; ++j) {
+            PhysicsComponent component = physicsComponents.get(j);
+            GameObject owner = component.getOwner();
+            TransformComponent transform = owner.getComponent(TransformComponent.class);
+            if (transform == null || !transform.isBound() || !component.isBound()) {
+                updateSinglePhysics(component);
+                continue;
+            }
+            int i = owner.getSceneSlot();
+            RenderComponent render = owner.getComponent(RenderComponent.class);
+            float w = render != null ? render.getWidth() : 20;
+            float h = render != null ? render.getHeight() : 20;
+            if ((x[i] <= 0 && vx[i] < 0) || (x[i] >= screenW - w && vx[i] > 0)) {
+                vx[i] = -vx[i];
+            }
+            if ((y[i] <= 0 && vy[i] < 0) || (y[i] >= screenH - h && vy[i] > 0)) {
+                vy[i] = -vy[i];
+            }
+            if (x[i] < 0)
+                x[i] = 0;
+            if (y[i] < 0)
+                y[i] = 0;
+            if (x[i] > screenW - w)
+                x[i] = screenW - w;
+            if (y[i] > screenH - h)
+                y[i] = screenH - h;
+        }
+    }
+
     /**
      * 检查碰撞
      */
@@ -368,8 +493,10 @@ public class GameLogic {
         long t0 = 0L;
         if (PERF_DEBUG)
             t0 = System.nanoTime();
-        for (int i = 0; i < enemy.size(); ++i) {
-            processAvoidanceForPlayer(enemy, i, deltaTime);
+        int count = buildAvoidanceGrid(enemy);
+        int[] scratch = avoidanceScratch(0, count);
+        for (int k = 0; k < count; ++k) {
+            processAvoidanceForPlayer(enemy, k, scratch, deltaTime);
         }
         if (PERF_DEBUG) {
             double elapsedMs = (System.nanoTime() - t0) / 1_000_000.0;
@@ -387,34 +514,29 @@ public class GameLogic {
         long t0 = 0L;
         if (PERF_DEBUG)
             t0 = System.nanoTime();
-        int threadCount = Math.max(4, Runtime.getRuntime().availableProcessors() - 1);
-        int batchSize = Math.max(1, enemy.size() / threadCount + 1);
-        if (PERF_DEBUG) {
-            avoidanceLastThreadCount = threadCount;
-            avoidanceLastBatchSize = batchSize;
-        }
-
-        List<Future<?>> futures = new ArrayList<>();
-
-        for (int i = 0; i < enemy.size(); i += batchSize) {
-            final int start = i;
-            final int end = Math.min(enemy.size(), i + batchSize);
-
-            Future<?> future = physicsExecutor.submit(() -> {
-                for (int j = start; j < end; ++j) {
-                    processAvoidanceForPlayer(enemy, j, deltaTime);
+        int count = buildAvoidanceGrid(enemy);
+        JobSystem jobs = scene.getJobSystem();
+        if (jobs == null) {
+            int[] scratch = avoidanceScratch(0, count);
+            for (int k = 0; k < count; ++k) {
+                processAvoidanceForPlayer(enemy, k, scratch, deltaTime);
+            }
+        } else {
+            int batches = jobs.batchCount(count, AVOIDANCE_MIN_BATCH);
+            if (PERF_DEBUG) {
+                avoidanceLastThreadCount = Math.min(batches, jobs.getParallelism());
+                avoidanceLastBatchSize = batches > 0 ? (count + batches - 1) / batches : 0;
+            }
+            // 临时缓冲按批次预先分配，工作线程中不再扩容
+            for (int b = 0; b < batches; ++b) {
+                avoidanceScratch(b, count);
+            }
+            jobs.parallelFor(count, AVOIDANCE_MIN_BATCH, (start, end, batch) -> {
+                int[] scratch = avoidScratch[batch];
+                for (int k = start; k < end; ++k) {
+                    processAvoidanceForPlayer(enemy, k, scratch, deltaTime);
                 }
             });
-
-            futures.add(future);
-        }
-
-        for (Future<?> future : futures) {
-            try {
-                future.get();
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
         }
         if (PERF_DEBUG) {
             double elapsedMs = (System.nanoTime() - t0) / 1_000_000.0;
@@ -426,100 +548,141 @@ public class GameLogic {
         }
     }
 
-    private void processAvoidanceForPlayer(List<GameObject> enemy, int index, float deltaTime) {
-        GameObject enemy1 = enemy.get(index);
-        TransformComponent transform1 = enemy1.getComponent(TransformComponent.class);
+    /**
+     * 用敌人中心点重建避让网格，返回入网格的敌人数量
+     * 网格编号 k 对应 enemy.get(avoidIndex[k])，没有变换组件的敌人不参与避让
+     */
+    private int buildAvoidanceGrid(List<GameObject> enemy) {
+        int n = enemy.size();
+        if (avoidIndex.length < n) {
+            int cap = Math.max(n, avoidIndex.length * 2);
+            avoidIndex = new int[cap];
+            avoidCenterX = new float[cap];
+            avoidCenterY = new float[cap];
+        }
+        int count = 0;
+        for (int i = 0; i < n; ++i) {
+            GameObject obj = enemy.get(i);
+            TransformComponent transform = obj.getComponent(TransformComponent.class);
+            if (transform == null)
+                continue;
+            RenderComponent renderComponent = obj.getComponent(RenderComponent.class);
+            float w = renderComponent != null ? renderComponent.getWidth() : 40;
+            float h = renderComponent != null ? renderComponent.getHeight() : 40;
+            avoidIndex[count] = i;
+            avoidCenterX[count] = transform.getX() + w / 2f;
+            avoidCenterY[count] = transform.getY() + h / 2f;
+            count++;
+        }
+        avoidanceGrid.rebuild(avoidCenterX, avoidCenterY, count);
+        return count;
+    }
+
+    private int[] avoidanceScratch(int batch, int count) {
+        if (avoidScratch.length <= batch) {
+            avoidScratch = java.util.Arrays.copyOf(avoidScratch, batch + 1);
+        }
+        int[] scratch = avoidScratch[batch];
+        if (scratch == null || scratch.length < count) {
+            scratch = new int[Math.max(count, scratch != null ? scratch.length * 2 : 0)];
+            avoidScratch[batch] = scratch;
+        }
+        return scratch;
+    }
+
+    private void processAvoidanceForPlayer(List<GameObject> enemy, int index, int[] scratch, float deltaTime) {
+        GameObject enemy1 = enemy.get(avoidIndex[index]);
         PhysicsComponent physics1 = enemy1.getComponent(PhysicsComponent.class);
-        if (transform1 == null || physics1 == null)
+        if (physics1 == null)
             return;
 
-        Vector2 pos1 = transform1.getPosition();
-        RenderComponent renderComponent1 = enemy1.getComponent(RenderComponent.class);
-        Vector2 size1 = renderComponent1 != null ? renderComponent1.getSize() : new Vector2(40, 40);
-        pos1 = new Vector2(pos1.x + size1.x / 2f, pos1.y + size1.y / 2f);
-        Vector2 avoidance = new Vector2();
-
-        for (int i = 0; i < enemy.size(); ++i) {
-            if (i == index)
-                continue;
-            GameObject enemy2 = enemy.get(i);
-            TransformComponent transform2 = enemy2.getComponent(TransformComponent.class);
+        float x1 = avoidanceGrid.getX(index);
+        float y1 = avoidanceGrid.getY(index);
+        float avoidX = 0f;
+        float avoidY = 0f;
 
-            if (transform2 == null)
+        // 只检查 3x3 邻域格子，格子边长等于避让半径，半径内的敌人不会漏掉
+        int found = avoidanceGrid.queryNeighbours(x1, y1, scratch);
+        for (int f = 0; f < found; ++f) {
+            int other = scratch[f];
+            if (other == index)
                 continue;
-
-            Vector2 pos2 = transform2.getPosition();
-            RenderComponent renderComponent2 = enemy2.getComponent(RenderComponent.class);
-            Vector2 size2 = renderComponent2 != null ? renderComponent2.getSize() : new Vector2(40, 40);
-            pos2 = new Vector2(pos2.x + size2.x / 2f, pos2.y + size2.y / 2f);
-            float distance = pos1.distance(pos2);
-
-            if (distance > 0 && distance < 45) {
-                Vector2 direction = pos1.subtract(pos2).normalize();
-                float strength = (45 - distance) / 45.0f;
-                avoidance = avoidance.add(direction.multiply(strength * 100));
+            float dx = x1 - avoidanceGrid.getX(other);
+            float dy = y1 - avoidanceGrid.getY(other);
+            float distance = (float) Math.sqrt(dx * dx + dy * dy);
+
+            if (distance > 0 && distance < AVOID_RADIUS) {
+                float strength = (AVOID_RADIUS - distance) / AVOID_RADIUS;
+                avoidX += dx / distance * (strength * 100);
+                avoidY += dy / distance * (strength * 100);
             }
         }
 
-        if (avoidance.magnitude() > 0) {
-            Vector2 currentVelocity = physics1.getVelocity();
-            Vector2 avoidanceDirection = avoidance.normalize();
-            float avoidanceStrength = Math.min(400, avoidance.magnitude());
+        float magnitude = (float) Math.sqrt(avoidX * avoidX + avoidY * avoidY);
+        if (magnitude > 0) {
+            float currentX = physics1.getVelocityX();
+            float currentY = physics1.getVelocityY();
+            float avoidanceStrength = Math.min(400, magnitude);
+            float push = avoidanceStrength * deltaTime * 400;// 消除fps的影响
 
-            Vector2 targetVelocity = currentVelocity
-                    .add(avoidanceDirection.multiply(avoidanceStrength * deltaTime * 400));// 消除fps的影响
+            float targetX = currentX + avoidX / magnitude * push;
+            float targetY = currentY + avoidY / magnitude * push;
 
             float lerpFactor = 0.35f;
-            Vector2 newVelocity = new Vector2(
-                    currentVelocity.x + (targetVelocity.x - currentVelocity.x) * lerpFactor,
-                    currentVelocity.y + (targetVelocity.y - currentVelocity.y) * lerpFactor);
-
-            physics1.setVelocity(newVelocity);
+            physics1.setVelocity(
+                    currentX + (targetX - currentX) * lerpFactor,
+                    currentY + (targetY - currentY) * lerpFactor);
         }
     }
 
+    /**
+     * 碰撞处理：碰撞系统每步重建一次宽相位，这里只消费接触
+     * - 子弹与敌人：子弹碰到自己的目标时命中；
+     * - 玩家与敌人：只处理第一个接触，把玩家推出重叠并让双方后退。
+     */
     public void checkCollisions() {
-        GameObject player = getUserPlayer();
-        if (player == null || !player.isActive())
-            return;
+        collisions.update(scene);
+        targets.invalidate();
+        collisions.forEachContact(ColliderComponent.LAYER_BULLET, ColliderComponent.LAYER_ENEMY, bulletContact);
+        collisions.forEachContact(ColliderComponent.LAYER_PLAYER, ColliderComponent.LAYER_ENEMY, playerContact);
+    }
+
+    public CollisionSystem getCollisionSystem() {
+        return collisions;
+    }
+
+    private final CollisionSystem.ContactListener bulletContact = (bullet, enemy, dx, dy, distance) -> {
+        BulletComponent bc = bullet.getComponent(BulletComponent.class);
+        if (bc != null) {
+            bc.onContact(enemy, targets);
+        }
+        return true;
+    };
+
+    private final CollisionSystem.ContactListener playerContact = (player, enemy, dx, dy, distance) -> {
+        if (distance <= 0f) {
+            return true;
+        }
+        ColliderComponent playerCollider = player.getComponent(ColliderComponent.class);
+        ColliderComponent enemyCollider = enemy.getComponent(ColliderComponent.class);
+        // 从敌人指向玩家的单位向量
+        Vector2 direction = new Vector2(-dx / distance, -dy / distance);
+        float push = (playerCollider.getRadius() + enemyCollider.getRadius()) - distance;
+
         TransformComponent playerTransform = player.getComponent(TransformComponent.class);
-        if (playerTransform == null)
-            return;
-        Vector2 playerPos = playerTransform.getPosition();
-        float playerRadius = 22f;//玩家的判定范围
-
-        List<GameObject> enemies = getEnemy();
-
-        for (GameObject obj : enemies) {
-            TransformComponent enemyTransform = obj.getComponent(TransformComponent.class);
-            if (enemyTransform != null) {
-                Vector2 enemyPos = enemyTransform.getPosition();
-                RenderComponent render = obj.getComponent(RenderComponent.class);
-                Vector2 size = render != null ? render.getSize() : new Vector2(20, 20);
-                Vector2 enemyCenter = new Vector2(enemyPos.x + size.x / 2f, enemyPos.y + size.y / 2f);
-                float enemyRadius = Math.max(size.x, size.y) / 2f;
-
-                float distance = playerPos.distance(enemyCenter);
-                if (distance < playerRadius + enemyRadius && distance > 0f) {
-                    Vector2 direction = playerPos.subtract(enemyCenter).normalize();
-                    float push = (playerRadius + enemyRadius) - distance;
-
-                    playerTransform.translate(direction.multiply(push));
-
-                    PhysicsComponent enemyPhysics = obj.getComponent(PhysicsComponent.class);
-                    if (enemyPhysics != null) {
-                        enemyPhysics.addVelocity(direction.multiply(-100f)); // 敌人后退
-                    }
-
-                    PhysicsComponent playerPhysics = player.getComponent(PhysicsComponent.class);
-                    if (playerPhysics != null) {
-                        playerPhysics.addVelocity(direction.multiply(200f)); // 玩家后退
-                    }
-                    break;
-                }
-            }
+        playerTransform.translate(direction.multiply(push));
+
+        PhysicsComponent enemyPhysics = enemy.getComponent(PhysicsComponent.class);
+        if (enemyPhysics != null) {
+            enemyPhysics.addVelocity(direction.multiply(-100f)); // 敌人后退
         }
-    }
+
+        PhysicsComponent playerPhysics = player.getComponent(PhysicsComponent.class);
+        if (playerPhysics != null) {
+            playerPhysics.addVelocity(direction.multiply(200f)); // 玩家后退
+        }
+        return false;
+    };
 
     private void perfMaybeLog() {
         long now = System.nanoTime();
@@ -546,6 +709,12 @@ public class GameLogic {
                     parallelAvgDisplay, parallelPerEnemy * 1000.0, parallelMin, avoidParallelMaxMs,
                     avoidParallelSamples, avoidanceLastThreadCount, avoidanceLastBatchSize,
                     lastEnemyCount));
+            if (!scene.getPools().isEmpty()) {
+                System.out.println("Pools: " + scene.getPools());
+            }
+            if (scene.getJobSystem() != null) {
+                System.out.println("Jobs: " + scene.getJobSystem());
+            }
             physicsAccMs = 0.0;
             physicsSamples = 0;
             physicsMinMs = Double.MAX_VALUE;
@@ -1,28 +1,47 @@
 package com.gameengine.core;
 
 import com.gameengine.math.Vector2;
+import com.gameengine.pool.GameObjectPool;
 import com.gameengine.scene.Scene;
 
 import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * 游戏对象基类，使用泛型组件系统
  */
 public class GameObject {
+    private static final AtomicInteger NEXT_ID = new AtomicInteger(1);
+
+    // 对象 id，回收复用时重新分配，持有旧 id 的引用据此判断目标已失效
+    private int id;
     protected boolean active;
     protected String name;
+    // 标签掩码，见 Tags；nameTag 为名字对应的那一位，名字未登记为标签时为 0
+    private long tags;
+    private long nameTag;
     protected final List<Component<?>> components;
+    // 按组件类型 id 索引的槽位，见 ComponentType
+    private Component<?>[] slots;
     private Scene scene;
+    // 在所属场景中的槽位，未登记时为 -1
+    private int sceneSlot = -1;
+    // 所属对象池，非池化对象为 null
+    private GameObjectPool pool;
 
     public GameObject() {
+        this.id = NEXT_ID.getAndIncrement();
         this.active = true;
         this.name = "GameObject";
+        this.nameTag = Tags.find(name);
+        this.tags = nameTag;
         this.components = new ArrayList<>();
+        this.slots = new Component<?>[ComponentType.count()];
     }
 
     public GameObject(String name) {
         this();
-        this.name = name;
+        setName(name);
     }
 
     /**
@@ -50,12 +69,28 @@ public class GameObject {
      * 销毁游戏对象
      */
     public void destroy() {
+        if (scene != null && sceneSlot >= 0) {
+            scene.onGameObjectDestroyed(this);
+        }
         this.active = false;
+        // 组件已销毁，不能再回到对象池
+        this.pool = null;
         // 销毁所有组件
         for (Component<?> component : components) {
             component.destroy();
         }
         components.clear();
+        Arrays.fill(slots, null);
+    }
+
+    /**
+     * 回收到对象池时调用：重置所有组件并分配新的 id
+     */
+    public void recycle() {
+        this.id = NEXT_ID.getAndIncrement();
+        for (Component<?> component : components) {
+            component.reset();
+        }
     }
 
     /**
@@ -64,7 +99,19 @@ public class GameObject {
     public <T extends Component<T>> T addComponent(T component) {
         component.setOwner(this);
         components.add(component);
+        for (int id : ComponentType.hierarchyOf(component.getClass())) {
+            if (id >= slots.length) {
+                slots = Arrays.copyOf(slots, Math.max(id + 1, ComponentType.count()));
+            }
+            // 同类型只登记第一个，与按添加顺序查找的语义一致
+            if (slots[id] == null) {
+                slots[id] = component;
+            }
+        }
         component.initialize();
+        if (scene != null && sceneSlot >= 0) {
+            scene.onComponentAdded(this, component);
+        }
         return component;
     }
 
@@ -73,24 +120,30 @@ public class GameObject {
      */
     @SuppressWarnings("unchecked")
     public <T extends Component<T>> T getComponent(Class<T> componentType) {
-        for (Component<?> component : components) {
-            if (componentType.isInstance(component)) {
-                return (T) component;
-            }
-        }
-        return null;
+        int id = ComponentType.idOf(componentType);
+        return id < slots.length ? (T) slots[id] : null;
     }
 
     /**
      * 检查是否有指定类型的组件
      */
     public <T extends Component<T>> boolean hasComponent(Class<T> componentType) {
-        for (Component<?> component : components) {
-            if (componentType.isInstance(component)) {
-                return true;
-            }
-        }
-        return false;
+        int id = ComponentType.idOf(componentType);
+        return id < slots.length && slots[id] != null;
+    }
+
+    /**
+     * 按组件类型 id 获取组件槽位中的组件
+     */
+    public Component<?> getComponentById(int typeId) {
+        return typeId < slots.length ? slots[typeId] : null;
+    }
+
+    /**
+     * 组件槽位数量，类型 id 小于该值的槽位才可能有组件
+     */
+    public int getComponentSlotCount() {
+        return slots.length;
     }
 
     /**
@@ -117,12 +170,22 @@ public class GameObject {
 
     // Getters and Setters
 
+    public int getId() {
+        return id;
+    }
+
     public boolean isActive() {
         return active;
     }
 
     public void setActive(boolean active) {
+        if (this.active == active) {
+            return;
+        }
         this.active = active;
+        if (scene != null && sceneSlot >= 0) {
+            scene.onActiveChanged(this);
+        }
     }
 
     public String getName() {
@@ -131,6 +194,43 @@ public class GameObject {
 
     public void setName(String name) {
         this.name = name;
+        long newNameTag = Tags.find(name);
+        setTags((tags & ~nameTag) | newNameTag);
+        this.nameTag = newNameTag;
+    }
+
+    public long getTags() {
+        return tags;
+    }
+
+    /**
+     * 是否带有 mask 中的任意一个标签
+     */
+    public boolean hasTag(long mask) {
+        return (tags & mask) != 0;
+    }
+
+    public void addTag(String tag) {
+        setTags(tags | Tags.maskOf(tag));
+    }
+
+    public void addTags(long mask) {
+        setTags(tags | mask);
+    }
+
+    public void removeTags(long mask) {
+        setTags(tags & ~mask);
+    }
+
+    private void setTags(long newTags) {
+        long old = tags;
+        if (old == newTags) {
+            return;
+        }
+        tags = newTags;
+        if (scene != null && sceneSlot >= 0) {
+            scene.onTagsChanged(this, old);
+        }
     }
 
     public Scene getScene() {
@@ -140,4 +240,20 @@ public class GameObject {
     public void setScene(Scene scene) {
         this.scene = scene;
     }
+
+    public int getSceneSlot() {
+        return sceneSlot;
+    }
+
+    public void setSceneSlot(int sceneSlot) {
+        this.sceneSlot = sceneSlot;
+    }
+
+    public GameObjectPool getPool() {
+        return pool;
+    }
+
+    public void setPool(GameObjectPool pool) {
+        this.pool = pool;
+    }
 }
\ No newline at end of file
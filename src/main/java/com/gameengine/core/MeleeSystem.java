@@ -0,0 +1,155 @@
+package com.gameengine.core;
+
+import com.gameengine.components.AttackComponent;
+import com.gameengine.components.HealthComponent;
+import com.gameengine.components.RenderComponent;
+import com.gameengine.components.TransformComponent;
+import com.gameengine.scene.Scene;
+import com.gameengine.spatial.SpatialHashGrid;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 近战结算：每步一次，把攻击方的中心放入空间哈希网格，对每个目标只查询附近的攻击方，
+ * 中心距离不超过攻击方 attackRange 的伤害累加后一次性扣到目标的生命上
+ *
+ * 网格格子边长不小于最大攻击距离，3x3 邻域即覆盖所有可能命中的攻击方；
+ * 内部数组只在容量不足或最大攻击距离变大时重新分配。
+ */
+public class MeleeSystem {
+    private static final float MIN_CELL_SIZE = 32f;
+
+    private SpatialHashGrid grid = new SpatialHashGrid(MIN_CELL_SIZE);
+    private AttackComponent[] attackers = new AttackComponent[0];
+    private float[] centerX = new float[0];
+    private float[] centerY = new float[0];
+    private int[] neighbours = new int[0];
+    private int attackerCount;
+    private int hitCount;
+
+    /**
+     * 带 attackerTag 的活跃对象攻击带 targetTag 的活跃对象（均为 Tags 中的单个标签），返回造成伤害的次数
+     */
+    public int update(Scene scene, long attackerTag, long targetTag) {
+        List<GameObject> list = scene.findGameObjectsByTag(attackerTag);
+        ensureCapacity(list.size());
+        int n = 0;
+        float maxRange = 0f;
+        for (int i = 0; i < list.size(); i++) {
+            GameObject owner = list.get(i);
+            if (!owner.isActive()) {
+                continue;
+            }
+            AttackComponent attack = owner.getComponent(AttackComponent.class);
+            TransformComponent tc = owner.getComponent(TransformComponent.class);
+            if (attack == null || tc == null) {
+                continue;
+            }
+            RenderComponent rc = owner.getComponent(RenderComponent.class);
+            attackers[n] = attack;
+            centerX[n] = tc.getX() + (rc != null ? rc.getWidth() * 0.5f : 0f);
+            centerY[n] = tc.getY() + (rc != null ? rc.getHeight() * 0.5f : 0f);
+            maxRange = Math.max(maxRange, attack.getAttackRange());
+            n++;
+        }
+        for (int i = n; i < attackerCount; i++) {
+            attackers[i] = null;
+        }
+        attackerCount = n;
+        hitCount = 0;
+        if (n == 0) {
+            return 0;
+        }
+        if (maxRange > grid.getCellSize()) {
+            grid = new SpatialHashGrid(maxRange);
+        }
+        grid.rebuild(centerX, centerY, n);
+
+        List<GameObject> targets = scene.findGameObjectsByTag(targetTag);
+        for (int i = 0; i < targets.size(); i++) {
+            GameObject target = targets.get(i);
+            if (!target.isActive()) {
+                continue;
+            }
+            HealthComponent health = target.getComponent(HealthComponent.class);
+            TransformComponent tc = target.getComponent(TransformComponent.class);
+            if (health == null || tc == null) {
+                continue;
+            }
+            RenderComponent rc = target.getComponent(RenderComponent.class);
+            float tx = tc.getX() + (rc != null ? rc.getWidth() * 0.5f : 0f);
+            float ty = tc.getY() + (rc != null ? rc.getHeight() * 0.5f : 0f);
+            int found = grid.queryNeighbours(tx, ty, neighbours);
+            int total = 0;
+            for (int k = 0; k < found; k++) {
+                int a = neighbours[k];
+                if (inRange(centerX[a], centerY[a], tx, ty, attackers[a].getAttackRange())) {
+                    total += attackers[a].getDamage();
+                    hitCount++;
+                }
+            }
+            if (total > 0) {
+                health.damage(total);
+            }
+        }
+        return hitCount;
+    }
+
+    /**
+     * 单个攻击方对场景中所有带 targetTag 的对象结算一次，AttackComponent.tryAttack 使用
+     * 不建网格，只遍历该标签的对象
+     */
+    public static void attack(AttackComponent attack, Scene scene, long targetTag) {
+        GameObject owner = attack.getOwner();
+        TransformComponent ownerTransform = owner.getComponent(TransformComponent.class);
+        if (ownerTransform == null) {
+            return;
+        }
+        RenderComponent ownerRender = owner.getComponent(RenderComponent.class);
+        float ax = ownerTransform.getX() + (ownerRender != null ? ownerRender.getWidth() * 0.5f : 0f);
+        float ay = ownerTransform.getY() + (ownerRender != null ? ownerRender.getHeight() * 0.5f : 0f);
+        List<GameObject> targets = scene.findGameObjectsByTag(targetTag);
+        for (int i = 0; i < targets.size(); i++) {
+            GameObject target = targets.get(i);
+            HealthComponent health = target.getComponent(HealthComponent.class);
+            TransformComponent tc = target.getComponent(TransformComponent.class);
+            if (health == null || tc == null) {
+                continue;
+            }
+            RenderComponent rc = target.getComponent(RenderComponent.class);
+            float tx = tc.getX() + (rc != null ? rc.getWidth() * 0.5f : 0f);
+            float ty = tc.getY() + (rc != null ? rc.getHeight() * 0.5f : 0f);
+            if (inRange(ax, ay, tx, ty, attack.getAttackRange())) {
+                health.damage(attack.getDamage());
+            }
+        }
+    }
+
+    private static boolean inRange(float ax, float ay, float bx, float by, float range) {
+        float dx = bx - ax;
+        float dy = by - ay;
+        return dx * dx + dy * dy <= range * range;
+    }
+
+    public int getAttackerCount() {
+        return attackerCount;
+    }
+
+    /**
+     * 最近一次 update 中造成伤害的次数
+     */
+    public int getHitCount() {
+        return hitCount;
+    }
+
+    private void ensureCapacity(int n) {
+        if (attackers.length < n) {
+            int cap = Math.max(n, attackers.length * 2);
+            attackers = Arrays.copyOf(attackers, cap);
+            centerX = new float[cap];
+            centerY = new float[cap];
+            neighbours = new int[cap];
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.gameengine.core;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 标签注册表，为每个标签名分配 long 掩码中的一位
+ *
+ * GameObject 以 long 保存自身的标签，判断是否带某个标签只需一次按位与；场景按位维护各标签的对象列表。
+ * 对象的名字已登记为标签时自动带上该标签（见 GameObject），名字本身不会登记新标签：
+ * 回放文件等来源的任意名字不会占用位。需要按名字分组的对象，先用 maskOf 登记再创建。
+ */
+public final class Tags {
+    public static final int MAX_TAGS = Long.SIZE;
+
+    private static final Map<String, Integer> IDS = new HashMap<>();
+    private static final String[] NAMES = new String[MAX_TAGS];
+
+    // 示例游戏使用的标签，与对象名一致
+    public static final long PLAYER = maskOf("Player");
+    public static final long ENEMY = maskOf("Enemy");
+    public static final long BULLET = maskOf("Bullet");
+
+    private Tags() {
+    }
+
+    /**
+     * 获取标签的位序号，首次使用时分配；64 位都已分配时抛出 IllegalStateException
+     */
+    public static int idOf(String name) {
+        int id = tryIdOf(name);
+        if (id < 0) {
+            throw new IllegalStateException("标签数量超过 " + MAX_TAGS + ": " + name);
+        }
+        return id;
+    }
+
+    /**
+     * 获取标签的掩码
+     */
+    public static long maskOf(String name) {
+        return 1L << idOf(name);
+    }
+
+    /**
+     * 已登记标签的掩码，未登记时返回 0（不分配新位）
+     */
+    public static synchronized long find(String name) {
+        Integer id = IDS.get(name);
+        return id != null ? 1L << id : 0L;
+    }
+
+    private static synchronized int tryIdOf(String name) {
+        Integer id = IDS.get(name);
+        if (id != null) {
+            return id;
+        }
+        int next = IDS.size();
+        if (next >= MAX_TAGS) {
+            return -1;
+        }
+        IDS.put(name, next);
+        NAMES[next] = name;
+        return next;
+    }
+
+    /**
+     * 位序号对应的标签名，未分配时返回 null
+     */
+    public static synchronized String nameOf(int id) {
+        return id >= 0 && id < MAX_TAGS ? NAMES[id] : null;
+    }
+
+    /**
+     * 已分配的标签数量
+     */
+    public static synchronized int count() {
+        return IDS.size();
+    }
+}
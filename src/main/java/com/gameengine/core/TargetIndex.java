@@ -0,0 +1,152 @@
+package com.gameengine.core;
+
+import com.gameengine.components.RenderComponent;
+import com.gameengine.components.TransformComponent;
+import com.gameengine.scene.EntityQuery;
+import com.gameengine.spatial.SpatialHashGrid;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntPredicate;
+
+/**
+ * 敌人中心点的最近邻索引，用于射击选目标与连锁子弹找下一个目标
+ *
+ * invalidate 之后第一次查询时用敌人查询的当前成员重建网格（每步最多重建一次，位置变化后由调用方 invalidate），
+ * 成员未变（查询 version 不变）时只刷新中心点，不重建编号。
+ * 查询结果的编号可用 get 换回对象；也可以用 indexOf 由对象查到编号，便于按编号做标记。
+ * 所有数组只在容量不足时扩容，重建与查询不产生分配。
+ */
+public class TargetIndex {
+    // 格子边长取敌人尺寸的量级，附近的几圈即可覆盖常见的查询
+    private static final float CELL_SIZE = 64f;
+
+    private final EntityQuery enemies;
+    private int builtVersion = -1;
+    private final SpatialHashGrid grid = new SpatialHashGrid(CELL_SIZE);
+    private GameObject[] objects = new GameObject[0];
+    private float[] centerX = new float[0];
+    private float[] centerY = new float[0];
+    // 下标为场景槽位，值为编号 + 1，0 表示不在索引中
+    private int[] slotToIndex = new int[0];
+    private int count;
+    private boolean valid;
+    private final int[] single = new int[1];
+    private final float[] singleDist = new float[1];
+    private GameObject excluded;
+    private final IntPredicate notExcluded = i -> objects[i] != excluded && objects[i].isActive();
+
+    /**
+     * enemies 为场景上登记的敌人查询
+     */
+    public TargetIndex(EntityQuery enemies) {
+        this.enemies = enemies;
+    }
+
+    /**
+     * 敌人位置或集合已变化，下一次查询前重建
+     */
+    public void invalidate() {
+        valid = false;
+    }
+
+    private void ensureBuilt() {
+        if (valid) {
+            return;
+        }
+        valid = true;
+        if (builtVersion != enemies.getVersion()) {
+            rebuildMembers();
+        }
+        for (int i = 0; i < count; i++) {
+            GameObject obj = objects[i];
+            TransformComponent tc = obj.getComponent(TransformComponent.class);
+            RenderComponent rc = obj.getComponent(RenderComponent.class);
+            float w = rc != null ? rc.getWidth() : 20f;
+            float h = rc != null ? rc.getHeight() : 20f;
+            centerX[i] = tc.getX() + w * 0.5f;
+            centerY[i] = tc.getY() + h * 0.5f;
+        }
+        grid.rebuild(centerX, centerY, count);
+    }
+
+    private void rebuildMembers() {
+        builtVersion = enemies.getVersion();
+        for (int i = 0; i < count; i++) {
+            int slot = objects[i].getSceneSlot();
+            if (slot >= 0 && slot < slotToIndex.length) {
+                slotToIndex[slot] = 0;
+            }
+            objects[i] = null;
+        }
+        List<GameObject> list = enemies.getObjects();
+        int n = 0;
+        for (int i = 0; i < list.size(); i++) {
+            GameObject obj = list.get(i);
+            if (!obj.hasComponent(TransformComponent.class)) {
+                continue;
+            }
+            if (n == objects.length) {
+                int cap = Math.max(16, n * 2);
+                objects = Arrays.copyOf(objects, cap);
+                centerX = Arrays.copyOf(centerX, cap);
+                centerY = Arrays.copyOf(centerY, cap);
+            }
+            objects[n] = obj;
+            int slot = obj.getSceneSlot();
+            if (slot >= 0) {
+                if (slot >= slotToIndex.length) {
+                    slotToIndex = Arrays.copyOf(slotToIndex, Math.max(slot + 1, slotToIndex.length * 2));
+                }
+                slotToIndex[slot] = n + 1;
+            }
+            n++;
+        }
+        count = n;
+    }
+
+    /**
+     * 索引中的敌人数
+     */
+    public int size() {
+        ensureBuilt();
+        return count;
+    }
+
+    public GameObject get(int index) {
+        return objects[index];
+    }
+
+    /**
+     * 对象在索引中的编号，不在索引中时返回 -1
+     */
+    public int indexOf(GameObject obj) {
+        ensureBuilt();
+        int slot = obj.getSceneSlot();
+        if (slot < 0 || slot >= slotToIndex.length) {
+            return -1;
+        }
+        int i = slotToIndex[slot] - 1;
+        return i >= 0 && objects[i] == obj ? i : -1;
+    }
+
+    /**
+     * 离 (x, y) 最近、通过 filter 的至多 k 个敌人，编号按距离升序写入 out，返回个数
+     * out 与 dist2 的长度至少为 k
+     */
+    public int nearest(float x, float y, int k, IntPredicate filter, int[] out, float[] dist2) {
+        ensureBuilt();
+        return grid.queryNearest(x, y, k, filter, out, dist2);
+    }
+
+    /**
+     * 离 (x, y) 最近、不是 exclude 的活跃敌人，没有时返回 null
+     */
+    public GameObject nearestExcept(float x, float y, GameObject exclude) {
+        ensureBuilt();
+        excluded = exclude;
+        int found = grid.queryNearest(x, y, 1, notExcluded, single, singleDist);
+        excluded = null;
+        return found > 0 ? objects[single[0]] : null;
+    }
+}
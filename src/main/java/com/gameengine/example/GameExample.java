@@ -4,14 +4,18 @@ import com.gameengine.components.*;
 import com.gameengine.core.GameObject;
 import com.gameengine.core.GameEngine;
 import com.gameengine.core.GameLogic;
+import com.gameengine.core.Tags;
 import com.gameengine.graphics.Renderer;
 import com.gameengine.math.Vector2;
+import com.gameengine.pool.GameObjectPool;
 import com.gameengine.scene.Scene;
 import com.gameengine.input.InputManager;
 import com.gameengine.recording.FileRecordingStorage;
+import com.gameengine.recording.InputReplay;
 import com.gameengine.recording.RecordingStorage;
 import com.gameengine.recording.RecordingService;
 import com.gameengine.recording.RecordingConfig;
+import com.gameengine.recording.StateChecksum;
 
 import java.util.List;
 import java.util.Random;
@@ -20,6 +24,12 @@ import java.util.Random;
  * 游戏示例
  */
 public class GameExample {
+    // 确定性回放的控制：每次跳转的秒数、倍速范围、快进时每帧最多推进的步数
+    private static final float REPLAY_SCRUB_SECONDS = 5f;
+    private static final float REPLAY_MIN_SPEED = 0.25f;
+    private static final float REPLAY_MAX_SPEED = 8f;
+    private static final int REPLAY_FAST_FORWARD_TICKS = 600;
+
     private enum BulletColor {
         RED,
         ORANGE,
@@ -67,6 +77,7 @@ public class GameExample {
                 @Override
                 public void resetGameObjects() {
                     clear();
+                    this.gameLogic.release();
                     this.gameLogic = new GameLogic(this);
                     this.time = 0;
                     createPlayer();
@@ -92,6 +103,7 @@ public class GameExample {
                     }
 
                     time += deltaTime;
+                    gameLogic.advanceTime(deltaTime);
 
                     int colorIdx = gameLogic.getColorSwitchIndexJustPressed();
                     if (colorIdx != 0) {
@@ -109,13 +121,10 @@ public class GameExample {
                         time = 0;
                     }
 
-                    for (GameObject obj : this.getGameObjects()) {
-                        if (obj.getName().equals("Enemy")) {
-                            gameLogic.updateEnemyAI(obj, deltaTime);
-                        }
+                    for (GameObject obj : findGameObjectsByTag(Tags.ENEMY)) {
+                        gameLogic.updateEnemyAI(obj, deltaTime);
                     }
-
-                    gameLogic.handleEnemyAvoidance(deltaTime);
+                    gameLogic.resolveMeleeAndAvoidance(deltaTime);
 
                     if (player != null && player.isActive()) {
                         boolean firePurple = (currentColor == BulletColor.PURPLE) && gameLogic.isShootPressedOnce();
@@ -172,6 +181,8 @@ public class GameExample {
                     // 添加生命和攻击组件
                     player.addComponent(new HealthComponent(10000));
                     player.addComponent(new AttackComponent(50, 100));
+                    player.addComponent(new ColliderComponent(22f, 0f, 0f,
+                            ColliderComponent.LAYER_PLAYER, ColliderComponent.LAYER_ENEMY));
 
                     player.addComponent(new PlayerRenderComponent());
                     addGameObject(player);
@@ -224,6 +235,8 @@ public class GameExample {
                     // 添加生命和攻击组件
                     enemy.addComponent(new HealthComponent(8000));
                     enemy.addComponent(new AttackComponent(10, 50));
+                    enemy.addComponent(new ColliderComponent(20f, 20f, 20f,
+                            ColliderComponent.LAYER_ENEMY, ColliderComponent.LAYER_PLAYER | ColliderComponent.LAYER_BULLET));
 
                     addGameObject(enemy);
                 }
@@ -304,6 +317,8 @@ public class GameExample {
                             mode == BulletColor.PURPLE,
                             3f,
                             true));
+                    bullet.addComponent(new ColliderComponent(3f, 3f, 3f,
+                            ColliderComponent.LAYER_BULLET, ColliderComponent.LAYER_ENEMY));
                     addGameObject(bullet);
                 }
 
@@ -371,8 +386,29 @@ public class GameExample {
     }
 
     public static Scene createBattleScene(GameEngine engine) {
-        return new Scene("BattleScene") {
+        return createBattleScene(engine, null, null);
+    }
+
+    /**
+     * 对战场景的录制写入 storage（默认写入 recordings 目录），例如基准测试时写入临时目录
+     */
+    public static Scene createBattleScene(GameEngine engine, RecordingStorage storage) {
+        return createBattleScene(engine, null, storage);
+    }
+
+    /**
+     * 重新模拟一段确定性录制：用录制的随机种子与 tick 频率开局，按 tick 把录制的按键喂给独立的 InputManager，
+     * 在校验点比较状态校验和
+     */
+    public static Scene createReplayBattleScene(GameEngine engine, InputReplay replay) {
+        return createBattleScene(engine, replay, null);
+    }
+
+    private static Scene createBattleScene(GameEngine engine, InputReplay replay, RecordingStorage recordingStorage) {
+        return new Scene(replay != null ? "ReplayBattleScene" : "BattleScene") {
                 private Renderer renderer;
+                private InputManager input;
+                private long seed;
                 private Random random;
                 private float time;
                 private GameLogic gameLogic;
@@ -381,36 +417,55 @@ public class GameExample {
                 private BulletColor currentColor;
                 private RecordingService recordingService;
                 private boolean recordingStopped;
+                // 重新模拟时的 tick 与分叉检测
+                private long replayTick;
+                private boolean replayDesync;
+                // 回放控制：暂停、倍速、跳转（快进到 replaySeekTick，-1 表示没有进行中的跳转）
+                private boolean replayPaused;
+                private float replaySpeed = 1f;
+                private float replayBudget;
+                private long replaySeekTick = -1L;
+                // 进入回放前的引擎 tick 频率，回放结束时恢复
+                private float savedTickRate;
 
             @Override
                 public void initialize() {
                     super.initialize();
                     this.renderer = engine.getRenderer();
                     this.setRenderer(this.renderer);
-                    this.random = new Random();
-                    this.gameLogic = new GameLogic(this);
+                    this.input = replay != null ? new InputManager() : InputManager.getInstance();
+                    if (replay != null) {
+                        this.savedTickRate = engine.getTickRate();
+                        engine.setTickRate(replay.getHeader().tickRate);
+                    }
+                    this.seed = replay != null ? replay.getHeader().seed : System.nanoTime();
+                    this.random = new Random(seed);
+                    this.gameLogic = new GameLogic(this, input);
                     this.time = 0;
                     this.maxBullets = 5;
                     this.currentColor = BulletColor.RED;
                     this.recordingStopped = false;
 
+                    createPools();
                     createPlayer();
                     createEnemies();
                     createDecorations();
                     createHUD();
 
-                    RecordingStorage storage = new FileRecordingStorage();
-                    RecordingConfig cfg = new RecordingConfig();
-                    this.recordingService = new RecordingService(storage, cfg);
-                    String name = "battle_" + System.currentTimeMillis();
-                    this.recordingService.start(this, this.renderer, InputManager.getInstance(), name, "v1");
+                    if (replay == null) {
+                        startRecording();
+                    }
                 }
 
             @Override
                 public void resetGameObjects() {
                     clear();
-                    this.gameLogic = new GameLogic(this);
+                    this.seed = System.nanoTime();
+                    this.random = new Random(seed);
+                    this.gameLogic.release();
+                    this.gameLogic = new GameLogic(this, input);
                     this.time = 0;
+                    this.currentColor = BulletColor.RED;
                     createPlayer();
                     createEnemies();
                     createDecorations();
@@ -420,33 +475,157 @@ public class GameExample {
                     if (this.recordingService != null) {
                         this.recordingService.stop();
                     }
-                    RecordingStorage storage = new FileRecordingStorage();
+                    startRecording();
+                }
+
+                /**
+                 * 确定性录制：记下随机种子与每个 tick 的按键，关键帧只作为校验点
+                 */
+                private void startRecording() {
+                    RecordingStorage storage = recordingStorage != null ? recordingStorage : new FileRecordingStorage();
                     RecordingConfig cfg = new RecordingConfig();
+                    cfg.setDeterministic(true);
+                    cfg.setSeed(seed);
+                    cfg.setTickRate(engine.getTickRate());
                     this.recordingService = new RecordingService(storage, cfg);
+                    this.recordingStopped = false;
                     String name = "battle_" + System.currentTimeMillis();
-                    this.recordingService.start(this, this.renderer, InputManager.getInstance(), name, "v1");
+                    this.recordingService.start(this, this.renderer, input, name, "v1");
                 }
 
             @Override
                 public void update(float deltaTime) {
+                    if (replay != null) {
+                        updateReplay();
+                        return;
+                    }
+                    step(deltaTime);
+                }
+
+                /**
+                 * 回放的一帧：处理控制键，按倍速推进若干步，或不限速地快进到跳转目标
+                 * 步长固定为录制时的 1 / tickRate；回放结束时恢复引擎原来的 tick 频率，倒回后重新切换
+                 */
+                private void updateReplay() {
+                    handleReplayControls();
+                    float dt = 1.0f / replay.getHeader().tickRate;
+                    if (replaySeekTick >= 0) {
+                        int n = 0;
+                        while (replayTick < replaySeekTick && !replay.isFinished(replayTick) && n < REPLAY_FAST_FORWARD_TICKS) {
+                            step(dt);
+                            n++;
+                        }
+                        if (replayTick >= replaySeekTick || replay.isFinished(replayTick)) {
+                            replaySeekTick = -1L;
+                        }
+                    } else if (!replayPaused) {
+                        replayBudget += replaySpeed;
+                        while (replayBudget >= 1f) {
+                            replayBudget -= 1f;
+                            step(dt);
+                        }
+                    }
+                    float rate = replay.isFinished(replayTick) ? savedTickRate : replay.getHeader().tickRate;
+                    if (engine.getTickRate() != rate) {
+                        engine.setTickRate(rate);
+                    }
+                }
+
+                private void handleReplayControls() {
+                    // 控制键读真实键盘，模拟用的 input 只接收录制的按键
+                    InputManager keys = InputManager.getInstance();
+                    int scrub = Math.round(REPLAY_SCRUB_SECONDS * replay.getHeader().tickRate);
+                    if (keys.isKeyJustPressed(32)) { // Space
+                        replayPaused = !replayPaused;
+                    }
+                    if (keys.isKeyJustPressed(37)) { // Left
+                        seekReplay(replayTarget() - scrub);
+                    }
+                    if (keys.isKeyJustPressed(39)) { // Right
+                        seekReplay(replayTarget() + scrub);
+                    }
+                    if (keys.isKeyJustPressed(38)) { // Up
+                        replaySpeed = Math.min(REPLAY_MAX_SPEED, replaySpeed * 2f);
+                    }
+                    if (keys.isKeyJustPressed(40)) { // Down
+                        replaySpeed = Math.max(REPLAY_MIN_SPEED, replaySpeed / 2f);
+                    }
+                }
+
+                private long replayTarget() {
+                    return replaySeekTick >= 0 ? replaySeekTick : replayTick;
+                }
+
+                /**
+                 * 跳到第 tick 步：向前时从当前状态快进，向后时从第 0 步重新模拟再快进，途中照常比较校验点
+                 */
+                private void seekReplay(long tick) {
+                    long target = Math.max(0L, Math.min(tick, replay.getLastTick() + 1));
+                    if (target < replayTick) {
+                        restartReplay();
+                    }
+                    replaySeekTick = target;
+                    replayBudget = 0f;
+                }
+
+                /**
+                 * 回到录制开始时的状态：同样的种子与初始对象，新的输入状态
+                 */
+                private void restartReplay() {
+                    clear();
+                    replay.rewind();
+                    this.input = new InputManager();
+                    this.random = new Random(seed);
+                    this.gameLogic.release();
+                    this.gameLogic = new GameLogic(this, input);
+                    this.time = 0;
+                    this.currentColor = BulletColor.RED;
+                    this.replayTick = 0;
+                    this.replayDesync = false;
+                    createPlayer();
+                    createEnemies();
+                    createDecorations();
+                    createHUD();
+                }
+
+                /**
+                 * 推进一个模拟步
+                 */
+                private void step(float deltaTime) {
+                    if (replay != null) {
+                        if (replay.isFinished(replayTick)) {
+                            return;
+                        }
+                        // 录制时这一步的按键在上一步结束时生效，这里先喂给输入再更新
+                        replay.applyTick(replayTick, input);
+                    }
                     super.update(deltaTime);
 
                     if (this.recordingService != null) {
                         this.recordingService.onFrame(deltaTime);
                     }
+                    if (replay != null) {
+                        if (!replay.verify(replayTick, StateChecksum.of(this)) && !replayDesync) {
+                            replayDesync = true;
+                            System.err.println("回放在第 " + replayTick + " 步与录制不一致");
+                        }
+                        replayTick++;
+                    }
 
                     gameLogic.togglePause();
                     if (gameLogic.getGameState() == com.gameengine.core.GameLogic.GameState.PAUSE) {
                         return;
                     }
                     if (gameLogic.getGameState() == com.gameengine.core.GameLogic.GameState.GAME_OVER) {
-                        if (gameLogic.isRestartKeyPressed()) {
+                        // 一段录制只包含一局，重新模拟时不重开
+                        if (replay == null && gameLogic.isRestartKeyPressed()) {
                             resetGameObjects();
                         }
                         return;
                     }
 
                 time += deltaTime;
+                gameLogic.advanceTime(deltaTime);
 
                 int colorIdx = gameLogic.getColorSwitchIndexJustPressed();
                 if (colorIdx != 0) {
@@ -464,13 +643,10 @@ public class GameExample {
                     time = 0;
                 }
 
-                for (GameObject obj : this.getGameObjects()) {
-                    if (obj.getName().equals("Enemy")) {
-                        gameLogic.updateEnemyAI(obj, deltaTime);
-                    }
+                for (GameObject obj : findGameObjectsByTag(Tags.ENEMY)) {
+                    gameLogic.updateEnemyAI(obj, deltaTime);
                 }
-
-                gameLogic.handleEnemyAvoidance(deltaTime);
+                gameLogic.resolveMeleeAndAvoidance(deltaTime);
 
                     if (player != null && player.isActive()) {
                         boolean firePurple = (currentColor == BulletColor.PURPLE) && gameLogic.isShootPressedOnce();
@@ -509,6 +685,20 @@ public class GameExample {
             public void render() {
                 renderer.drawRect(0, 0, renderer.getWidth(), renderer.getHeight(), 0.1f, 0.1f, 0.2f, 1.0f);
                 super.render();
+                if (replay != null) {
+                    String status = replayDesync ? "REPLAY  desync at tick " + replay.getDesyncTick()
+                            : "REPLAY  tick " + replayTick + " / " + replay.getLastTick();
+                    status += String.format("  x%.2f", replaySpeed) + (replayPaused ? "  [PAUSED]" : "")
+                            + (replaySeekTick >= 0 ? "  [SEEKING]" : "");
+                    renderer.drawText(10, renderer.getHeight() - 30, status, 18,
+                            1f, replayDesync ? 0.4f : 1f, replayDesync ? 0.4f : 1f, 0.9f);
+                    renderer.drawText(10, renderer.getHeight() - 52, "Space: pause  Left/Right: -/+5s  Up/Down: speed", 14,
+                            0.8f, 0.8f, 0.8f, 0.8f);
+                    if (replay.isFinished(replayTick)) {
+                        renderer.drawTextCentered("Replay End", 32, 1, 1, 1, 1);
+                    }
+                    return;
+                }
                 if (gameLogic.getGameState() == com.gameengine.core.GameLogic.GameState.GAME_OVER) {
                     renderer.drawTextCentered("Game Over", 32, 1, 0, 0, 1);
                     renderer.drawTextCenteredOffset("Press Space to Restart", 28, 48f, 1, 1, 1, 1);
@@ -526,6 +716,8 @@ public class GameExample {
 
                 player.addComponent(new HealthComponent(10000));
                 player.addComponent(new AttackComponent(50, 100));
+                player.addComponent(new ColliderComponent(22f, 0f, 0f,
+                        ColliderComponent.LAYER_PLAYER, ColliderComponent.LAYER_ENEMY));
 
                 player.addComponent(new PlayerRenderComponent());
                 addGameObject(player);
@@ -537,7 +729,20 @@ public class GameExample {
                 }
             }
 
-            private void createEnemy() {
+            private void createPools() {
+                if (getPool("Enemy") == null) {
+                    GameObjectPool enemyPool = new GameObjectPool("Enemy", this::newEnemy, 64);
+                    enemyPool.prewarm(20);
+                    addPool(enemyPool);
+                }
+                if (getPool("Bullet") == null) {
+                    GameObjectPool bulletPool = new GameObjectPool("Bullet", this::newBullet, 64);
+                    bulletPool.prewarm(16);
+                    addPool(bulletPool);
+                }
+            }
+
+            private GameObject newEnemy() {
                 GameObject enemy = new GameObject("Enemy") {
                     @Override
                     public void update(float deltaTime) {
@@ -551,11 +756,7 @@ public class GameExample {
                     }
                 };
 
-                Vector2 position = new Vector2(
-                        random.nextFloat() * renderer.getWidth(),
-                        random.nextFloat() * renderer.getHeight());
-
-                TransformComponent transform = enemy.addComponent(new TransformComponent(position));
+                enemy.addComponent(new TransformComponent(new Vector2()));
 
                 RenderComponent render = enemy.addComponent(new RenderComponent(
                         RenderComponent.RenderType.RECTANGLE,
@@ -567,15 +768,25 @@ public class GameExample {
                 render.setRenderer(renderer);
 
                 PhysicsComponent physics = enemy.addComponent(new PhysicsComponent(0.5f));
-                physics.setVelocity(new Vector2(
-                        (random.nextFloat() - 0.5f) * 100,
-                        (random.nextFloat() - 0.5f) * 100));
                 physics.setFriction(0.98f);
 
                 enemy.addComponent(new HealthComponent(8000));
                 enemy.addComponent(new AttackComponent(10, 50));
+                enemy.addComponent(new ColliderComponent(20f, 20f, 20f,
+                        ColliderComponent.LAYER_ENEMY, ColliderComponent.LAYER_PLAYER | ColliderComponent.LAYER_BULLET));
+                return enemy;
+            }
+
+            private void createEnemy() {
+                GameObject enemy = spawn("Enemy");
+
+                enemy.getComponent(TransformComponent.class).setPosition(
+                        random.nextFloat() * renderer.getWidth(),
+                        random.nextFloat() * renderer.getHeight());
 
-                addGameObject(enemy);
+                enemy.getComponent(PhysicsComponent.class).setVelocity(
+                        (random.nextFloat() - 0.5f) * 100,
+                        (random.nextFloat() - 0.5f) * 100);
             }
 
             private void tryShoot() {
@@ -598,11 +809,11 @@ public class GameExample {
                 final int finalDmg = (mode == BulletColor.RED ? (int) (1000 * 1.8f) : 1000);
                 final boolean invisible = (mode == BulletColor.INDIGO);
                 final boolean chain = mode == BulletColor.YELLOW;
-                GameObject bullet = new GameObject("Bullet");
-                bullet.addComponent(new TransformComponent(start));
-                RenderComponent renderComponent = bullet.addComponent(new RenderComponent(RenderComponent.RenderType.CIRCLE,
-                        new Vector2(6, 6), new RenderComponent.Color(0.6f, 0.8f, 1.0f, 1.0f)));
-                renderComponent.setRenderer(renderer);
+                GameObject bullet = spawn("Bullet");
+                bullet.getComponent(TransformComponent.class).setPosition(start.x, start.y);
+                RenderComponent renderComponent = bullet.getComponent(RenderComponent.class);
+                renderComponent.setColor(0.6f, 0.8f, 1.0f, 1.0f);
+                renderComponent.setVisible(true);
                 if (mode != BulletColor.INDIGO) {
                     switch (mode) {
                         case RED:
@@ -630,8 +841,7 @@ public class GameExample {
                 }
                 if (mode == BulletColor.INDIGO)
                     renderComponent.setVisible(false);
-                PhysicsComponent physicsComponent = bullet.addComponent(new PhysicsComponent(0.1f));
-                physicsComponent.setFriction(1.0f);
+                PhysicsComponent physicsComponent = bullet.getComponent(PhysicsComponent.class);
                 TransformComponent targetTransform = target.getComponent(TransformComponent.class);
                 Vector2 targetPos = targetTransform != null ? targetTransform.getPosition() : new Vector2(0, 0);
                 RenderComponent targetRender = target.getComponent(RenderComponent.class);
@@ -639,7 +849,7 @@ public class GameExample {
                 Vector2 targetCenter = targetPos.add(new Vector2(targetSize.x * 0.5f, targetSize.y * 0.5f));
                 Vector2 dir = targetCenter.subtract(start).normalize();
                 physicsComponent.setVelocity(dir.multiply(baseSpeed * speedMul));
-                bullet.addComponent(new BulletComponent(
+                bullet.getComponent(BulletComponent.class).configure(
                         target,
                         baseSpeed * speedMul,
                         finalDmg,
@@ -653,8 +863,21 @@ public class GameExample {
                         0.3f,
                         mode == BulletColor.PURPLE,
                         3f,
-                        true));
-                addGameObject(bullet);
+                        true);
+            }
+
+            private GameObject newBullet() {
+                GameObject bullet = new GameObject("Bullet");
+                bullet.addComponent(new TransformComponent(new Vector2()));
+                RenderComponent renderComponent = bullet.addComponent(new RenderComponent(RenderComponent.RenderType.CIRCLE,
+                        new Vector2(6, 6), new RenderComponent.Color(0.6f, 0.8f, 1.0f, 1.0f)));
+                renderComponent.setRenderer(renderer);
+                PhysicsComponent physicsComponent = bullet.addComponent(new PhysicsComponent(0.1f));
+                physicsComponent.setFriction(1.0f);
+                bullet.addComponent(new BulletComponent());
+                bullet.addComponent(new ColliderComponent(3f, 3f, 3f,
+                        ColliderComponent.LAYER_BULLET, ColliderComponent.LAYER_ENEMY));
+                return bullet;
             }
 
             private void createDecorations() {
@@ -0,0 +1,80 @@
+package com.gameengine.example;
+
+import com.gameengine.core.GameEngine;
+import com.gameengine.core.Tags;
+import com.gameengine.input.InputManager;
+import com.gameengine.recording.FileRecordingStorage;
+import com.gameengine.scene.Scene;
+
+import java.io.File;
+import java.nio.file.Files;
+
+/**
+ * 无窗口模拟基准：在 headless 引擎上不限速推进对战场景，统计每步耗时
+ * 用法：HeadlessBenchmark [步数，默认 3600] [预热步数，默认 600]
+ * 场景与正常对战相同，包含录制写盘（写入临时目录，结束后删除）；
+ * 全程按住空格射击，移动键每 MOVE_PERIOD 步换一个方向，让射击、子弹命中与敌人追击都参与计时
+ */
+public class HeadlessBenchmark {
+    private static final int MOVE_PERIOD = 120;
+    // D, S, A, W：绕圈移动
+    private static final int[] MOVE_KEYS = { 68, 83, 65, 87 };
+
+    public static void main(String[] args) throws Exception {
+        int ticks = args.length > 0 ? Integer.parseInt(args[0]) : 3600;
+        int warmup = args.length > 1 ? Integer.parseInt(args[1]) : 600;
+
+        File recordings = Files.createTempDirectory("bench-recordings").toFile();
+        GameEngine engine = GameEngine.headless(1600, 900);
+        Scene scene = GameExample.createBattleScene(engine, new FileRecordingStorage(recordings));
+        engine.setScene(scene);
+
+        InputManager input = InputManager.getInstance();
+        input.onKeyPressed(32); // Space
+        int[] tick = new int[1];
+        runScripted(engine, input, warmup, tick);
+
+        long start = System.nanoTime();
+        runScripted(engine, input, ticks, tick);
+        long elapsed = System.nanoTime() - start;
+
+        int enemies = scene.findGameObjectsByTag(Tags.ENEMY).size();
+        double seconds = elapsed / 1_000_000_000.0;
+        System.out.println(String.format("ticks=%d time=%.3fs  %.1f ticks/s  %.3f ms/tick  (sim %.1fs at %.0f Hz, enemies=%d)",
+                ticks, seconds, ticks / seconds, elapsed / 1_000_000.0 / ticks,
+                ticks / engine.getTickRate(), engine.getTickRate(), enemies));
+        System.out.println("Pools: " + scene.getPools());
+
+        engine.stop();
+        deleteRecursively(recordings);
+    }
+
+    /**
+     * 推进 n 步，每到 MOVE_PERIOD 的整数倍换移动键；tick[0] 为累计步数
+     */
+    private static void runScripted(GameEngine engine, InputManager input, int n, int[] tick) {
+        int end = tick[0] + n;
+        while (tick[0] < end) {
+            int phase = tick[0] / MOVE_PERIOD;
+            if (tick[0] % MOVE_PERIOD == 0) {
+                if (phase > 0) {
+                    input.onKeyReleased(MOVE_KEYS[(phase - 1) % MOVE_KEYS.length]);
+                }
+                input.onKeyPressed(MOVE_KEYS[phase % MOVE_KEYS.length]);
+            }
+            int steps = Math.min(end, (phase + 1) * MOVE_PERIOD) - tick[0];
+            engine.runTicks(steps);
+            tick[0] += steps;
+        }
+    }
+
+    private static void deleteRecursively(File f) {
+        File[] children = f.listFiles();
+        if (children != null) {
+            for (File c : children) {
+                deleteRecursively(c);
+            }
+        }
+        f.delete();
+    }
+}
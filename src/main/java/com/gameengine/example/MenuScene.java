@@ -5,6 +5,7 @@ import com.gameengine.graphics.Renderer;
 import com.gameengine.input.InputManager;
 import com.gameengine.scene.Scene;
 import com.gameengine.recording.FileRecordingStorage;
+import com.gameengine.recording.InputReplay;
 import com.gameengine.recording.RecordingStorage;
 import com.gameengine.recording.ReplayScene;
 
@@ -64,7 +65,10 @@ public class MenuScene extends Scene {
             if (input.isKeyJustPressed(10)) { // Enter
                 if (!recordings.isEmpty()) {
                     String name = recordings.get(selected);
-                    ReplayScene rs = new ReplayScene(name, storage);
+                    // 确定性录制重新模拟，其他录制按关键帧插值回放
+                    InputReplay replay = loadInputReplay(name);
+                    Scene rs = replay != null ? GameExample.createReplayBattleScene(engine, replay)
+                            : new ReplayScene(name, storage);
                     rs.setRenderer(engine.getRenderer());
                     engine.setScene(rs);
                     return;
@@ -105,6 +109,14 @@ public class MenuScene extends Scene {
         }
     }
 
+    private InputReplay loadInputReplay(String name) {
+        try {
+            return InputReplay.load(storage, name);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
     private void refreshRecordings() {
         try {
             this.recordings = storage.listRecordings();
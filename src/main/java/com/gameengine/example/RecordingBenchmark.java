@@ -0,0 +1,151 @@
+package com.gameengine.example;
+
+import com.gameengine.components.RenderComponent;
+import com.gameengine.components.TransformComponent;
+import com.gameengine.core.GameObject;
+import com.gameengine.math.Vector2;
+import com.gameengine.recording.AsyncRecordingWriter;
+import com.gameengine.recording.BinaryRecordingCodec;
+import com.gameengine.recording.FileRecordingStorage;
+import com.gameengine.recording.JsonlRecordingCodec;
+import com.gameengine.recording.Keyframe;
+import com.gameengine.recording.RecordingCodec;
+import com.gameengine.recording.RecordingConfig;
+import com.gameengine.recording.RecordingHeader;
+import com.gameengine.recording.RecordingService;
+import com.gameengine.scene.Scene;
+
+import java.io.File;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 录制编码基准：对每种 编码格式 × 压缩方式 录制同一段合成场景，比较文件大小、每个关键帧的写线程 CPU 时间
+ * 与回放时流式解码每个关键帧的耗时
+ * 用法：RecordingBenchmark [关键帧数，默认 3000] [输出目录，默认 build/recording-bench]
+ * 场景为 60 个静止装饰物与 40 个持续移动、不断替换的敌人，固定随机种子，每次运行数据相同
+ */
+public class RecordingBenchmark {
+    private static final int DECORATIONS = 60;
+    private static final int ENEMIES = 40;
+
+    public static void main(String[] args) throws Exception {
+        int frames = args.length > 0 ? Integer.parseInt(args[0]) : 3000;
+        File dir = new File(args.length > 1 ? args[1] : "build/recording-bench");
+
+        RecordingCodec[] codecs = {new BinaryRecordingCodec(), new JsonlRecordingCodec()};
+        System.out.println(String.format("%-6s %-10s %12s %12s %14s %14s %14s",
+                "codec", "compress", "bytes", "bytes/frame", "writer us/kf", "game us/kf", "decode us/kf"));
+        for (RecordingCodec codec : codecs) {
+            for (FileRecordingStorage.Compression compression : FileRecordingStorage.Compression.values()) {
+                run(codec, compression, frames, dir);
+            }
+        }
+    }
+
+    private static void run(RecordingCodec codec, FileRecordingStorage.Compression compression,
+                            int frames, File dir) throws Exception {
+        Random random = new Random(42);
+        Scene scene = new Scene("RecordingBenchmark");
+        for (int i = 0; i < DECORATIONS; i++) {
+            scene.addGameObject(create("Decoration", random));
+        }
+        List<GameObject> enemies = new ArrayList<>();
+        for (int i = 0; i < ENEMIES; i++) {
+            GameObject enemy = create("Enemy", random);
+            enemies.add(enemy);
+            scene.addGameObject(enemy);
+        }
+        scene.update(0f);
+
+        FileRecordingStorage storage = new FileRecordingStorage(dir, compression);
+        RecordingConfig config = new RecordingConfig();
+        config.setCodec(codec);
+        config.setWarmupNs(0L);
+        config.setIntervalNs(0L);
+        // 测的是编码开销，不允许丢帧
+        config.setOverflowPolicy(RecordingConfig.OverflowPolicy.BLOCK);
+        RecordingService service = new RecordingService(storage, config);
+        String name = "bench_" + codec.getExtension() + "_" + compression.name().toLowerCase();
+        service.start(scene, null, null, name, "bench");
+        AsyncRecordingWriter writer = service.getWriter();
+
+        Vector2 step = new Vector2();
+        long gameNs = 0;
+        for (int f = 0; f < frames; f++) {
+            for (GameObject enemy : enemies) {
+                TransformComponent tc = enemy.getComponent(TransformComponent.class);
+                step.x = (random.nextFloat() - 0.5f) * 6f;
+                step.y = (random.nextFloat() - 0.5f) * 6f;
+                tc.translate(step);
+            }
+            if (f % 10 == 0) {
+                scene.removeGameObject(enemies.remove(0));
+                GameObject enemy = create("Enemy", random);
+                enemies.add(enemy);
+                scene.addGameObject(enemy);
+            }
+            scene.update(0f);
+            long start = System.nanoTime();
+            service.onFrame(0f);
+            gameNs += System.nanoTime() - start;
+        }
+        service.stop();
+
+        File file = findFile(dir, name);
+        long bytes = file != null ? file.length() : 0;
+        long written = Math.max(1, writer.getWrittenCount());
+        double decodeNs = decode(storage, file != null ? file.getName() : name);
+        System.out.println(String.format("%-6s %-10s %12d %12.1f %14.2f %14.2f %14.2f",
+                codec.getExtension(), compression.name(), bytes, bytes / (double) frames,
+                writer.getWriteCpuNs() / 1000.0 / written, gameNs / 1000.0 / frames, decodeNs / 1000.0));
+    }
+
+    /**
+     * 流式解码整个文件（含解压），取 5 次中最快的一次（前几次用于 JIT 预热），返回每个关键帧的纳秒数
+     */
+    private static double decode(FileRecordingStorage storage, String name) throws Exception {
+        long best = Long.MAX_VALUE;
+        int[] keyframes = new int[1];
+        RecordingCodec.Listener listener = new RecordingCodec.Listener() {
+            @Override
+            public void onHeader(RecordingHeader header) {
+            }
+
+            @Override
+            public void onInput(long t, int key) {
+            }
+
+            @Override
+            public void onKeyframe(Keyframe frame) {
+                keyframes[0]++;
+            }
+        };
+        for (int round = 0; round < 5; round++) {
+            keyframes[0] = 0;
+            long start = System.nanoTime();
+            InputStream in = storage.openForRead(name);
+            try (RecordingCodec.Cursor cursor = RecordingCodec.detect(in).openCursor(in)) {
+                while (cursor.next(listener)) {
+                }
+            }
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best / (double) Math.max(1, keyframes[0]);
+    }
+
+    private static GameObject create(String name, Random random) {
+        GameObject obj = new GameObject(name);
+        obj.addComponent(new TransformComponent(new Vector2(random.nextFloat() * 1600, random.nextFloat() * 900)));
+        obj.addComponent(new RenderComponent(RenderComponent.RenderType.RECTANGLE, new Vector2(20, 20),
+                new RenderComponent.Color(1f, 0.5f, 0f, 1f)));
+        return obj;
+    }
+
+    private static File findFile(File dir, String name) {
+        File[] files = dir.listFiles((d, n) -> n.startsWith(name + ".") && !n.endsWith(".idx"));
+        return files != null && files.length > 0 ? files[0] : null;
+    }
+}
@@ -0,0 +1,134 @@
+package com.gameengine.graphics;
+
+/**
+ * 粒子系统，固定容量的粒子池，数据按结构数组存放
+ *
+ * 粒子只有位置、大小、寿命和颜色，不是场景对象，不参与组件查找与场景增删。
+ * 每个粒子渲染为一个圆，直径在寿命内从起始值线性过渡到结束值；整个系统一次批量提交给渲染器。
+ * 池满时新的粒子被丢弃。
+ */
+public class ParticleSystem {
+    private final int capacity;
+    private int count;
+    private int dropped;
+    private final float[] x;
+    private final float[] y;
+    private final float[] life;
+    private final float[] lifetime;
+    private final float[] startSize;
+    private final float[] endSize;
+    private final float[] r;
+    private final float[] g;
+    private final float[] b;
+    private final float[] a;
+    private final float[] radius;
+
+    public ParticleSystem(int capacity) {
+        this.capacity = capacity;
+        this.x = new float[capacity];
+        this.y = new float[capacity];
+        this.life = new float[capacity];
+        this.lifetime = new float[capacity];
+        this.startSize = new float[capacity];
+        this.endSize = new float[capacity];
+        this.r = new float[capacity];
+        this.g = new float[capacity];
+        this.b = new float[capacity];
+        this.a = new float[capacity];
+        this.radius = new float[capacity];
+    }
+
+    /**
+     * 发射一个粒子
+     * @param cx 中心 x
+     * @param cy 中心 y
+     * @param sizeFrom 起始直径
+     * @param sizeTo 结束直径
+     * @param duration 寿命（秒）
+     * @return 池已满时返回 false
+     */
+    public boolean emit(float cx, float cy, float sizeFrom, float sizeTo, float duration,
+                        float cr, float cg, float cb, float ca) {
+        if (count >= capacity) {
+            dropped++;
+            return false;
+        }
+        int i = count++;
+        x[i] = cx;
+        y[i] = cy;
+        life[i] = 0f;
+        lifetime[i] = duration;
+        startSize[i] = sizeFrom;
+        endSize[i] = sizeTo;
+        r[i] = cr;
+        g[i] = cg;
+        b[i] = cb;
+        a[i] = ca;
+        return true;
+    }
+
+    /**
+     * 推进寿命，移除过期粒子（用末尾粒子填补空位）
+     */
+    public void update(float deltaTime) {
+        int i = 0;
+        while (i < count) {
+            life[i] += deltaTime;
+            if (life[i] > lifetime[i]) {
+                moveLast(i);
+            } else {
+                i++;
+            }
+        }
+    }
+
+    private void moveLast(int i) {
+        int last = --count;
+        if (i == last) {
+            return;
+        }
+        x[i] = x[last];
+        y[i] = y[last];
+        life[i] = life[last];
+        lifetime[i] = lifetime[last];
+        startSize[i] = startSize[last];
+        endSize[i] = endSize[last];
+        r[i] = r[last];
+        g[i] = g[last];
+        b[i] = b[last];
+        a[i] = a[last];
+    }
+
+    /**
+     * 批量渲染所有存活粒子
+     */
+    public void render(Renderer renderer) {
+        if (renderer == null || count == 0) {
+            return;
+        }
+        for (int i = 0; i < count; i++) {
+            float t = lifetime[i] > 0f ? Math.min(1f, life[i] / lifetime[i]) : 1f;
+            radius[i] = (startSize[i] + (endSize[i] - startSize[i]) * t) * 0.5f;
+        }
+        renderer.drawCircleBatch(x, y, radius, r, g, b, a, count);
+    }
+
+    public void clear() {
+        count = 0;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * 因池满被丢弃的粒子总数
+     */
+    public int getDroppedCount() {
+        return dropped;
+    }
+}
@@ -12,42 +12,64 @@ import java.awt.event.MouseEvent;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * 渲染器
+ *
+ * draw* 调用只在游戏循环线程中记录绘制命令，endFrame 把整帧命令发布给 Swing 事件线程绘制。
+ * 两个线程通过三缓冲交换，互不加锁：绘制慢时游戏循环不会等待，只是中间帧被跳过。
+ * 无窗口（headless）模式下不创建 JFrame，所有绘制调用直接返回，只保留世界尺寸。
  */
-public class Renderer extends JFrame {
+public class Renderer {
     private int width;
     private int height;
     private String title;
+    private final boolean headless;
+    private JFrame frame;
     private GamePanel gamePanel;
     private InputManager inputManager;
 
     public Renderer(int width, int height, String title) {
+        this(width, height, title, false);
+    }
+
+    private Renderer(int width, int height, String title, boolean headless) {
         this.width = width;
         this.height = height;
         this.title = title;
+        this.headless = headless;
         this.inputManager = InputManager.getInstance();
 
-        initialize();
+        if (!headless) {
+            initialize();
+        }
+    }
+
+    /**
+     * 创建无窗口渲染器，不依赖显示设备
+     */
+    public static Renderer headless(int width, int height) {
+        return new Renderer(width, height, "headless", true);
     }
 
     private void initialize() {
-        setTitle(title);
-        setSize(width, height);
-        setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
-        setLocationRelativeTo(null);
-        setResizable(false);
+        frame = new JFrame();
+        frame.setTitle(title);
+        frame.setSize(width, height);
+        frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+        frame.setLocationRelativeTo(null);
+        frame.setResizable(false);
 
         gamePanel = new GamePanel();
-        add(gamePanel);
+        frame.add(gamePanel);
 
         setupInput();
 
-        setVisible(true);
+        frame.setVisible(true);
         
         // 确保窗口获得焦点
-        requestFocusInWindow();
+        frame.requestFocusInWindow();
         gamePanel.requestFocusInWindow();
     }
 
@@ -64,11 +86,11 @@ public class Renderer extends JFrame {
                 inputManager.onKeyReleased(e.getKeyCode());
             }
         };
-        addKeyListener(ka);
+        frame.addKeyListener(ka);
         gamePanel.addKeyListener(ka);
 
         // 鼠标输入
-        addMouseListener(new MouseAdapter() {
+        frame.addMouseListener(new MouseAdapter() {
             @Override
             public void mousePressed(MouseEvent e) {
                 int button = e.getButton() - 1;
@@ -82,15 +104,15 @@ public class Renderer extends JFrame {
             }
         });
 
-        addMouseMotionListener(new MouseAdapter() {
+        frame.addMouseMotionListener(new MouseAdapter() {
             @Override
             public void mouseMoved(MouseEvent e) {
                 inputManager.onMouseMoved(e.getX(), e.getY());
             }
         });
 
-        setFocusable(true);
-        requestFocus();
+        frame.setFocusable(true);
+        frame.requestFocus();
         gamePanel.setFocusable(true);
         gamePanel.requestFocusInWindow();
     }
@@ -99,13 +121,20 @@ public class Renderer extends JFrame {
      * 开始渲染帧
      */
     public void beginFrame() {
+        if (headless) {
+            return;
+        }
         gamePanel.clear();
     }
 
     /**
-     * 结束渲染帧
+     * 结束渲染帧，发布本帧绘制命令并请求重绘
      */
     public void endFrame() {
+        if (headless) {
+            return;
+        }
+        gamePanel.publish();
         gamePanel.repaint();
     }
 
@@ -113,6 +142,9 @@ public class Renderer extends JFrame {
      * 绘制矩形
      */
     public void drawRect(float x, float y, float width, float height, float r, float g, float b, float a) {
+        if (headless) {
+            return;
+        }
         gamePanel.addDrawable(new RectDrawable(x, y, width, height, r, g, b, a));
     }
 
@@ -120,13 +152,31 @@ public class Renderer extends JFrame {
      * 绘制圆形
      */
     public void drawCircle(float x, float y, float radius, int segments, float r, float g, float b, float a) {
+        if (headless) {
+            return;
+        }
         gamePanel.addDrawable(new CircleDrawable(x, y, radius, r, g, b, a));
     }
 
+    /**
+     * 批量绘制圆形，数据在调用时复制，调用方可以继续复用数组
+     */
+    public void drawCircleBatch(float[] x, float[] y, float[] radius, float[] r, float[] g, float[] b, float[] a, int count) {
+        if (headless) {
+            return;
+        }
+        if (count > 0) {
+            gamePanel.addDrawable(new CircleBatchDrawable(x, y, radius, r, g, b, a, count));
+        }
+    }
+
     /**
      * 绘制线条
      */
     public void drawLine(float x1, float y1, float x2, float y2, float r, float g, float b, float a) {
+        if (headless) {
+            return;
+        }
         gamePanel.addDrawable(new LineDrawable(x1, y1, x2, y2, r, g, b, a));
     }
 
@@ -134,18 +184,30 @@ public class Renderer extends JFrame {
      * 绘制文本
      */
     public void drawText(float x, float y, String text, int fontSize, float r, float g, float b, float a) {
+        if (headless) {
+            return;
+        }
         gamePanel.addDrawable(new TextDrawable(x, y, text, fontSize, r, g, b, a, 1.0f, 5.0f, 5.0f));
     }
 
     public void drawTextCentered(String text, int fontSize, float r, float g, float b, float a) {
+        if (headless) {
+            return;
+        }
         gamePanel.addDrawable(new TextCenterDrawable(width, height, text, fontSize, r, g, b, a, 0f));
     }
 
     public void drawTextCenteredOffset(String text, int fontSize, float offsetY, float r, float g, float b, float a) {
+        if (headless) {
+            return;
+        }
         gamePanel.addDrawable(new TextCenterDrawable(width, height, text, fontSize, r, g, b, a, offsetY));
     }
 
     public void drawImage(float x, float y, BufferedImage image, float width, float height) {
+        if (headless) {
+            return;
+        }
         if (image != null) {
             gamePanel.addDrawable(new ImageDrawable(x, y, image, width, height));
         }
@@ -155,7 +217,7 @@ public class Renderer extends JFrame {
      * 检查窗口是否应该关闭
      */
     public boolean shouldClose() {
-        return !isVisible();
+        return !headless && !frame.isVisible();
     }
 
     /**
@@ -166,10 +228,17 @@ public class Renderer extends JFrame {
     }
 
     /**
-     * 清理资源
+     * 清理资源，窗口在事件线程中关闭
      */
     public void cleanup() {
-        dispose();
+        if (frame == null) {
+            return;
+        }
+        if (SwingUtilities.isEventDispatchThread()) {
+            frame.dispose();
+        } else {
+            SwingUtilities.invokeLater(frame::dispose);
+        }
     }
 
     // Getters
@@ -185,11 +254,27 @@ public class Renderer extends JFrame {
         return title;
     }
 
+    public boolean isHeadless() {
+        return headless;
+    }
+
     /**
      * 游戏面板类
+     * 三个绘制列表轮换：游戏循环写 back，事件线程画 front，shared 存放最近发布的一帧。
+     * shared 的低位是列表下标，FRESH 位表示该帧尚未被事件线程取走。
      */
     private class GamePanel extends JPanel {
-        private List<Drawable> drawables = new ArrayList<>();
+        private static final int INDEX_MASK = 0x3;
+        private static final int FRESH = 0x4;
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        private final List<Drawable>[] buffers = new List[] {
+                new ArrayList<Drawable>(), new ArrayList<Drawable>(), new ArrayList<Drawable>() };
+        private final AtomicInteger shared = new AtomicInteger(1);
+        // 仅游戏循环线程访问
+        private int back = 0;
+        // 仅事件线程访问
+        private int front = 2;
 
         public GamePanel() {
             setPreferredSize(new Dimension(width, height));
@@ -197,20 +282,30 @@ public class Renderer extends JFrame {
         }
 
         public void clear() {
-            drawables.clear();
+            buffers[back].clear();
         }
 
         public void addDrawable(Drawable drawable) {
-            drawables.add(drawable);
+            buffers[back].add(drawable);
+        }
+
+        /**
+         * 发布 back，换回上一次发布（或事件线程已用完）的列表继续写
+         */
+        public void publish() {
+            back = shared.getAndSet(back | FRESH) & INDEX_MASK;
         }
 
         @Override
         protected void paintComponent(Graphics g) {
             super.paintComponent(g);
+            if ((shared.get() & FRESH) != 0) {
+                front = shared.getAndSet(front) & INDEX_MASK;
+            }
             Graphics2D g2d = (Graphics2D) g;
             g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
 
-            for (Drawable drawable : drawables) {
+            for (Drawable drawable : buffers[front]) {
                 drawable.draw(g2d);
             }
         }
@@ -266,6 +361,41 @@ public class Renderer extends JFrame {
         }
     }
 
+    /**
+     * 圆形批量绘制类，颜色与上一个相同时不重复设置
+     */
+    private static class CircleBatchDrawable implements Drawable {
+        private final float[] x, y, radius, r, g, b, a;
+        private final int count;
+
+        public CircleBatchDrawable(float[] x, float[] y, float[] radius, float[] r, float[] g, float[] b, float[] a, int count) {
+            this.x = java.util.Arrays.copyOf(x, count);
+            this.y = java.util.Arrays.copyOf(y, count);
+            this.radius = java.util.Arrays.copyOf(radius, count);
+            this.r = java.util.Arrays.copyOf(r, count);
+            this.g = java.util.Arrays.copyOf(g, count);
+            this.b = java.util.Arrays.copyOf(b, count);
+            this.a = java.util.Arrays.copyOf(a, count);
+            this.count = count;
+        }
+
+        @Override
+        public void draw(Graphics2D g2d) {
+            float lr = -1f, lg = -1f, lb = -1f, la = -1f;
+            for (int i = 0; i < count; i++) {
+                if (r[i] != lr || g[i] != lg || b[i] != lb || a[i] != la) {
+                    lr = r[i];
+                    lg = g[i];
+                    lb = b[i];
+                    la = a[i];
+                    g2d.setColor(new Color(lr, lg, lb, la));
+                }
+                float rad = radius[i];
+                g2d.fillOval((int) (x[i] - rad), (int) (y[i] - rad), (int) (rad * 2), (int) (rad * 2));
+            }
+        }
+    }
+
     /**
      * 线条绘制类
      */
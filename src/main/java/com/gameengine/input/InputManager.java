@@ -1,15 +1,30 @@
 package com.gameengine.input;
 
 import com.gameengine.math.Vector2;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
 /**
  * 输入管理器，处理键盘和鼠标输入
+ * 事件在 Swing 事件线程写入，游戏循环线程读取，所有方法都加锁
+ *
+ * 按键事件先进入待处理队列，在每步结束的 update() 中按到达顺序生效，
+ * 一步之内读到的按键状态不变，给定每步的事件序列即可重现同样的输入（见 KeyEventListener）。
+ * getInstance() 是窗口输入；回放等场合可以 new 一个独立实例，自行调用 onKeyPressed/onKeyReleased 与 update。
  */
 public class InputManager {
+    /**
+     * 按键状态在 update() 中改变时回调（游戏循环线程）
+     */
+    public interface KeyEventListener {
+        void onKeyEvent(int keyCode, boolean down);
+    }
+
     private static InputManager instance;
     private Set<Integer> pressedKeys;
     private Set<Integer> justPressedKeys;
@@ -17,8 +32,12 @@ public class InputManager {
     private Vector2 mousePosition;
     private boolean[] mouseButtons;
     private boolean[] mouseButtonsJustPressed;
+    // 待生效的按键事件：keyCode << 1 | 按下
+    private int[] pendingKeys = new int[16];
+    private int pendingCount;
+    private final List<KeyEventListener> keyListeners = new ArrayList<>();
 
-    private InputManager() {
+    public InputManager() {
         pressedKeys = new HashSet<>();
         justPressedKeys = new HashSet<>();
         keyStates = new HashMap<>();
@@ -27,7 +46,7 @@ public class InputManager {
         mouseButtonsJustPressed = new boolean[3];
     }
 
-    public static InputManager getInstance() {
+    public static synchronized InputManager getInstance() {
         if (instance == null) {
             instance = new InputManager();
         }
@@ -35,38 +54,78 @@ public class InputManager {
     }
 
     /**
-     * 更新输入状态
+     * 更新输入状态：清除上一步的 JustPressed，然后让期间到达的按键事件生效
      */
-    public void update() {
+    public synchronized void update() {
         justPressedKeys.clear();
         for (int i = 0; i < mouseButtonsJustPressed.length; i++) {
             mouseButtonsJustPressed[i] = false;
         }
+        for (int i = 0; i < pendingCount; i++) {
+            int keyCode = pendingKeys[i] >> 1;
+            boolean down = (pendingKeys[i] & 1) != 0;
+            // 按住时的自动重复与未按下的松开不改变状态，不通知监听
+            boolean changed = down ? pressedKeys.add(keyCode) : pressedKeys.remove(keyCode);
+            keyStates.put(keyCode, down);
+            if (!changed) {
+                continue;
+            }
+            if (down) {
+                justPressedKeys.add(keyCode);
+            }
+            for (int l = 0; l < keyListeners.size(); l++) {
+                keyListeners.get(l).onKeyEvent(keyCode, down);
+            }
+        }
+        pendingCount = 0;
     }
 
     /**
-     * 处理键盘按下事件
+     * 处理键盘按下事件，下一次 update() 时生效
      */
-    public void onKeyPressed(int keyCode) {
-        if (!pressedKeys.contains(keyCode)) {
-            justPressedKeys.add(keyCode);
+    public synchronized void onKeyPressed(int keyCode) {
+        enqueueKey(keyCode << 1 | 1);
+    }
+
+    /**
+     * 处理键盘释放事件，下一次 update() 时生效
+     */
+    public synchronized void onKeyReleased(int keyCode) {
+        enqueueKey(keyCode << 1);
+    }
+
+    private void enqueueKey(int event) {
+        if (pendingCount == pendingKeys.length) {
+            pendingKeys = Arrays.copyOf(pendingKeys, pendingCount * 2);
         }
-        pressedKeys.add(keyCode);
-        keyStates.put(keyCode, true);
+        pendingKeys[pendingCount++] = event;
+    }
+
+    public synchronized void addKeyEventListener(KeyEventListener listener) {
+        keyListeners.add(listener);
+    }
+
+    public synchronized void removeKeyEventListener(KeyEventListener listener) {
+        keyListeners.remove(listener);
     }
 
     /**
-     * 处理键盘释放事件
+     * 当前按住的按键（已生效的），按键码升序
      */
-    public void onKeyReleased(int keyCode) {
-        pressedKeys.remove(keyCode);
-        keyStates.put(keyCode, false);
+    public synchronized int[] getPressedKeys() {
+        int[] keys = new int[pressedKeys.size()];
+        int i = 0;
+        for (Integer k : pressedKeys) {
+            keys[i++] = k;
+        }
+        Arrays.sort(keys);
+        return keys;
     }
 
     /**
      * 处理鼠标移动事件
      */
-    public void onMouseMoved(float x, float y) {
+    public synchronized void onMouseMoved(float x, float y) {
         mousePosition.x = x;
         mousePosition.y = y;
     }
@@ -74,7 +133,7 @@ public class InputManager {
     /**
      * 处理鼠标按下事件
      */
-    public void onMousePressed(int button) {
+    public synchronized void onMousePressed(int button) {
         if (button >= 0 && button < mouseButtons.length) {
             if (!mouseButtons[button]) {
                 mouseButtonsJustPressed[button] = true;
@@ -86,7 +145,7 @@ public class InputManager {
     /**
      * 处理鼠标释放事件
      */
-    public void onMouseReleased(int button) {
+    public synchronized void onMouseReleased(int button) {
         if (button >= 0 && button < mouseButtons.length) {
             mouseButtons[button] = false;
         }
@@ -95,21 +154,21 @@ public class InputManager {
     /**
      * 检查按键是否被按下
      */
-    public boolean isKeyPressed(int keyCode) {
+    public synchronized boolean isKeyPressed(int keyCode) {
         return pressedKeys.contains(keyCode);
     }
 
     /**
      * 检查按键是否刚刚被按下（只在这一帧为true）
      */
-    public boolean isKeyJustPressed(int keyCode) {
+    public synchronized boolean isKeyJustPressed(int keyCode) {
         return justPressedKeys.contains(keyCode);
     }
 
     /**
      * 检查鼠标按键是否被按下
      */
-    public boolean isMouseButtonPressed(int button) {
+    public synchronized boolean isMouseButtonPressed(int button) {
         if (button >= 0 && button < mouseButtons.length) {
             return mouseButtons[button];
         }
@@ -119,7 +178,7 @@ public class InputManager {
     /**
      * 检查鼠标按键是否刚刚被按下
      */
-    public boolean isMouseButtonJustPressed(int button) {
+    public synchronized boolean isMouseButtonJustPressed(int button) {
         if (button >= 0 && button < mouseButtons.length) {
             return mouseButtonsJustPressed[button];
         }
@@ -129,21 +188,21 @@ public class InputManager {
     /**
      * 获取鼠标位置
      */
-    public Vector2 getMousePosition() {
+    public synchronized Vector2 getMousePosition() {
         return new Vector2(mousePosition);
     }
 
     /**
      * 获取鼠标X坐标
      */
-    public float getMouseX() {
+    public synchronized float getMouseX() {
         return mousePosition.x;
     }
 
     /**
      * 获取鼠标Y坐标
      */
-    public float getMouseY() {
+    public synchronized float getMouseY() {
         return mousePosition.y;
     }
 }
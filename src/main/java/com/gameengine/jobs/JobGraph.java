@@ -0,0 +1,177 @@
+package com.gameengine.jobs;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 任务图：节点是一段工作，边是依赖关系，依赖全部完成的节点并行执行
+ *
+ * 节点只能依赖已加入的节点，因此图天然无环。同一个图可以每帧重复执行。
+ * 某个节点抛出异常后，尚未开始的节点不再执行，异常在 JobSystem.run 返回前重新抛出。
+ * 执行途中任务系统被关闭（提交被拒绝）时，剩下的节点在提交它的线程上直接执行，run 不会一直等待。
+ */
+public class JobGraph {
+    /**
+     * 任务图节点
+     */
+    public static final class Job {
+        private final JobGraph graph;
+        private final int index;
+        private final String name;
+        private final Runnable work;
+        private final List<Job> dependents = new ArrayList<>();
+        private int dependencyCount;
+
+        private Job(JobGraph graph, int index, String name, Runnable work) {
+            this.graph = graph;
+            this.index = index;
+            this.name = name;
+            this.work = work;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getDependencyCount() {
+            return dependencyCount;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    private final List<Job> jobs = new ArrayList<>();
+
+    /**
+     * 添加节点，dependsOn 中的节点全部完成后才会执行
+     */
+    public Job add(String name, Runnable work, Job... dependsOn) {
+        if (work == null) {
+            throw new IllegalArgumentException("work must not be null");
+        }
+        Job job = new Job(this, jobs.size(), name, work);
+        for (Job dep : dependsOn) {
+            if (dep == null || dep.graph != this) {
+                throw new IllegalArgumentException("dependency does not belong to this graph: " + dep);
+            }
+            dep.dependents.add(job);
+            job.dependencyCount++;
+        }
+        jobs.add(job);
+        return job;
+    }
+
+    public List<Job> getJobs() {
+        return Collections.unmodifiableList(jobs);
+    }
+
+    public int size() {
+        return jobs.size();
+    }
+
+    void execute(JobSystem system) {
+        int n = jobs.size();
+        if (n == 0) {
+            return;
+        }
+        ForkJoinPool pool = system.pool();
+        Thread current = Thread.currentThread();
+        boolean nested = current instanceof ForkJoinWorkerThread
+                && ((ForkJoinWorkerThread) current).getPool() == pool;
+        if (pool.isShutdown() || nested) {
+            // 按加入顺序执行即满足依赖；在工作线程里等待其他任务可能占满线程，因此嵌套时也串行
+            for (Job job : jobs) {
+                job.work.run();
+            }
+            return;
+        }
+
+        AtomicInteger[] pending = new AtomicInteger[n];
+        for (int i = 0; i < n; i++) {
+            pending[i] = new AtomicInteger(jobs.get(i).dependencyCount);
+        }
+        CountDownLatch done = new CountDownLatch(n);
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        Run run = new Run(pool, pending, done, error);
+        for (Job job : jobs) {
+            if (job.dependencyCount == 0) {
+                run.submit(job);
+            }
+        }
+
+        boolean interrupted = false;
+        while (true) {
+            try {
+                done.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            current.interrupt();
+        }
+        Throwable t = error.get();
+        if (t instanceof RuntimeException) {
+            throw (RuntimeException) t;
+        }
+        if (t instanceof Error) {
+            throw (Error) t;
+        }
+        if (t != null) {
+            throw new RuntimeException(t);
+        }
+    }
+
+    /**
+     * 一次执行的状态
+     */
+    private static final class Run {
+        private final ForkJoinPool pool;
+        private final AtomicInteger[] pending;
+        private final CountDownLatch done;
+        private final AtomicReference<Throwable> error;
+
+        Run(ForkJoinPool pool, AtomicInteger[] pending, CountDownLatch done, AtomicReference<Throwable> error) {
+            this.pool = pool;
+            this.pending = pending;
+            this.done = done;
+            this.error = error;
+        }
+
+        void submit(Job job) {
+            try {
+                pool.execute(() -> runJob(job));
+            } catch (RejectedExecutionException e) {
+                runJob(job);
+            }
+        }
+
+        private void runJob(Job job) {
+            try {
+                if (error.get() == null) {
+                    job.work.run();
+                }
+            } catch (Throwable t) {
+                error.compareAndSet(null, t);
+            }
+            // 先计数再提交后继：提交出错也不会漏掉本节点
+            done.countDown();
+            for (Job next : job.dependents) {
+                if (pending[next.index].decrementAndGet() == 0) {
+                    submit(next);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package com.gameengine.jobs;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 引擎级任务系统，基于工作窃取的 ForkJoinPool
+ *
+ * 由 GameEngine 创建并持有，设置场景时交给场景，物理、避让等系统共用同一组工作线程。
+ * 工作线程为守护线程，引擎停止时 shutdown。已关闭或工作量太小时任务直接在调用线程执行，
+ * 调用方不需要区分串行与并行两种路径。
+ */
+public class JobSystem {
+    private static final AtomicInteger POOL_SEQ = new AtomicInteger();
+
+    private final ForkJoinPool pool;
+    private final int parallelism;
+    private final AtomicLong parallelForCalls = new AtomicLong();
+    private final AtomicLong inlineCalls = new AtomicLong();
+    private final AtomicLong batchesRun = new AtomicLong();
+    private final AtomicLong graphsRun = new AtomicLong();
+
+    /**
+     * 按可用核数创建：留一个核给游戏循环线程，至少一个工作线程
+     */
+    public JobSystem() {
+        this(Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+    }
+
+    public JobSystem(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be at least 1");
+        }
+        this.parallelism = parallelism;
+        int poolId = POOL_SEQ.incrementAndGet();
+        AtomicInteger threadSeq = new AtomicInteger();
+        ForkJoinPool.ForkJoinWorkerThreadFactory factory = p -> {
+            ForkJoinWorkerThread t = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+            t.setName("job-" + poolId + "-worker-" + threadSeq.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+        this.pool = new ForkJoinPool(parallelism, factory, null, false);
+    }
+
+    /**
+     * 分批处理的循环体，batch 为批次编号（0 起，小于 batchCount 的返回值），可用于选择每批独立的临时缓冲
+     */
+    public interface RangeBody {
+        void run(int start, int end, int batch);
+    }
+
+    /**
+     * 将 [0, count) 分为若干批，批次数为 batchCount(count, minBatch)
+     */
+    public int batchCount(int count, int minBatch) {
+        if (count <= 0) {
+            return 0;
+        }
+        int byMin = (count + Math.max(1, minBatch) - 1) / Math.max(1, minBatch);
+        // 每个工作线程约 4 批，便于窃取时均衡负载
+        return Math.max(1, Math.min(byMin, parallelism * 4));
+    }
+
+    /**
+     * 并行处理 [0, count)，所有批次完成后返回；只有一批或已关闭时在调用线程执行
+     * 循环体抛出的异常在返回前重新抛出
+     */
+    public void parallelFor(int count, int minBatch, RangeBody body) {
+        int batches = batchCount(count, minBatch);
+        if (batches == 0) {
+            return;
+        }
+        parallelForCalls.incrementAndGet();
+        batchesRun.addAndGet(batches);
+        if (batches == 1 || pool.isShutdown()) {
+            inlineCalls.incrementAndGet();
+            int size = (count + batches - 1) / batches;
+            for (int b = 0; b < batches; b++) {
+                body.run(b * size, Math.min(count, (b + 1) * size), b);
+            }
+            return;
+        }
+        pool.invoke(new RangeTask(body, count, (count + batches - 1) / batches, 0, batches));
+    }
+
+    /**
+     * 执行任务图，所有节点完成后返回
+     */
+    public void run(JobGraph graph) {
+        graphsRun.incrementAndGet();
+        graph.execute(this);
+    }
+
+    ForkJoinPool pool() {
+        return pool;
+    }
+
+    /**
+     * 二分批次区间，叶子执行一批；空闲线程从其他线程的队列窃取未开始的一半
+     */
+    private static final class RangeTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final RangeBody body;
+        private final int count;
+        private final int batchSize;
+        private final int lo;
+        private final int hi;
+
+        RangeTask(RangeBody body, int count, int batchSize, int lo, int hi) {
+            this.body = body;
+            this.count = count;
+            this.batchSize = batchSize;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi - lo == 1) {
+                int start = lo * batchSize;
+                if (start < count) {
+                    body.run(start, Math.min(count, start + batchSize), lo);
+                }
+                return;
+            }
+            int mid = (lo + hi) >>> 1;
+            invokeAll(new RangeTask(body, count, batchSize, lo, mid),
+                    new RangeTask(body, count, batchSize, mid, hi));
+        }
+    }
+
+    /**
+     * 停止接收任务，等待正在执行的任务结束
+     */
+    public void shutdown() {
+        pool.shutdown();
+        try {
+            pool.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public boolean isShutdown() {
+        return pool.isShutdown();
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * 当前排队中的任务数（工作线程队列与外部提交队列之和）
+     */
+    public long getQueueDepth() {
+        return pool.getQueuedTaskCount() + pool.getQueuedSubmissionCount();
+    }
+
+    /**
+     * 累计窃取次数
+     */
+    public long getStealCount() {
+        return pool.getStealCount();
+    }
+
+    public int getActiveThreadCount() {
+        return pool.getActiveThreadCount();
+    }
+
+    public int getPoolSize() {
+        return pool.getPoolSize();
+    }
+
+    public long getParallelForCount() {
+        return parallelForCalls.get();
+    }
+
+    /**
+     * 因只有一批或已关闭而在调用线程直接执行的 parallelFor 次数
+     */
+    public long getInlineCount() {
+        return inlineCalls.get();
+    }
+
+    public long getBatchCount() {
+        return batchesRun.get();
+    }
+
+    public long getGraphCount() {
+        return graphsRun.get();
+    }
+
+    @Override
+    public String toString() {
+        return "JobSystem[threads=" + getPoolSize() + "/" + parallelism
+                + ", active=" + getActiveThreadCount()
+                + ", queued=" + getQueueDepth()
+                + ", steals=" + getStealCount()
+                + ", parallelFor=" + getParallelForCount() + " (inline " + getInlineCount() + ")"
+                + ", batches=" + getBatchCount()
+                + ", graphs=" + getGraphCount() + "]";
+    }
+}
@@ -0,0 +1,171 @@
+package com.gameengine.pool;
+
+import com.gameengine.core.GameObject;
+
+import java.util.ArrayDeque;
+
+/**
+ * 按原型（archetype）划分的游戏对象池
+ *
+ * 对象由工厂创建一次，之后在场景中移除时回收到池里（组件保留，只重置状态），下次取出时复用。
+ * 池中最多保留 capacity 个空闲对象，超出的直接丢弃交给 GC。
+ * 命中/未命中计数用于评估池容量是否合适。池本身不是线程安全的，只在游戏逻辑线程使用。
+ */
+public class GameObjectPool {
+    /**
+     * 创建新对象，对象应带齐该原型的全部组件
+     */
+    public interface Factory {
+        GameObject create();
+    }
+
+    /**
+     * 回收时的额外重置逻辑，在各组件 reset() 之后调用
+     */
+    public interface Resetter {
+        void reset(GameObject obj);
+    }
+
+    private final String archetype;
+    private final Factory factory;
+    private final Resetter resetter;
+    private final ArrayDeque<GameObject> free;
+    private int capacity;
+    private long hits;
+    private long misses;
+    private long discarded;
+
+    public GameObjectPool(String archetype, Factory factory, int capacity) {
+        this(archetype, factory, null, capacity);
+    }
+
+    public GameObjectPool(String archetype, Factory factory, Resetter resetter, int capacity) {
+        if (factory == null) {
+            throw new IllegalArgumentException("factory must not be null");
+        }
+        if (capacity < 0) {
+            throw new IllegalArgumentException("capacity must not be negative");
+        }
+        this.archetype = archetype;
+        this.factory = factory;
+        this.resetter = resetter;
+        this.capacity = capacity;
+        this.free = new ArrayDeque<>(Math.max(capacity, 1));
+    }
+
+    /**
+     * 预先创建对象放入池中，直到空闲数达到 count（不超过容量）
+     */
+    public void prewarm(int count) {
+        int target = Math.min(count, capacity);
+        while (free.size() < target) {
+            free.push(create());
+        }
+    }
+
+    /**
+     * 取出一个对象，池空时新建
+     */
+    public GameObject acquire() {
+        GameObject obj = free.poll();
+        if (obj != null) {
+            hits++;
+        } else {
+            misses++;
+            obj = create();
+        }
+        obj.setActive(true);
+        return obj;
+    }
+
+    /**
+     * 归还对象：重置组件并分配新的 id，池满时丢弃
+     * 由 Scene 在对象移除时调用，已销毁（组件已清空）的对象不会回到池中
+     */
+    public void release(GameObject obj) {
+        if (obj == null || obj.getPool() != this || obj.getSceneSlot() >= 0) {
+            return;
+        }
+        obj.setActive(false);
+        if (free.size() >= capacity) {
+            discarded++;
+            obj.setPool(null);
+            return;
+        }
+        obj.recycle();
+        if (resetter != null) {
+            resetter.reset(obj);
+        }
+        free.push(obj);
+    }
+
+    private GameObject create() {
+        GameObject obj = factory.create();
+        obj.setName(archetype);
+        obj.setPool(this);
+        obj.setActive(false);
+        return obj;
+    }
+
+    public String getArchetype() {
+        return archetype;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * 调整容量，多出的空闲对象立即丢弃
+     */
+    public void setCapacity(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("capacity must not be negative");
+        }
+        this.capacity = capacity;
+        while (free.size() > capacity) {
+            free.pop().setPool(null);
+            discarded++;
+        }
+    }
+
+    /**
+     * 当前空闲对象数
+     */
+    public int getAvailable() {
+        return free.size();
+    }
+
+    /**
+     * 取出时池中有空闲对象的次数
+     */
+    public long getHitCount() {
+        return hits;
+    }
+
+    /**
+     * 取出时池为空、只能新建的次数
+     */
+    public long getMissCount() {
+        return misses;
+    }
+
+    /**
+     * 归还时因池满被丢弃的次数
+     */
+    public long getDiscardedCount() {
+        return discarded;
+    }
+
+    public void resetStats() {
+        hits = 0;
+        misses = 0;
+        discarded = 0;
+    }
+
+    @Override
+    public String toString() {
+        return archetype + "[free=" + free.size() + "/" + capacity
+                + ", hit=" + hits + ", miss=" + misses + ", discarded=" + discarded + "]";
+    }
+}
@@ -0,0 +1,501 @@
+package com.gameengine.recording;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 后台录制写线程
+ *
+ * 游戏线程把输入与关键帧拷贝进暂存快照（staging），offer() 时与环形队列中的空闲槽位交换，不分配也不加锁。
+ * 队列为单生产者单消费者：游戏线程只推进 tail，写线程只推进 head。
+ * 写线程一次取出所有已入队的快照，编码、追加后只 flush 一次；外观去重与增量帧计算也在写线程完成：
+ * 每 fullKeyframeInterval 帧写一个完整帧，其余帧只写新出现、移动超过 deltaThreshold 的对象和已消失对象的 id，
+ * 位置按 positionPrecision 量化。每个完整帧之前标记存储的同步点并记入时间索引，写线程结束时把索引写到存储。
+ * 统计项：队列深度、丢弃/合并帧数、游戏线程等待次数、从入队到 flush 完成的写入延迟、写线程 CPU 时间。
+ */
+public class AsyncRecordingWriter {
+    private final RecordingStorage storage;
+    private final RecordingCodec codec;
+    private final RecordingConfig.OverflowPolicy policy;
+    private final RecordingSnapshot[] slots;
+    private final int mask;
+    // 写线程已消费的序号
+    private final AtomicLong head = new AtomicLong();
+    // 游戏线程已发布的序号
+    private final AtomicLong tail = new AtomicLong();
+    private final Thread thread;
+    private volatile boolean closed;
+
+    // 以下只由游戏线程访问
+    private RecordingSnapshot staging;
+
+    // 以下只由写线程访问
+    private final RecordBuffer buffer = new RecordBuffer();
+    private final Keyframe frame = new Keyframe();
+    private final List<EntityState> statePool = new ArrayList<>();
+    private final List<float[]> colorPool = new ArrayList<>();
+    // 外观去重，同名对象的外观在每个完整帧之后只写一次
+    private final Set<String> known = new HashSet<>();
+    // 增量帧：各对象上次写出的（量化后）位置
+    private final Map<Integer, Emitted> emitted = new HashMap<>();
+    private final float precision;
+    private final float threshold;
+    private final int fullInterval;
+    private long keyframeSeq;
+    private final RecordingIndex index = new RecordingIndex();
+    private long lastKeyframeT;
+
+    private static final class Emitted {
+        float x;
+        float y;
+        long seenSeq;
+    }
+
+    // 统计
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong blocked = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private volatile int maxDepth;
+    private volatile long lastLatencyNs;
+    private volatile long maxLatencyNs;
+    private final AtomicLong totalLatencyNs = new AtomicLong();
+    private final AtomicLong cpuNs = new AtomicLong();
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+    /**
+     * storage 须已打开并写好 header；写线程结束时负责关闭 storage
+     */
+    public AsyncRecordingWriter(RecordingStorage storage, RecordingCodec codec, RecordingConfig config) {
+        int cap = Integer.highestOneBit(Math.max(2, config.getQueueCapacity()) - 1) << 1;
+        this.storage = storage;
+        this.codec = codec;
+        this.policy = config.getOverflowPolicy() != null ? config.getOverflowPolicy() : RecordingConfig.OverflowPolicy.COALESCE;
+        this.precision = Math.max(0f, config.getPositionPrecision());
+        this.threshold = Math.max(0f, config.getDeltaThreshold());
+        this.fullInterval = Math.max(1, config.getFullKeyframeInterval());
+        this.slots = new RecordingSnapshot[cap];
+        for (int i = 0; i < cap; i++) {
+            slots[i] = new RecordingSnapshot();
+        }
+        this.mask = cap - 1;
+        this.staging = new RecordingSnapshot();
+        this.thread = new Thread(this::writeLoop, "RecordingWriter");
+        this.thread.setDaemon(true);
+    }
+
+    public void start() {
+        thread.start();
+    }
+
+    // ---- 游戏线程 ----
+
+    /**
+     * 记录一个输入事件，随下一次入队的快照写出
+     */
+    public void addInput(long t, int key) {
+        staging.addInput(t, key);
+    }
+
+    /**
+     * 记录一个按键事件（确定性录制），随下一次入队的快照写出
+     */
+    public void addKeyEvent(long tick, int key, boolean down) {
+        staging.addKeyEvent(tick, key, down);
+    }
+
+    /**
+     * 给暂存快照中的关键帧附上校验点，须在 beginKeyframe 之后调用；关键帧被丢弃时校验点一起丢弃
+     */
+    void setCheckpoint(long tick, long checksum) {
+        staging.hasCheckpoint = true;
+        staging.checkpointTick = tick;
+        staging.checksum = checksum;
+    }
+
+    /**
+     * 开始在暂存快照中填写新关键帧；上一帧还没能入队时被覆盖（计为合并）
+     */
+    RecordingSnapshot beginKeyframe(long t) {
+        if (staging.hasKeyframe) {
+            coalesced.incrementAndGet();
+        }
+        staging.beginKeyframe(t);
+        return staging;
+    }
+
+    /**
+     * 暂存快照中是否有等待入队的关键帧（COALESCE 策略下队列满时留下的）
+     */
+    public boolean hasPendingKeyframe() {
+        return staging.hasKeyframe;
+    }
+
+    /**
+     * 按溢出策略把暂存快照交给写线程，返回是否已入队
+     */
+    public boolean offer() {
+        return offer(policy);
+    }
+
+    private boolean offer(RecordingConfig.OverflowPolicy p) {
+        long t = tail.get();
+        if (t - head.get() > mask) {
+            switch (p) {
+                case BLOCK:
+                    if (!awaitSpace(t)) {
+                        discardKeyframe();
+                        return false;
+                    }
+                    break;
+                case DROP:
+                    discardKeyframe();
+                    return false;
+                default:
+                    // COALESCE：关键帧留在暂存区，下一帧覆盖或空出位置后入队
+                    return false;
+            }
+        }
+        int i = (int) (t & mask);
+        RecordingSnapshot free = slots[i];
+        staging.publishNs = System.nanoTime();
+        slots[i] = staging;
+        tail.set(t + 1);
+        staging = free;
+        staging.clear();
+        published.incrementAndGet();
+        int depth = (int) (t + 1 - head.get());
+        if (depth > maxDepth) {
+            maxDepth = depth;
+        }
+        LockSupport.unpark(thread);
+        return true;
+    }
+
+    private void discardKeyframe() {
+        if (staging.hasKeyframe) {
+            staging.clearKeyframe();
+            dropped.incrementAndGet();
+        }
+    }
+
+    /**
+     * 等待写线程空出槽位；写线程已退出时返回 false
+     */
+    private boolean awaitSpace(long t) {
+        blocked.incrementAndGet();
+        while (t - head.get() > mask) {
+            if (!thread.isAlive()) {
+                return false;
+            }
+            LockSupport.unpark(thread);
+            LockSupport.parkNanos(this, 100_000L);
+        }
+        return true;
+    }
+
+    /**
+     * 把暂存的数据（以阻塞方式）入队，通知写线程写完剩余数据后关闭存储，最多等待 timeoutMs
+     */
+    public void close(long timeoutMs) {
+        if (closed) {
+            return;
+        }
+        if (staging.hasKeyframe || staging.inputCount > 0 || staging.keyCount > 0) {
+            offer(RecordingConfig.OverflowPolicy.BLOCK);
+        }
+        closed = true;
+        LockSupport.unpark(thread);
+        try {
+            thread.join(timeoutMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // ---- 写线程 ----
+
+    private void writeLoop() {
+        try {
+            while (true) {
+                long h = head.get();
+                long t = tail.get();
+                if (h == t) {
+                    if (closed) {
+                        // closed 在最后一次发布之后写入，这里重新读取 tail 不会漏掉数据
+                        if (tail.get() == h) {
+                            break;
+                        }
+                        continue;
+                    }
+                    LockSupport.parkNanos(this, 10_000_000L);
+                    continue;
+                }
+                writeBatch(h, t);
+            }
+        } finally {
+            try {
+                index.setDurationMs(lastKeyframeT);
+                storage.writeIndex(index);
+            } catch (Exception e) {
+                errors.incrementAndGet();
+            }
+            try {
+                storage.closeWrite();
+            } catch (Exception e) {
+                errors.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * 编码 [h, t) 的快照并追加，整批只 flush 一次
+     */
+    private void writeBatch(long h, long t) {
+        long cpuStart = threadCpuTime();
+        long publishSum = 0;
+        long oldest = 0;
+        int n = 0;
+        for (long seq = h; seq < t; seq++) {
+            RecordingSnapshot s = slots[(int) (seq & mask)];
+            if (n == 0) {
+                oldest = s.publishNs;
+            }
+            publishSum += s.publishNs;
+            n++;
+            try {
+                if (s.hasKeyframe && keyframeSeq % fullInterval == 0) {
+                    // 完整帧（连同它之前的输入）从同步点开始，回放可以从这里直接解码
+                    index.add(s.t, storage.markSyncPoint());
+                }
+                buffer.clear();
+                for (int i = 0; i < s.inputCount; i++) {
+                    codec.encodeInput(s.inputT[i], s.inputKey[i], buffer);
+                }
+                for (int i = 0; i < s.keyCount; i++) {
+                    codec.encodeKeyEvent(s.keyTick[i], s.keyCode[i], s.keyDown[i], buffer);
+                }
+                if (s.hasCheckpoint) {
+                    codec.encodeCheckpoint(s.checkpointTick, s.checksum, buffer);
+                }
+                if (s.hasKeyframe) {
+                    codec.encodeKeyframe(keyframe(s), buffer);
+                    lastKeyframeT = s.t;
+                }
+                storage.append(buffer.view());
+            } catch (Exception e) {
+                errors.incrementAndGet();
+            }
+            // 快照内容已编码进缓冲，可以把槽位还给游戏线程
+            head.set(seq + 1);
+        }
+        try {
+            storage.flush();
+        } catch (Exception e) {
+            errors.incrementAndGet();
+        }
+        long now = System.nanoTime();
+        written.addAndGet(n);
+        batches.incrementAndGet();
+        lastLatencyNs = now - oldest;
+        if (lastLatencyNs > maxLatencyNs) {
+            maxLatencyNs = lastLatencyNs;
+        }
+        totalLatencyNs.addAndGet(now * n - publishSum);
+        cpuNs.addAndGet(threadCpuTime() - cpuStart);
+    }
+
+    private long threadCpuTime() {
+        return threads.isCurrentThreadCpuTimeSupported() ? threads.getCurrentThreadCpuTime() : System.nanoTime();
+    }
+
+    /**
+     * 把快照转换为编码器使用的关键帧：完整帧包含全部对象，增量帧只含新对象、移动过的对象与已消失对象的 id。
+     * 新对象带名字，首次出现的名字再带上外观。
+     */
+    private Keyframe keyframe(RecordingSnapshot s) {
+        long seq = keyframeSeq++;
+        boolean full = seq % fullInterval == 0;
+        frame.t = s.t;
+        frame.full = full;
+        frame.objects.clear();
+        frame.removed.clear();
+        if (full) {
+            // 完整帧可以单独作为回放起点，外观重新写一次
+            known.clear();
+            emitted.clear();
+        }
+        for (int i = 0; i < s.count; i++) {
+            float x = quantize(s.x[i]);
+            float y = quantize(s.y[i]);
+            Emitted last = emitted.get(s.ids[i]);
+            boolean isNew = last == null;
+            if (isNew) {
+                last = new Emitted();
+                emitted.put(s.ids[i], last);
+            } else if (Math.abs(x - last.x) <= threshold && Math.abs(y - last.y) <= threshold) {
+                last.seenSeq = seq;
+                continue;
+            }
+            last.x = x;
+            last.y = y;
+            last.seenSeq = seq;
+
+            EntityState e = nextState();
+            e.id = s.ids[i];
+            e.x = x;
+            e.y = y;
+            if (isNew) {
+                String key = s.names[i];
+                e.name = key;
+                if (s.rt[i] != null && !known.contains(key)) {
+                    e.rt = s.rt[i];
+                    e.w = s.w[i];
+                    e.h = s.h[i];
+                    if (s.hasColor[i]) {
+                        float[] c = colorPool.get(frame.objects.size());
+                        System.arraycopy(s.color, i * 4, c, 0, 4);
+                        e.color = c;
+                    }
+                    e.img = s.img[i];
+                }
+            }
+            frame.objects.add(e);
+        }
+        for (int i = 0; i < s.count; i++) {
+            known.add(s.names[i]);
+        }
+        if (!full) {
+            Iterator<Map.Entry<Integer, Emitted>> it = emitted.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<Integer, Emitted> entry = it.next();
+                if (entry.getValue().seenSeq != seq) {
+                    frame.removed.add(entry.getKey());
+                    it.remove();
+                }
+            }
+        }
+        return frame;
+    }
+
+    private float quantize(float v) {
+        return precision > 0f ? Math.round(v / precision) * precision : v;
+    }
+
+    private EntityState nextState() {
+        int i = frame.objects.size();
+        if (i == statePool.size()) {
+            statePool.add(new EntityState());
+            colorPool.add(new float[4]);
+        }
+        EntityState s = statePool.get(i);
+        s.name = null;
+        s.rt = null;
+        s.w = 0f;
+        s.h = 0f;
+        s.color = null;
+        s.img = null;
+        return s;
+    }
+
+    // ---- 统计 ----
+
+    /**
+     * 已入队、尚未写出的快照数
+     */
+    public int getQueueDepth() {
+        return (int) (tail.get() - head.get());
+    }
+
+    public int getMaxQueueDepth() {
+        return maxDepth;
+    }
+
+    public int getCapacity() {
+        return slots.length;
+    }
+
+    public long getPublishedCount() {
+        return published.get();
+    }
+
+    public long getWrittenCount() {
+        return written.get();
+    }
+
+    /**
+     * 写线程 flush 的批次数
+     */
+    public long getBatchCount() {
+        return batches.get();
+    }
+
+    /**
+     * 队列满时被丢弃的关键帧数（DROP，或 BLOCK 时写线程已退出）
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /**
+     * 还没入队就被更新的关键帧覆盖的帧数（COALESCE）
+     */
+    public long getCoalescedCount() {
+        return coalesced.get();
+    }
+
+    /**
+     * 游戏线程等待空位的次数（BLOCK）
+     */
+    public long getBlockedCount() {
+        return blocked.get();
+    }
+
+    public long getErrorCount() {
+        return errors.get();
+    }
+
+    /**
+     * 最近一批中最早入队的快照从入队到 flush 完成的时间
+     */
+    public long getLastWriteLatencyNs() {
+        return lastLatencyNs;
+    }
+
+    public long getMaxWriteLatencyNs() {
+        return maxLatencyNs;
+    }
+
+    /**
+     * 写线程编码、压缩与写盘累计消耗的 CPU 时间（平台不支持线程 CPU 计时时为墙钟时间）
+     */
+    public long getWriteCpuNs() {
+        return cpuNs.get();
+    }
+
+    public long getAverageWriteLatencyNs() {
+        long n = written.get();
+        return n > 0 ? totalLatencyNs.get() / n : 0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("RecordingWriter[policy=%s, depth=%d/%d, maxDepth=%d, published=%d, written=%d, batches=%d, "
+                        + "dropped=%d, coalesced=%d, blocked=%d, errors=%d, latency avg=%.2fms max=%.2fms]",
+                policy, getQueueDepth(), slots.length, maxDepth, published.get(), written.get(), batches.get(),
+                dropped.get(), coalesced.get(), blocked.get(), errors.get(),
+                getAverageWriteLatencyNs() / 1_000_000.0, maxLatencyNs / 1_000_000.0);
+    }
+}
@@ -0,0 +1,565 @@
+package com.gameengine.recording;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 二进制录制格式（.krec）
+ *
+ * 文件以魔数 "KREC" 和 1 字节格式版本开头，随后是连续的记录：
+ * 1 字节类型 + 4 字节小端长度 + 负载。未知类型按长度跳过，便于以后扩展。
+ * 整数使用无符号变长编码（LEB128），有符号数先做 zigzag，浮点数为小端 IEEE754，字符串为长度 + UTF-8。
+ * <ul>
+ * <li>header：t、version、width、height、位置精度（浮点，0 表示不量化）、模拟频率（浮点，0 表示非确定性录制）、随机种子</li>
+ * <li>input：t、key</li>
+ * <li>key：tick（zigzag）、key、是否按下（1 字节）</li>
+ * <li>checkpoint：tick、校验和（8 字节）</li>
+ * <li>keyframe：t、是否完整帧、字符串表（对象名、渲染类型、图片路径）、[增量帧：消失对象数与 id 列表]、对象数，
+ * 每个对象为 id、标志位、[名字下标]、x、y，带外观时再跟 渲染类型下标、w、h、[颜色 4 个浮点]、[图片下标]</li>
+ * </ul>
+ * 位置量化时写为 round(v / 精度) 的整数：完整帧与新对象写绝对值，增量帧中已有对象写相对上次的差值，
+ * 不量化时写两个浮点。
+ * 版本 1 的关键帧没有 id、完整帧标志与量化，版本 2 的 header 没有模拟频率与种子，解码时仍然支持。
+ * 编码器实例内部复用字符串表并记录各对象上次写出的位置，不是线程安全的。
+ */
+public class BinaryRecordingCodec implements RecordingCodec {
+    public static final String EXTENSION = "krec";
+    public static final int FORMAT_VERSION = 3;
+
+    static final int TYPE_HEADER = 1;
+    static final int TYPE_INPUT = 2;
+    static final int TYPE_KEYFRAME = 3;
+    static final int TYPE_KEY = 4;
+    static final int TYPE_CHECKPOINT = 5;
+
+    private static final byte[] MAGIC = {'K', 'R', 'E', 'C'};
+    private static final int FLAG_APPEARANCE = 1;
+    private static final int FLAG_COLOR = 2;
+    private static final int FLAG_IMAGE = 4;
+    private static final int FLAG_NAME = 8;
+
+    private final Map<String, Integer> stringIndex = new HashMap<>();
+    private final List<String> strings = new ArrayList<>();
+    // 编码与解码各自记录对象上次的量化位置，增量帧中的差值相对它计算
+    private final Map<Integer, long[]> lastPosition = new HashMap<>();
+    private float precision;
+    // 最近一次读到的文件格式版本，供从同步点继续读取时使用
+    private int formatVersion = -1;
+    private final DecodedRecord decoded = new DecodedRecord();
+
+    /**
+     * data 当前位置是否以魔数开头（不改变 data 的位置）
+     */
+    public static boolean hasMagic(ByteBuffer data) {
+        if (data.remaining() < MAGIC.length) {
+            return false;
+        }
+        int p = data.position();
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (data.get(p + i) != MAGIC[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String getExtension() {
+        return EXTENSION;
+    }
+
+    /**
+     * 文件头记录前先写魔数与格式版本
+     */
+    @Override
+    public void encodeHeader(RecordingHeader header, RecordBuffer out) {
+        out.putBytes(MAGIC);
+        out.putByte(FORMAT_VERSION);
+        int lengthPos = beginRecord(TYPE_HEADER, out);
+        out.putVarLong(header.t);
+        out.putString(header.version != null ? header.version : "");
+        out.putVarInt(header.width);
+        out.putVarInt(header.height);
+        out.putFloat(header.precision);
+        out.putFloat(header.tickRate);
+        out.putLong(header.seed);
+        endRecord(lengthPos, out);
+        precision = header.precision;
+    }
+
+    @Override
+    public void encodeInput(long t, int key, RecordBuffer out) {
+        int lengthPos = beginRecord(TYPE_INPUT, out);
+        out.putVarLong(t);
+        out.putVarInt(key);
+        endRecord(lengthPos, out);
+    }
+
+    @Override
+    public void encodeKeyEvent(long tick, int key, boolean down, RecordBuffer out) {
+        int lengthPos = beginRecord(TYPE_KEY, out);
+        out.putVarLong(zigzag(tick));
+        out.putVarInt(key);
+        out.putByte(down ? 1 : 0);
+        endRecord(lengthPos, out);
+    }
+
+    @Override
+    public void encodeCheckpoint(long tick, long checksum, RecordBuffer out) {
+        int lengthPos = beginRecord(TYPE_CHECKPOINT, out);
+        out.putVarLong(tick);
+        out.putLong(checksum);
+        endRecord(lengthPos, out);
+    }
+
+    @Override
+    public void encodeKeyframe(Keyframe frame, RecordBuffer out) {
+        int lengthPos = beginRecord(TYPE_KEYFRAME, out);
+        out.putVarLong(frame.t);
+        out.putByte(frame.full ? 1 : 0);
+
+        stringIndex.clear();
+        strings.clear();
+        for (EntityState s : frame.objects) {
+            if (s.name != null || frame.full) {
+                intern(s.name);
+            }
+            if (s.rt != null) {
+                intern(s.rt);
+                if (s.img != null && !s.img.isEmpty()) {
+                    intern(s.img);
+                }
+            }
+        }
+        out.putVarInt(strings.size());
+        for (String str : strings) {
+            out.putString(str);
+        }
+
+        if (frame.full) {
+            lastPosition.clear();
+        } else {
+            out.putVarInt(frame.removed.size());
+            for (Integer id : frame.removed) {
+                out.putVarInt(id);
+                lastPosition.remove(id);
+            }
+        }
+
+        out.putVarInt(frame.objects.size());
+        for (EntityState s : frame.objects) {
+            boolean hasName = s.name != null || frame.full;
+            boolean hasAppearance = s.rt != null;
+            boolean hasColor = hasAppearance && s.color != null && s.color.length == 4;
+            boolean hasImage = hasAppearance && s.img != null && !s.img.isEmpty();
+            out.putVarInt(s.id);
+            out.putByte((hasName ? FLAG_NAME : 0) | (hasAppearance ? FLAG_APPEARANCE : 0)
+                    | (hasColor ? FLAG_COLOR : 0) | (hasImage ? FLAG_IMAGE : 0));
+            if (hasName) {
+                out.putVarInt(stringIndex.get(s.name != null ? s.name : ""));
+            }
+            putPosition(s, hasName, out);
+            if (!hasAppearance) {
+                continue;
+            }
+            out.putVarInt(stringIndex.get(s.rt));
+            out.putFloat(s.w);
+            out.putFloat(s.h);
+            if (hasColor) {
+                for (int i = 0; i < 4; i++) {
+                    out.putFloat(s.color[i]);
+                }
+            }
+            if (hasImage) {
+                out.putVarInt(stringIndex.get(s.img));
+            }
+        }
+        endRecord(lengthPos, out);
+    }
+
+    /**
+     * 带名字的对象（完整帧或新对象）写绝对位置，否则写相对上次的差值
+     */
+    private void putPosition(EntityState s, boolean absolute, RecordBuffer out) {
+        if (precision <= 0f) {
+            out.putFloat(s.x);
+            out.putFloat(s.y);
+            return;
+        }
+        long qx = Math.round(s.x / precision);
+        long qy = Math.round(s.y / precision);
+        long[] last = lastPosition.get(s.id);
+        if (absolute || last == null) {
+            out.putVarLong(zigzag(qx));
+            out.putVarLong(zigzag(qy));
+            if (last == null) {
+                last = new long[2];
+                lastPosition.put(s.id, last);
+            }
+        } else {
+            out.putVarLong(zigzag(qx - last[0]));
+            out.putVarLong(zigzag(qy - last[1]));
+        }
+        last[0] = qx;
+        last[1] = qy;
+    }
+
+    private static long zigzag(long v) {
+        return (v << 1) ^ (v >> 63);
+    }
+
+    private static long unzigzag(long v) {
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    private void intern(String s) {
+        String key = s != null ? s : "";
+        if (!stringIndex.containsKey(key)) {
+            stringIndex.put(key, strings.size());
+            strings.add(key);
+        }
+    }
+
+    private static int beginRecord(int type, RecordBuffer out) {
+        out.putByte(type);
+        int lengthPos = out.position();
+        out.putInt(0);
+        return lengthPos;
+    }
+
+    private static void endRecord(int lengthPos, RecordBuffer out) {
+        out.putIntAt(lengthPos, out.position() - lengthPos - 4);
+    }
+
+    @Override
+    public void decode(ByteBuffer data, Listener listener) {
+        ByteBuffer in = data.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        if (!hasMagic(in) || in.remaining() < MAGIC.length + 1) {
+            return;
+        }
+        in.position(in.position() + MAGIC.length);
+        int version = in.get() & 0xFF;
+        if (version > FORMAT_VERSION) {
+            throw new IllegalArgumentException("unsupported recording format version " + version);
+        }
+        formatVersion = version;
+        precision = 0f;
+        lastPosition.clear();
+        while (in.remaining() >= 5) {
+            int type = in.get() & 0xFF;
+            int length = in.getInt();
+            if (length < 0 || length > in.remaining()) {
+                // 写入中断导致的不完整记录
+                return;
+            }
+            ByteBuffer rec = in.slice().order(ByteOrder.LITTLE_ENDIAN);
+            rec.limit(length);
+            in.position(in.position() + length);
+            decodeRecord(type, version, rec, listener);
+        }
+    }
+
+    @Override
+    public Cursor openCursor(InputStream in) throws IOException {
+        return new StreamCursor(in, -1);
+    }
+
+    @Override
+    public Cursor openCursorAt(InputStream in) throws IOException {
+        if (formatVersion < 0) {
+            throw new IllegalStateException("file preamble not read yet");
+        }
+        // 同步点之后是完整帧，差值基准在这里清空
+        lastPosition.clear();
+        return new StreamCursor(in, formatVersion);
+    }
+
+    /**
+     * 从流中逐条读取记录，负载读入复用的缓冲区后与 decode 走同一套解码
+     */
+    private final class StreamCursor implements Cursor {
+        // 单条记录长度上限，超出视为数据损坏
+        private static final int MAX_RECORD = 64 * 1024 * 1024;
+
+        private final InputStream in;
+        private final byte[] head = new byte[5];
+        private byte[] payload = new byte[4096];
+        private int version;
+
+        StreamCursor(InputStream in, int version) {
+            this.in = in;
+            this.version = version;
+        }
+
+        @Override
+        public boolean next(Listener listener) throws IOException {
+            if (version < 0 && !readPreamble()) {
+                return false;
+            }
+            if (readFully(head, 5) < 5) {
+                return false;
+            }
+            int type = head[0] & 0xFF;
+            int length = ByteBuffer.wrap(head, 1, 4).order(ByteOrder.LITTLE_ENDIAN).getInt();
+            if (length < 0 || length > MAX_RECORD) {
+                return false;
+            }
+            if (payload.length < length) {
+                payload = new byte[Math.max(length, payload.length * 2)];
+            }
+            if (readFully(payload, length) < length) {
+                // 写入中断导致的不完整记录
+                return false;
+            }
+            ByteBuffer rec = ByteBuffer.wrap(payload, 0, length).slice().order(ByteOrder.LITTLE_ENDIAN);
+            decodeRecord(type, version, rec, listener);
+            return true;
+        }
+
+        private boolean readPreamble() throws IOException {
+            byte[] pre = new byte[MAGIC.length + 1];
+            if (readFully(pre, pre.length) < pre.length || !hasMagic(ByteBuffer.wrap(pre))) {
+                return false;
+            }
+            version = pre[MAGIC.length] & 0xFF;
+            if (version > FORMAT_VERSION) {
+                throw new IllegalArgumentException("unsupported recording format version " + version);
+            }
+            formatVersion = version;
+            precision = 0f;
+            lastPosition.clear();
+            return true;
+        }
+
+        private int readFully(byte[] buf, int len) throws IOException {
+            int n = 0;
+            while (n < len) {
+                int r = in.read(buf, n, len - n);
+                if (r < 0) {
+                    break;
+                }
+                n += r;
+            }
+            return n;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    /**
+     * 解析一条记录后交给监听器；损坏的记录跳过，继续读取后面的记录，监听器抛出的异常照常传出
+     */
+    private void decodeRecord(int type, int version, ByteBuffer rec, Listener listener) {
+        DecodedRecord r = decoded;
+        r.clear();
+        try {
+            parseRecord(type, version, rec, r);
+        } catch (RuntimeException e) {
+            r.clear();
+        }
+        r.dispatch(listener);
+    }
+
+    private void parseRecord(int type, int version, ByteBuffer rec, DecodedRecord r) {
+        switch (type) {
+            case TYPE_HEADER: {
+                RecordingHeader h = new RecordingHeader();
+                h.t = getVarLong(rec);
+                h.version = getString(rec);
+                h.width = (int) getVarLong(rec);
+                h.height = (int) getVarLong(rec);
+                if (version >= 2) {
+                    h.precision = rec.getFloat();
+                    precision = h.precision;
+                }
+                if (version >= 3) {
+                    h.tickRate = rec.getFloat();
+                    h.seed = rec.getLong();
+                }
+                r.header = h;
+                r.kind = DecodedRecord.HEADER;
+                break;
+            }
+            case TYPE_KEY: {
+                r.tick = unzigzag(getVarLong(rec));
+                r.key = (int) getVarLong(rec);
+                r.down = rec.get() != 0;
+                r.kind = DecodedRecord.KEY;
+                break;
+            }
+            case TYPE_CHECKPOINT: {
+                r.tick = getVarLong(rec);
+                r.checksum = rec.getLong();
+                r.kind = DecodedRecord.CHECKPOINT;
+                break;
+            }
+            case TYPE_INPUT: {
+                r.t = getVarLong(rec);
+                r.key = (int) getVarLong(rec);
+                r.kind = DecodedRecord.INPUT;
+                break;
+            }
+            case TYPE_KEYFRAME:
+                r.frame = version >= 2 ? decodeKeyframe(rec) : decodeKeyframeV1(rec);
+                r.kind = DecodedRecord.KEYFRAME;
+                break;
+            default:
+                // 未知类型，已按长度跳过
+                break;
+        }
+    }
+
+    private Keyframe decodeKeyframe(ByteBuffer rec) {
+        Keyframe f = new Keyframe();
+        f.t = getVarLong(rec);
+        f.full = rec.get() != 0;
+        String[] table = readStringTable(rec);
+        if (f.full) {
+            lastPosition.clear();
+        } else {
+            int removedCount = (int) getVarLong(rec);
+            for (int i = 0; i < removedCount; i++) {
+                int id = (int) getVarLong(rec);
+                f.removed.add(id);
+                lastPosition.remove(id);
+            }
+        }
+        int count = (int) getVarLong(rec);
+        List<EntityState> list = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            EntityState s = new EntityState();
+            s.id = (int) getVarLong(rec);
+            int flags = rec.get() & 0xFF;
+            boolean hasName = (flags & FLAG_NAME) != 0;
+            if (hasName) {
+                s.name = table[(int) getVarLong(rec)];
+            }
+            boolean known = getPosition(s, hasName, rec);
+            if ((flags & FLAG_APPEARANCE) != 0) {
+                readAppearance(s, flags, table, rec);
+            }
+            if (known) {
+                list.add(s);
+            }
+        }
+        f.objects = list;
+        return f;
+    }
+
+    /**
+     * 读取位置；差值对应的对象没有记录（前面的记录损坏）时返回 false，该对象被丢弃
+     */
+    private boolean getPosition(EntityState s, boolean absolute, ByteBuffer rec) {
+        if (precision <= 0f) {
+            s.x = rec.getFloat();
+            s.y = rec.getFloat();
+            return true;
+        }
+        long qx = unzigzag(getVarLong(rec));
+        long qy = unzigzag(getVarLong(rec));
+        long[] last = lastPosition.get(s.id);
+        if (!absolute) {
+            if (last == null) {
+                return false;
+            }
+            qx += last[0];
+            qy += last[1];
+        } else if (last == null) {
+            last = new long[2];
+            lastPosition.put(s.id, last);
+        }
+        last[0] = qx;
+        last[1] = qy;
+        s.x = qx * precision;
+        s.y = qy * precision;
+        return true;
+    }
+
+    private static void readAppearance(EntityState s, int flags, String[] table, ByteBuffer rec) {
+        s.rt = table[(int) getVarLong(rec)];
+        s.w = rec.getFloat();
+        s.h = rec.getFloat();
+        if ((flags & FLAG_COLOR) != 0) {
+            s.color = new float[]{rec.getFloat(), rec.getFloat(), rec.getFloat(), rec.getFloat()};
+        }
+        if ((flags & FLAG_IMAGE) != 0) {
+            s.img = table[(int) getVarLong(rec)];
+        }
+    }
+
+    private static String[] readStringTable(ByteBuffer rec) {
+        int stringCount = (int) getVarLong(rec);
+        String[] table = new String[stringCount];
+        for (int i = 0; i < stringCount; i++) {
+            table[i] = getString(rec);
+        }
+        return table;
+    }
+
+    /**
+     * 版本 1：没有 id 与完整帧标志，位置为浮点
+     */
+    private Keyframe decodeKeyframeV1(ByteBuffer rec) {
+        Keyframe f = new Keyframe();
+        f.t = getVarLong(rec);
+        String[] table = readStringTable(rec);
+        int count = (int) getVarLong(rec);
+        List<EntityState> list = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            EntityState s = new EntityState();
+            s.name = table[(int) getVarLong(rec)];
+            s.x = rec.getFloat();
+            s.y = rec.getFloat();
+            int flags = rec.get() & 0xFF;
+            if ((flags & FLAG_APPEARANCE) != 0) {
+                readAppearance(s, flags, table, rec);
+            }
+            list.add(s);
+        }
+        f.objects = list;
+        return f;
+    }
+
+    static long getVarLong(ByteBuffer in) {
+        long result = 0;
+        int shift = 0;
+        while (true) {
+            byte b = in.get();
+            result |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+            shift += 7;
+            if (shift > 63) {
+                throw new IllegalArgumentException("varint too long");
+            }
+        }
+    }
+
+    static String getString(ByteBuffer in) {
+        int len = (int) getVarLong(in);
+        if (len < 0 || len > in.remaining()) {
+            throw new IllegalArgumentException("bad string length " + len);
+        }
+        String s;
+        if (in.hasArray()) {
+            s = new String(in.array(), in.arrayOffset() + in.position(), len, StandardCharsets.UTF_8);
+        } else {
+            byte[] bytes = new byte[len];
+            in.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+        in.position(in.position() + len);
+        return s;
+    }
+}
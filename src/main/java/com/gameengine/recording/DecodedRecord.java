@@ -0,0 +1,56 @@
+package com.gameengine.recording;
+
+/**
+ * 解码出的一条记录，编解码器内部复用
+ *
+ * 解码分两步：先在捕获异常的范围内把记录解析到这里（损坏的记录被跳过），再在范围之外 dispatch 给 Listener，
+ * 监听器自身抛出的异常照常向上传递，不会被当成损坏的记录吞掉。
+ */
+final class DecodedRecord {
+    static final int NONE = 0;
+    static final int HEADER = 1;
+    static final int INPUT = 2;
+    static final int KEYFRAME = 3;
+    static final int KEY = 4;
+    static final int CHECKPOINT = 5;
+
+    int kind;
+    RecordingHeader header;
+    Keyframe frame;
+    long t;
+    int key;
+    long tick;
+    boolean down;
+    long checksum;
+
+    /**
+     * 没有可交给监听器的记录（未知类型或已损坏）
+     */
+    void clear() {
+        kind = NONE;
+        header = null;
+        frame = null;
+    }
+
+    void dispatch(RecordingCodec.Listener listener) {
+        switch (kind) {
+            case HEADER:
+                listener.onHeader(header);
+                break;
+            case INPUT:
+                listener.onInput(t, key);
+                break;
+            case KEYFRAME:
+                listener.onKeyframe(frame);
+                break;
+            case KEY:
+                listener.onKeyEvent(tick, key, down);
+                break;
+            case CHECKPOINT:
+                listener.onCheckpoint(tick, checksum);
+                break;
+            default:
+                break;
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.gameengine.recording;
+
+/**
+ * 关键帧中单个对象的状态；rt 不为 null 时携带外观（渲染类型、尺寸、颜色、图片路径）
+ * id 为录制时对象的 id，旧格式录像中为 -1；增量帧里已存在的对象只带 id 与位置，name 为 null
+ */
+public class EntityState {
+    public int id = -1;
+    public String name;
+    public float x;
+    public float y;
+    public String rt;
+    public float w;
+    public float h;
+    public float[] color;
+    public String img;
+
+    public boolean hasAppearance() {
+        return rt != null;
+    }
+
+    public EntityState copy() {
+        EntityState s = new EntityState();
+        s.id = id;
+        s.name = name;
+        s.x = x;
+        s.y = y;
+        s.rt = rt;
+        s.w = w;
+        s.h = h;
+        s.color = color != null ? color.clone() : null;
+        s.img = img;
+        return s;
+    }
+}
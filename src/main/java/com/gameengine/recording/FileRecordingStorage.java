@@ -1,66 +1,250 @@
 package com.gameengine.recording;
 
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.FileReader;
-import java.io.FileWriter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
+/**
+ * 录制文件存储，文件放在 dir 目录下
+ *
+ * 可选 gzip 压缩（文件名追加 .gz）。压缩流使用 SYNC_FLUSH，每次 flush 后已写入的数据都能独立解压，
+ * 进程中途退出时文件缺少 gzip 结尾，读取时解压到最后一个完整的 flush 为止。
+ * 读取时按文件开头的 gzip 魔数判断是否压缩，与扩展名无关。
+ * 同步点（markSyncPoint）处压缩时结束当前 gzip 成员、开始新成员，从该偏移处可以单独解压；
+ * 时间索引写在录制文件旁边的 "文件名.idx" 中。
+ *
+ * 读取默认通过内存映射（MappedRecording）：由页缓存缓冲，同一文件的多个读取共享一份映射，
+ * 未压缩文件的 readAllBytes 直接返回映射区的只读视图，不复制到堆上。
+ */
 public class FileRecordingStorage implements RecordingStorage {
+    /**
+     * 写入时的压缩方式：GZIP_FAST 为最快压缩级别，GZIP 为默认级别
+     */
+    public enum Compression { NONE, GZIP_FAST, GZIP }
+
+    // 可识别的录制文件扩展名，按优先级排列
+    private static final String[] EXTENSIONS = {"." + BinaryRecordingCodec.EXTENSION, "." + JsonlRecordingCodec.EXTENSION};
+    private static final String GZIP_SUFFIX = ".gz";
+    private static final String INDEX_SUFFIX = ".idx";
+    private static final int BUFFER_SIZE = 64 * 1024;
+    // 单个数组的长度上限（留出 JVM 数组头的余量）与解压缓冲的初始容量上限
+    private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+    private static final int MAX_GUNZIP_INITIAL = 64 * 1024 * 1024;
+
     private final File dir;
-    private BufferedWriter writer;
+    private Compression compression;
+    private boolean memoryMapped = true;
+    // 写入链：out（可能是 gzip）→ buffered → counter → 文件，counter 统计已写入文件的字节数
+    private CountingOutputStream counter;
+    private BufferedOutputStream buffered;
+    private OutputStream out;
     private File currentFile;
 
     public FileRecordingStorage() {
-        this.dir = new File("recordings");
+        this(new File("recordings"));
+    }
+
+    public FileRecordingStorage(File dir) {
+        this(dir, Compression.NONE);
+    }
+
+    public FileRecordingStorage(File dir, Compression compression) {
+        this.dir = dir;
+        this.compression = compression != null ? compression : Compression.NONE;
         if (!dir.exists())
             dir.mkdirs();
     }
 
+    public Compression getCompression() {
+        return compression;
+    }
+
+    /**
+     * 对之后打开的文件生效
+     */
+    public void setCompression(Compression compression) {
+        this.compression = compression != null ? compression : Compression.NONE;
+    }
+
+    public boolean isMemoryMapped() {
+        return memoryMapped;
+    }
+
+    /**
+     * 读取时是否使用内存映射，关闭时按普通文件流读取
+     */
+    public void setMemoryMapped(boolean memoryMapped) {
+        this.memoryMapped = memoryMapped;
+    }
+
     @Override
     public void openForWrite(String name) throws Exception {
-        String safe = name.replaceAll("[^a-zA-Z0-9_-]", "_");
-        this.currentFile = new File(dir, safe + ".jsonl");
-        this.writer = new BufferedWriter(new FileWriter(currentFile, StandardCharsets.UTF_8, false));
+        String base = name;
+        String ext = "." + JsonlRecordingCodec.EXTENSION;
+        int dot = name.lastIndexOf('.');
+        if (dot > 0) {
+            base = name.substring(0, dot);
+            ext = "." + name.substring(dot + 1).replaceAll("[^a-zA-Z0-9]", "");
+        }
+        String safe = base.replaceAll("[^a-zA-Z0-9_-]", "_");
+        this.currentFile = new File(dir, safe + ext + (compression == Compression.NONE ? "" : GZIP_SUFFIX));
+        this.counter = new CountingOutputStream(new FileOutputStream(currentFile, false));
+        this.buffered = new BufferedOutputStream(counter, BUFFER_SIZE);
+        this.out = compression == Compression.NONE ? buffered : newGzip();
+    }
+
+    private OutputStream newGzip() throws IOException {
+        int level = compression == Compression.GZIP_FAST ? Deflater.BEST_SPEED : Deflater.DEFAULT_COMPRESSION;
+        return new MemberGzipStream(buffered, level);
+    }
+
+    @Override
+    public long markSyncPoint() throws Exception {
+        if (out == null)
+            throw new IllegalStateException("writer not opened");
+        if (out instanceof MemberGzipStream) {
+            ((MemberGzipStream) out).finishMember();
+            buffered.flush();
+            long offset = counter.count;
+            out = newGzip();
+            return offset;
+        }
+        buffered.flush();
+        return counter.count;
+    }
+
+    @Override
+    public void writeIndex(RecordingIndex index) throws Exception {
+        if (currentFile == null)
+            throw new IllegalStateException("writer not opened");
+        File f = new File(currentFile.getPath() + INDEX_SUFFIX);
+        try (OutputStream o = new BufferedOutputStream(new FileOutputStream(f, false))) {
+            index.write(o);
+        }
+    }
+
+    @Override
+    public RecordingIndex readIndex(String name) throws Exception {
+        File f = resolve(name);
+        if (f == null)
+            return null;
+        File idx = new File(f.getPath() + INDEX_SUFFIX);
+        if (!idx.exists())
+            return null;
+        try (InputStream in = new BufferedInputStream(new FileInputStream(idx))) {
+            return RecordingIndex.read(in);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 一个 gzip 成员：syncFlush 模式，flush() 时输出到目前为止的全部压缩数据
+     * 同步点处 finishMember 写出成员结尾并释放 Deflater 的本地内存（只 finish 不会释放，要等到 GC），
+     * 之后不再使用该流，也不关闭下层流
+     */
+    private static final class MemberGzipStream extends GZIPOutputStream {
+        MemberGzipStream(OutputStream out, int level) throws IOException {
+            super(out, BUFFER_SIZE, true);
+            def.setLevel(level);
+        }
+
+        void finishMember() throws IOException {
+            finish();
+            def.end();
+        }
+    }
+
+    /**
+     * 统计写入字节数，用于计算同步点偏移
+     */
+    private static final class CountingOutputStream extends FilterOutputStream {
+        long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
     }
 
     @Override
     public void appendLine(String line) throws Exception {
-        if (writer == null)
+        if (out == null)
             throw new IllegalStateException("writer not opened");
-        writer.write(line);
-        writer.write("\n");
+        out.write(line.getBytes(StandardCharsets.UTF_8));
+        out.write('\n');
+    }
+
+    @Override
+    public void append(ByteBuffer data) throws Exception {
+        if (out == null)
+            throw new IllegalStateException("writer not opened");
+        if (data.hasArray()) {
+            out.write(data.array(), data.arrayOffset() + data.position(), data.remaining());
+        } else {
+            byte[] bytes = new byte[data.remaining()];
+            data.duplicate().get(bytes);
+            out.write(bytes);
+        }
     }
 
     @Override
     public void flush() throws Exception {
-        if (writer != null)
-            writer.flush();
+        if (out != null)
+            out.flush();
     }
 
     @Override
     public void closeWrite() throws Exception {
-        if (writer != null) {
+        if (out != null) {
             try {
-                writer.flush();
+                out.flush();
             } catch (Exception ignored) {
             }
             try {
-                writer.close();
+                out.close();
             } catch (Exception ignored) {
             }
-            writer = null;
+            out = null;
+            buffered = null;
+            counter = null;
         }
         currentFile = null;
     }
 
     @Override
     public List<String> listRecordings() throws Exception {
-        File[] files = dir.listFiles((d, n) -> n.endsWith(".jsonl"));
+        File[] files = dir.listFiles((d, n) -> isRecording(n));
         if (files == null)
             return Collections.emptyList();
         List<String> names = new ArrayList<>();
@@ -71,15 +255,192 @@ public class FileRecordingStorage implements RecordingStorage {
 
     @Override
     public List<String> readAll(String name) throws Exception {
-        File f = name.endsWith(".jsonl") ? new File(dir, name) : new File(dir, name + ".jsonl");
-        if (!f.exists())
+        File f = resolve(name);
+        if (f == null)
             return Collections.emptyList();
+        // 直接在字节上按 '\n' 切分，不经过 Reader 的字符缓冲
+        ByteBuffer data = readAllBytes(name);
         List<String> lines = new ArrayList<>();
-        try (BufferedReader br = new BufferedReader(new FileReader(f, StandardCharsets.UTF_8))) {
-            String s;
-            while ((s = br.readLine()) != null)
-                lines.add(s);
+        byte[] line = new byte[256];
+        int len = 0;
+        while (data.hasRemaining()) {
+            byte b = data.get();
+            if (b == '\n') {
+                lines.add(toLine(line, len));
+                len = 0;
+                continue;
+            }
+            if (len == line.length)
+                line = Arrays.copyOf(line, len * 2);
+            line[len++] = b;
         }
+        if (len > 0)
+            lines.add(toLine(line, len));
         return lines;
     }
-}
\ No newline at end of file
+
+    private static String toLine(byte[] line, int len) {
+        if (len > 0 && line[len - 1] == '\r')
+            len--;
+        return new String(line, 0, len, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public ByteBuffer readAllBytes(String name) throws Exception {
+        File f = resolve(name);
+        if (f == null)
+            return ByteBuffer.allocate(0);
+        if (memoryMapped && f.length() <= Integer.MAX_VALUE) {
+            MappedRecording m = MappedRecording.acquire(f);
+            try {
+                ByteBuffer view = m.slice(0L, (int) m.size());
+                // 视图持有映射，释放引用后仍然有效
+                if (view != null && !isGzip(view))
+                    return view;
+            } finally {
+                m.release();
+            }
+        }
+        return ByteBuffer.wrap(readFile(f));
+    }
+
+    @Override
+    public InputStream openForRead(String name) throws Exception {
+        return openForRead(name, 0L);
+    }
+
+    @Override
+    public InputStream openForRead(String name, long offset) throws Exception {
+        File f = resolve(name);
+        if (f == null)
+            return new ByteArrayInputStream(new byte[0]);
+        InputStream raw;
+        if (memoryMapped) {
+            raw = MappedRecording.acquire(f).openStream(offset);
+        } else {
+            FileInputStream file = new FileInputStream(f);
+            if (offset > 0)
+                file.getChannel().position(offset);
+            raw = new BufferedInputStream(file, BUFFER_SIZE);
+        }
+        raw.mark(2);
+        boolean gzip = raw.read() == 0x1F && raw.read() == 0x8B;
+        raw.reset();
+        if (!gzip)
+            return raw;
+        try {
+            return new BufferedInputStream(new TruncatedGzipInputStream(new GZIPInputStream(raw, BUFFER_SIZE)), BUFFER_SIZE);
+        } catch (IOException e) {
+            raw.close();
+            throw e;
+        }
+    }
+
+    /**
+     * 把解压中的 IOException（文件截断或损坏）当作流结束，与 gunzip 的处理一致
+     */
+    private static final class TruncatedGzipInputStream extends FilterInputStream {
+        private boolean ended;
+
+        TruncatedGzipInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            return read(b, 0, 1) < 0 ? -1 : b[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (ended)
+                return -1;
+            try {
+                int n = in.read(b, off, len);
+                if (n < 0)
+                    ended = true;
+                return n;
+            } catch (IOException e) {
+                ended = true;
+                return -1;
+            }
+        }
+    }
+
+    /**
+     * 读取文件内容，gzip 压缩的文件先解压
+     */
+    private static byte[] readFile(File f) throws IOException {
+        byte[] raw = Files.readAllBytes(f.toPath());
+        if (!isGzip(raw))
+            return raw;
+        return gunzip(raw);
+    }
+
+    static boolean isGzip(byte[] data) {
+        return data.length >= 2 && (data[0] & 0xFF) == 0x1F && (data[1] & 0xFF) == 0x8B;
+    }
+
+    static boolean isGzip(ByteBuffer data) {
+        int p = data.position();
+        return data.remaining() >= 2 && (data.get(p) & 0xFF) == 0x1F && (data.get(p + 1) & 0xFF) == 0x8B;
+    }
+
+    /**
+     * 解压到数据结束或第一个错误为止；写入中断的文件没有 gzip 结尾，返回最后一次 flush 之前的内容
+     * 解压结果放不进一个数组（约 2GB）时抛出 IOException，这类文件应通过 openForRead 流式读取
+     */
+    static byte[] gunzip(byte[] data) throws IOException {
+        // 初始容量按压缩率估计，上限 MAX_GUNZIP_INITIAL，之后按需扩容
+        int initial = (int) Math.min((long) data.length * 4, MAX_GUNZIP_INITIAL);
+        ByteArrayOutputStream result = new ByteArrayOutputStream(initial);
+        byte[] buf = new byte[BUFFER_SIZE];
+        long total = 0L;
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(data), BUFFER_SIZE)) {
+            int n;
+            while ((n = in.read(buf)) > 0) {
+                total += n;
+                if (total > MAX_ARRAY_SIZE)
+                    break;
+                result.write(buf, 0, n);
+            }
+        } catch (IOException e) {
+            // 文件被截断（EOFException）或损坏，保留已解出的内容
+        }
+        if (total > MAX_ARRAY_SIZE)
+            throw new IOException("decompressed recording exceeds " + MAX_ARRAY_SIZE + " bytes");
+        return result.toByteArray();
+    }
+
+    private static boolean isRecording(String fileName) {
+        String n = fileName.endsWith(GZIP_SUFFIX) ? fileName.substring(0, fileName.length() - GZIP_SUFFIX.length()) : fileName;
+        for (String ext : EXTENSIONS) {
+            if (n.endsWith(ext))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * 带扩展名时直接查找（找不到再试 .gz），否则依次尝试已知扩展名
+     */
+    private File resolve(String name) {
+        if (isRecording(name)) {
+            File f = new File(dir, name);
+            if (f.exists())
+                return f;
+            f = new File(dir, name + GZIP_SUFFIX);
+            return f.exists() ? f : null;
+        }
+        for (String ext : EXTENSIONS) {
+            File f = new File(dir, name + ext);
+            if (f.exists())
+                return f;
+            f = new File(dir, name + ext + GZIP_SUFFIX);
+            if (f.exists())
+                return f;
+        }
+        return null;
+    }
+}
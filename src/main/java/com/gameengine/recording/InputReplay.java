@@ -0,0 +1,191 @@
+package com.gameengine.recording;
+
+import com.gameengine.input.InputManager;
+
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * 确定性录制的输入回放：读出全部按键事件与校验点，按 tick 喂给一个独立的 InputManager，
+ * 由游戏逻辑重新模拟出与录制时相同的过程
+ *
+ * 每个 tick 在场景更新之前调用 applyTick：把该 tick 的事件交给 InputManager 再调用 update()，
+ * 与录制时引擎在两步之间处理事件的顺序一致。tick 为 -1 的事件是开始录制时已经按住的键，在第 0 步之前应用。
+ * 到达校验点时用 verify 比较 StateChecksum，第一次不一致的 tick 记为分叉点。
+ * 只能向前推进：跳到之前的位置时先 rewind，再从第 0 步重新模拟。
+ */
+public class InputReplay {
+    private final RecordingHeader header;
+    private long[] ticks = new long[64];
+    private int[] keys = new int[64];
+    private boolean[] downs = new boolean[64];
+    private int count;
+    private int next;
+    private long[] checkpointTicks = new long[16];
+    private long[] checksums = new long[16];
+    private int checkpointCount;
+    private int nextCheckpoint;
+    private long lastTick;
+    private long desyncTick = -1L;
+
+    private InputReplay(RecordingHeader header) {
+        this.header = header;
+    }
+
+    /**
+     * 读取录制的输入与校验点；录制不是确定性录制时返回 null
+     */
+    public static InputReplay load(RecordingStorage storage, String name) throws Exception {
+        InputReplay[] result = new InputReplay[1];
+        InputStream in = storage.openForRead(name);
+        try (RecordingCodec.Cursor cursor = RecordingCodec.detect(in).openCursor(in)) {
+            RecordingCodec.Listener listener = new RecordingCodec.Listener() {
+                @Override
+                public void onHeader(RecordingHeader header) {
+                    if (header.isDeterministic()) {
+                        result[0] = new InputReplay(header);
+                    }
+                }
+
+                @Override
+                public void onInput(long t, int key) {
+                }
+
+                @Override
+                public void onKeyframe(Keyframe frame) {
+                    // 最后一个关键帧（结束录制时写入）不带校验点，用它的时间戳确定录制长度
+                    if (result[0] != null) {
+                        long tick = Math.round(frame.t * result[0].header.tickRate / 1000.0);
+                        result[0].lastTick = Math.max(result[0].lastTick, tick);
+                    }
+                }
+
+                @Override
+                public void onKeyEvent(long tick, int key, boolean down) {
+                    if (result[0] != null) {
+                        result[0].addEvent(tick, key, down);
+                    }
+                }
+
+                @Override
+                public void onCheckpoint(long tick, long checksum) {
+                    if (result[0] != null) {
+                        result[0].addCheckpoint(tick, checksum);
+                    }
+                }
+            };
+            // header 是第一条记录，读完它就知道是否需要继续
+            if (!cursor.next(listener) || result[0] == null) {
+                return null;
+            }
+            while (cursor.next(listener)) {
+            }
+        }
+        return result[0];
+    }
+
+    private void addEvent(long tick, int key, boolean down) {
+        if (count == ticks.length) {
+            ticks = Arrays.copyOf(ticks, count * 2);
+            keys = Arrays.copyOf(keys, count * 2);
+            downs = Arrays.copyOf(downs, count * 2);
+        }
+        ticks[count] = tick;
+        keys[count] = key;
+        downs[count] = down;
+        count++;
+        lastTick = Math.max(lastTick, tick);
+    }
+
+    private void addCheckpoint(long tick, long checksum) {
+        if (checkpointCount == checkpointTicks.length) {
+            checkpointTicks = Arrays.copyOf(checkpointTicks, checkpointCount * 2);
+            checksums = Arrays.copyOf(checksums, checkpointCount * 2);
+        }
+        checkpointTicks[checkpointCount] = tick;
+        checksums[checkpointCount] = checksum;
+        checkpointCount++;
+        lastTick = Math.max(lastTick, tick);
+    }
+
+    public RecordingHeader getHeader() {
+        return header;
+    }
+
+    /**
+     * 应用第 tick 步的按键事件并更新 input；tick 须从 0 开始逐个递增
+     */
+    public void applyTick(long tick, InputManager input) {
+        if (tick == 0) {
+            // 开始录制时已经按住的键：按下后再走一步，只保留按住状态
+            boolean held = false;
+            while (next < count && ticks[next] < 0) {
+                feed(input, next++);
+                held = true;
+            }
+            if (held) {
+                input.update();
+            }
+        }
+        while (next < count && ticks[next] <= tick) {
+            feed(input, next++);
+        }
+        input.update();
+    }
+
+    /**
+     * 回到第 0 步之前，重新模拟之前调用；分叉点同时清除
+     */
+    public void rewind() {
+        next = 0;
+        nextCheckpoint = 0;
+        desyncTick = -1L;
+    }
+
+    private void feed(InputManager input, int i) {
+        if (downs[i]) {
+            input.onKeyPressed(keys[i]);
+        } else {
+            input.onKeyReleased(keys[i]);
+        }
+    }
+
+    /**
+     * 第 tick 步有校验点时比较校验和；没有校验点或一致时返回 true
+     */
+    public boolean verify(long tick, long checksum) {
+        while (nextCheckpoint < checkpointCount && checkpointTicks[nextCheckpoint] < tick) {
+            nextCheckpoint++;
+        }
+        if (nextCheckpoint >= checkpointCount || checkpointTicks[nextCheckpoint] != tick) {
+            return true;
+        }
+        boolean match = checksums[nextCheckpoint++] == checksum;
+        if (!match && desyncTick < 0) {
+            desyncTick = tick;
+        }
+        return match;
+    }
+
+    /**
+     * 第一次校验不一致的 tick，没有分叉时为 -1
+     */
+    public long getDesyncTick() {
+        return desyncTick;
+    }
+
+    public int getCheckpointCount() {
+        return checkpointCount;
+    }
+
+    /**
+     * 录制结束时的 tick
+     */
+    public long getLastTick() {
+        return lastTick;
+    }
+
+    public boolean isFinished(long tick) {
+        return tick > lastTick;
+    }
+}
@@ -0,0 +1,421 @@
+package com.gameengine.recording;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * JSONL 录制格式（.jsonl）：每行一条 JSON 记录，可读性好，便于调试
+ * 增量帧带 "full":false 与 "removed":[id...]，其中已有对象只写 id 与位置；没有这些字段的旧文件按完整帧读取
+ *
+ * 读取用 JsonlTokenizer 直接解析字节，字段顺序与空白不限（其他工具生成的文件也能读），
+ * 关键帧与对象状态复用，稳定运行时每行不产生分配（removed 中的 id 装箱除外）。
+ */
+public class JsonlRecordingCodec implements RecordingCodec {
+    public static final String EXTENSION = "jsonl";
+
+    // 解码状态，回调的关键帧与其中的对象在各行之间复用
+    private final JsonlTokenizer tokenizer = new JsonlTokenizer();
+    private final Keyframe frame = new Keyframe();
+    private final DecodedRecord decoded = new DecodedRecord();
+    private final List<EntityState> statePool = new ArrayList<>();
+    private final List<float[]> colorPool = new ArrayList<>();
+
+    @Override
+    public String getExtension() {
+        return EXTENSION;
+    }
+
+    @Override
+    public void encodeHeader(RecordingHeader header, RecordBuffer out) {
+        String v = header.version != null ? header.version : "";
+        putLine("{" +
+                "\"type\":\"header\"," +
+                "\"t\":" + header.t + "," +
+                "\"version\":\"" + v + "\"," +
+                "\"width\":" + header.width + "," +
+                "\"height\":" + header.height + "," +
+                "\"precision\":" + header.precision +
+                (header.isDeterministic()
+                        ? ",\"tickRate\":" + header.tickRate + ",\"seed\":" + header.seed
+                        : "") +
+                "}", out);
+    }
+
+    @Override
+    public void encodeKeyEvent(long tick, int key, boolean down, RecordBuffer out) {
+        putLine("{" +
+                "\"type\":\"key\"," +
+                "\"tick\":" + tick + "," +
+                "\"key\":" + key + "," +
+                "\"down\":" + down +
+                "}", out);
+    }
+
+    @Override
+    public void encodeCheckpoint(long tick, long checksum, RecordBuffer out) {
+        putLine("{" +
+                "\"type\":\"checkpoint\"," +
+                "\"tick\":" + tick + "," +
+                "\"checksum\":" + checksum +
+                "}", out);
+    }
+
+    @Override
+    public void encodeInput(long t, int key, RecordBuffer out) {
+        putLine("{" +
+                "\"type\":\"input\"," +
+                "\"t\":" + t + "," +
+                "\"key\":" + key +
+                "}", out);
+    }
+
+    /**
+     * keyframe：对象列表位置快照；带外观的对象附加 rt/尺寸/颜色/图片路径
+     */
+    @Override
+    public void encodeKeyframe(Keyframe frame, RecordBuffer out) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("{");
+        sb.append("\"type\":\"keyframe\",");
+        sb.append("\"t\":").append(frame.t).append(",");
+        if (!frame.full) {
+            sb.append("\"full\":false,");
+            sb.append("\"removed\":[");
+            for (int i = 0; i < frame.removed.size(); i++) {
+                if (i > 0)
+                    sb.append(",");
+                sb.append(frame.removed.get(i));
+            }
+            sb.append("],");
+        }
+        sb.append("\"objects\":[");
+        boolean first = true;
+        for (EntityState s : frame.objects) {
+            if (!first)
+                sb.append(",");
+            first = false;
+            sb.append("{");
+            sb.append("\"id\":").append(s.id).append(",");
+            if (s.name != null || frame.full) {
+                sb.append("\"name\":\"").append(s.name != null ? s.name : "").append("\",");
+            }
+            sb.append("\"x\":").append(s.x).append(",");
+            sb.append("\"y\":").append(s.y);
+            if (s.rt != null) {
+                sb.append(",\"rt\":\"").append(s.rt).append("\"");
+                sb.append(",\"w\":").append(s.w);
+                sb.append(",\"h\":").append(s.h);
+                float[] c = s.color;
+                if (c != null && c.length == 4) {
+                    sb.append(",\"color\":[").append(c[0]).append(",").append(c[1]).append(",").append(c[2])
+                            .append(",").append(c[3]).append("]");
+                }
+                // 保存图片路径
+                if (s.img != null && !s.img.isEmpty()) {
+                    // 转义反斜杠
+                    String escapedPath = s.img.replace("\\", "\\\\");
+                    sb.append(",\"img\":\"").append(escapedPath).append("\"");
+                }
+            }
+            sb.append("}");
+        }
+        sb.append("]");
+        sb.append("}");
+        putLine(sb.toString(), out);
+    }
+
+    private static void putLine(String line, RecordBuffer out) {
+        out.putBytes(line.getBytes(StandardCharsets.UTF_8));
+        out.putByte('\n');
+    }
+
+    @Override
+    public void decode(ByteBuffer data, Listener listener) {
+        byte[] bytes;
+        int p;
+        int end;
+        if (data.hasArray()) {
+            bytes = data.array();
+            p = data.arrayOffset() + data.position();
+            end = p + data.remaining();
+        } else {
+            ByteBuffer in = data.duplicate();
+            bytes = new byte[in.remaining()];
+            in.get(bytes);
+            p = 0;
+            end = bytes.length;
+        }
+        while (p < end) {
+            int nl = indexOfNewline(bytes, p, end);
+            if (nl < 0) {
+                // 最后一行没有换行符，可能是写入中断的半行
+                decodeLine(bytes, p, end, listener, true);
+                break;
+            }
+            decodeLine(bytes, p, nl, listener, false);
+            p = nl + 1;
+        }
+    }
+
+    /**
+     * 逐行读取；读到的每一行都可能是写入中断的半行，按 decode 中最后一行的规则处理
+     */
+    @Override
+    public Cursor openCursor(InputStream in) {
+        return new LineCursor(in);
+    }
+
+    /**
+     * 每行独立，从同步点读取与从头读取相同
+     */
+    @Override
+    public Cursor openCursorAt(InputStream in) {
+        return openCursor(in);
+    }
+
+    /**
+     * 在复用的行缓冲上按行切分，不为每行创建 String
+     */
+    private final class LineCursor implements Cursor {
+        private final InputStream in;
+        private byte[] buf = new byte[64 * 1024];
+        private int pos;
+        private int limit;
+        // [pos, scan) 中已确认没有换行符
+        private int scan;
+        private boolean eof;
+
+        LineCursor(InputStream in) {
+            this.in = in;
+        }
+
+        @Override
+        public boolean next(Listener listener) throws IOException {
+            while (true) {
+                int nl = indexOfNewline(buf, scan, limit);
+                if (nl >= 0) {
+                    int start = pos;
+                    pos = nl + 1;
+                    scan = pos;
+                    decodeLine(buf, start, nl, listener, true);
+                    return true;
+                }
+                scan = limit;
+                if (eof) {
+                    if (pos == limit) {
+                        return false;
+                    }
+                    int start = pos;
+                    pos = limit;
+                    decodeLine(buf, start, limit, listener, true);
+                    return true;
+                }
+                fill();
+            }
+        }
+
+        private void fill() throws IOException {
+            if (pos > 0) {
+                System.arraycopy(buf, pos, buf, 0, limit - pos);
+                limit -= pos;
+                scan -= pos;
+                pos = 0;
+            }
+            if (limit == buf.length) {
+                buf = Arrays.copyOf(buf, buf.length * 2);
+            }
+            int n = in.read(buf, limit, buf.length - limit);
+            if (n < 0) {
+                eof = true;
+            } else {
+                limit += n;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    private static int indexOfNewline(byte[] bytes, int from, int end) {
+        for (int i = from; i < end; i++) {
+            if (bytes[i] == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 解码 [start, end) 中的一行；字段顺序任意，未知字段忽略，损坏的行跳过
+     * 解析完成后才交给监听器，监听器抛出的异常照常传出
+     */
+    private void decodeLine(byte[] bytes, int start, int end, Listener listener, boolean maybeTruncated) {
+        while (end > start && bytes[end - 1] <= ' ') {
+            end--;
+        }
+        if (end == start || (maybeTruncated && bytes[end - 1] != '}')) {
+            return;
+        }
+        DecodedRecord r = decoded;
+        r.clear();
+        try {
+            parseRecord(bytes, start, end, r);
+        } catch (RuntimeException e) {
+            // 损坏的行：跳过
+            r.clear();
+        }
+        r.dispatch(listener);
+    }
+
+    private void parseRecord(byte[] bytes, int start, int end, DecodedRecord r) {
+        JsonlTokenizer tok = tokenizer;
+        tok.reset(bytes, start, end);
+        tok.beginObject();
+        String type = null;
+        long t = 0L;
+        int key = 0;
+        String version = null;
+        int width = 0;
+        int height = 0;
+        float precision = 0f;
+        float tickRate = 0f;
+        long seed = 0L;
+        long tick = 0L;
+        boolean down = false;
+        long checksum = 0L;
+        Keyframe f = frame;
+        f.full = true;
+        f.objects.clear();
+        f.removed.clear();
+        while (tok.nextKey()) {
+            if (tok.keyIs("type")) {
+                type = tok.nextString();
+            } else if (tok.keyIs("t")) {
+                t = tok.nextLong();
+            } else if (tok.keyIs("objects")) {
+                tok.beginArray();
+                while (tok.hasNextElement()) {
+                    parseObject(tok);
+                }
+            } else if (tok.keyIs("full")) {
+                f.full = tok.nextBoolean();
+            } else if (tok.keyIs("removed")) {
+                tok.beginArray();
+                while (tok.hasNextElement()) {
+                    f.removed.add(tok.nextInt());
+                }
+            } else if (tok.keyIs("key")) {
+                key = tok.nextInt();
+            } else if (tok.keyIs("version")) {
+                version = tok.nextString();
+            } else if (tok.keyIs("width")) {
+                width = tok.nextInt();
+            } else if (tok.keyIs("height")) {
+                height = tok.nextInt();
+            } else if (tok.keyIs("precision")) {
+                precision = tok.nextFloat();
+            } else if (tok.keyIs("tick")) {
+                tick = tok.nextLong();
+            } else if (tok.keyIs("down")) {
+                down = tok.nextBoolean();
+            } else if (tok.keyIs("checksum")) {
+                checksum = tok.nextLong();
+            } else if (tok.keyIs("tickRate")) {
+                tickRate = tok.nextFloat();
+            } else if (tok.keyIs("seed")) {
+                seed = tok.nextLong();
+            } else {
+                tok.skipValue();
+            }
+        }
+        r.t = t;
+        r.key = key;
+        r.tick = tick;
+        r.down = down;
+        r.checksum = checksum;
+        if ("keyframe".equals(type)) {
+            f.t = t;
+            r.frame = f;
+            r.kind = DecodedRecord.KEYFRAME;
+        } else if ("input".equals(type)) {
+            r.kind = DecodedRecord.INPUT;
+        } else if ("key".equals(type)) {
+            r.kind = DecodedRecord.KEY;
+        } else if ("checkpoint".equals(type)) {
+            r.kind = DecodedRecord.CHECKPOINT;
+        } else if ("header".equals(type)) {
+            RecordingHeader h = new RecordingHeader(t, version, width, height);
+            h.precision = precision;
+            h.tickRate = tickRate;
+            h.seed = seed;
+            r.header = h;
+            r.kind = DecodedRecord.HEADER;
+        }
+    }
+
+    private void parseObject(JsonlTokenizer tok) {
+        EntityState s = nextState();
+        tok.beginObject();
+        while (tok.nextKey()) {
+            if (tok.keyIs("x")) {
+                s.x = tok.nextFloat();
+            } else if (tok.keyIs("y")) {
+                s.y = tok.nextFloat();
+            } else if (tok.keyIs("id")) {
+                s.id = tok.nextInt();
+            } else if (tok.keyIs("name")) {
+                s.name = tok.nextString();
+            } else if (tok.keyIs("rt")) {
+                s.rt = tok.nextString();
+            } else if (tok.keyIs("w")) {
+                s.w = tok.nextFloat();
+            } else if (tok.keyIs("h")) {
+                s.h = tok.nextFloat();
+            } else if (tok.keyIs("color")) {
+                if (tok.nextIsNull()) {
+                    continue;
+                }
+                float[] c = colorPool.get(frame.objects.size() - 1);
+                int n = 0;
+                tok.beginArray();
+                while (tok.hasNextElement()) {
+                    float v = tok.nextFloat();
+                    if (n < 4) c[n] = v;
+                    n++;
+                }
+                s.color = n == 4 ? c : null;
+            } else if (tok.keyIs("img")) {
+                s.img = tok.nextString();
+            } else {
+                tok.skipValue();
+            }
+        }
+    }
+
+    private EntityState nextState() {
+        int i = frame.objects.size();
+        if (i == statePool.size()) {
+            statePool.add(new EntityState());
+            colorPool.add(new float[4]);
+        }
+        EntityState s = statePool.get(i);
+        s.id = -1;
+        s.name = null;
+        s.x = 0f;
+        s.y = 0f;
+        s.rt = null;
+        s.w = 0f;
+        s.h = 0f;
+        s.color = null;
+        s.img = null;
+        frame.objects.add(s);
+        return s;
+    }
+}
@@ -0,0 +1,453 @@
+package com.gameengine.recording;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * JSON 拉取式分词器：直接在 UTF-8 字节上读取一行 JSON，不切分子串
+ *
+ * 数字就地解析；字符串经过一个按字节内容查找的小缓存，重复出现的名字/路径返回同一个 String 实例，
+ * 稳定运行时不产生分配。字段顺序任意、允许空白，未知字段用 skipValue() 跳过。
+ * 格式错误时抛出 IllegalArgumentException。同一实例可用 reset 反复读取不同的行。
+ */
+public class JsonlTokenizer {
+    private static final int STRING_CACHE_SIZE = 256;
+    private static final double[] POW10 = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+    // 不超过它的整数都能精确表示为 double
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+    private byte[] buf;
+    private int pos;
+    private int end;
+    // 最近一次 nextKey 读到的字段名（不含引号，未反转义）
+    private int keyStart;
+    private int keyEnd;
+
+    // 字符串缓存：开放寻址，键为原始字节（含转义），满了之后不再加入
+    private final byte[][] cacheKeys = new byte[STRING_CACHE_SIZE * 2][];
+    private final String[] cacheValues = new String[STRING_CACHE_SIZE * 2];
+    private int cacheCount;
+
+    public void reset(byte[] buf, int start, int end) {
+        this.buf = buf;
+        this.pos = start;
+        this.end = end;
+    }
+
+    public int position() {
+        return pos;
+    }
+
+    /**
+     * 读取对象开头的 '{'
+     */
+    public void beginObject() {
+        expect('{');
+    }
+
+    /**
+     * 读取下一个字段名与冒号；对象结束时消费 '}' 并返回 false
+     */
+    public boolean nextKey() {
+        int c = skipSeparators();
+        if (c == '}') {
+            pos++;
+            return false;
+        }
+        if (c != '"') {
+            throw error("expected field name");
+        }
+        keyStart = pos + 1;
+        keyEnd = skipString();
+        expect(':');
+        return true;
+    }
+
+    /**
+     * 最近读到的字段名是否为 key（key 只含 ASCII）
+     */
+    public boolean keyIs(String key) {
+        int n = key.length();
+        if (keyEnd - keyStart != n) {
+            return false;
+        }
+        for (int i = 0; i < n; i++) {
+            if (buf[keyStart + i] != key.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 读取数组开头的 '['
+     */
+    public void beginArray() {
+        expect('[');
+    }
+
+    /**
+     * 数组中是否还有元素；数组结束时消费 ']' 并返回 false
+     */
+    public boolean hasNextElement() {
+        int c = skipSeparators();
+        if (c == ']') {
+            pos++;
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 下一个值是否为 null（是则消费掉）
+     */
+    public boolean nextIsNull() {
+        if (skipWhitespace() == 'n' && matches("null")) {
+            pos += 4;
+            return true;
+        }
+        return false;
+    }
+
+    public boolean nextBoolean() {
+        skipWhitespace();
+        if (matches("true")) {
+            pos += 4;
+            return true;
+        }
+        if (matches("false")) {
+            pos += 5;
+            return false;
+        }
+        throw error("expected boolean");
+    }
+
+    public int nextInt() {
+        return (int) nextLong();
+    }
+
+    public long nextLong() {
+        skipWhitespace();
+        boolean negative = false;
+        if (pos < end && buf[pos] == '-') {
+            negative = true;
+            pos++;
+        }
+        int start = pos;
+        long v = 0;
+        while (pos < end) {
+            int d = buf[pos] - '0';
+            if (d < 0 || d > 9) break;
+            v = v * 10 + d;
+            pos++;
+        }
+        if (pos == start) {
+            throw error("expected number");
+        }
+        if (pos < end && (buf[pos] == '.' || buf[pos] == 'e' || buf[pos] == 'E')) {
+            // 整数字段写成了小数：按浮点读取后截断
+            pos = negative ? start - 1 : start;
+            return (long) nextDouble();
+        }
+        return negative ? -v : v;
+    }
+
+    public float nextFloat() {
+        return (float) nextDouble();
+    }
+
+    /**
+     * 就地解析数字；有效数字小于 2^53（至多 15 位总满足）、十进制指数在 ±22 以内时不经过字符串：
+     * 此时有效数字与 10 的幂都能精确表示为 double，一次乘除的结果就是正确舍入的值（Float.toString 的输出都在此范围）。
+     * 其他情况交给 Double.parseDouble
+     */
+    public double nextDouble() {
+        int c = skipWhitespace();
+        int start = pos;
+        boolean negative = false;
+        if (c == '-') {
+            negative = true;
+            pos++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int scale = 0;
+        boolean exact = true;
+        while (pos < end) {
+            int d = buf[pos] - '0';
+            if (d < 0 || d > 9) break;
+            if (digits < 18) {
+                mantissa = mantissa * 10 + d;
+                if (mantissa != 0) digits++;
+            } else {
+                exact = false;
+            }
+            pos++;
+        }
+        if (pos < end && buf[pos] == '.') {
+            pos++;
+            while (pos < end) {
+                int d = buf[pos] - '0';
+                if (d < 0 || d > 9) break;
+                if (digits < 18) {
+                    mantissa = mantissa * 10 + d;
+                    if (mantissa != 0) digits++;
+                    scale--;
+                } else {
+                    exact = false;
+                }
+                pos++;
+            }
+        }
+        if (pos < end && (buf[pos] == 'e' || buf[pos] == 'E')) {
+            pos++;
+            boolean expNegative = false;
+            if (pos < end && (buf[pos] == '-' || buf[pos] == '+')) {
+                expNegative = buf[pos] == '-';
+                pos++;
+            }
+            int exp = 0;
+            while (pos < end) {
+                int d = buf[pos] - '0';
+                if (d < 0 || d > 9) break;
+                exp = Math.min(exp * 10 + d, 10000);
+                pos++;
+            }
+            scale += expNegative ? -exp : exp;
+        }
+        int len = pos - start - (negative ? 1 : 0);
+        if (len == 0) {
+            return nextSpecialDouble(start);
+        }
+        if (exact && mantissa < MAX_EXACT_MANTISSA && scale >= -22 && scale <= 22) {
+            double v = scale < 0 ? mantissa / POW10[-scale] : mantissa * POW10[scale];
+            return negative ? -v : v;
+        }
+        return Double.parseDouble(new String(buf, start, pos - start, StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Java 写出的 NaN / Infinity / -Infinity（不是标准 JSON，但旧录制中可能出现）
+     */
+    private double nextSpecialDouble(int start) {
+        pos = start;
+        boolean negative = false;
+        if (pos < end && buf[pos] == '-') {
+            negative = true;
+            pos++;
+        }
+        if (matches("NaN")) {
+            pos += 3;
+            return Double.NaN;
+        }
+        if (matches("Infinity")) {
+            pos += 8;
+            return negative ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+        }
+        throw error("expected number");
+    }
+
+    /**
+     * 读取字符串值；null 返回 null
+     */
+    public String nextString() {
+        int c = skipWhitespace();
+        if (c == 'n' && matches("null")) {
+            pos += 4;
+            return null;
+        }
+        if (c != '"') {
+            throw error("expected string");
+        }
+        int start = pos + 1;
+        int stop = skipString();
+        return cached(start, stop);
+    }
+
+    /**
+     * 跳过任意一个值（含嵌套对象与数组）
+     */
+    public void skipValue() {
+        int c = skipWhitespace();
+        if (c == '"') {
+            skipString();
+        } else if (c == '{' || c == '[') {
+            int depth = 0;
+            while (pos < end) {
+                int b = buf[pos];
+                if (b == '"') {
+                    skipString();
+                    continue;
+                }
+                pos++;
+                if (b == '{' || b == '[') {
+                    depth++;
+                } else if (b == '}' || b == ']') {
+                    if (--depth == 0) {
+                        return;
+                    }
+                }
+            }
+            throw error("unterminated value");
+        } else {
+            // 数字或 true/false/null
+            while (pos < end) {
+                int b = buf[pos];
+                if (b == ',' || b == '}' || b == ']' || b <= ' ') break;
+                pos++;
+            }
+        }
+    }
+
+    /**
+     * 跳过空白，返回下一个字节（不消费），到达末尾时返回 -1
+     */
+    private int skipWhitespace() {
+        while (pos < end) {
+            int b = buf[pos];
+            if (b != ' ' && b != '\t' && b != '\r' && b != '\n') {
+                return b;
+            }
+            pos++;
+        }
+        return -1;
+    }
+
+    /**
+     * 跳过空白与元素之间的逗号
+     */
+    private int skipSeparators() {
+        while (true) {
+            int c = skipWhitespace();
+            if (c != ',') {
+                if (c < 0) {
+                    throw error("unexpected end");
+                }
+                return c;
+            }
+            pos++;
+        }
+    }
+
+    private void expect(int c) {
+        if (skipWhitespace() != c) {
+            throw error("expected '" + (char) c + "'");
+        }
+        pos++;
+    }
+
+    private boolean matches(String literal) {
+        int n = literal.length();
+        if (end - pos < n) {
+            return false;
+        }
+        for (int i = 0; i < n; i++) {
+            if (buf[pos + i] != literal.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * pos 在开头的引号上；跳到结尾引号之后，返回结尾引号的位置
+     */
+    private int skipString() {
+        pos++;
+        while (pos < end) {
+            int b = buf[pos];
+            if (b == '\\') {
+                pos += 2;
+                continue;
+            }
+            if (b == '"') {
+                return pos++;
+            }
+            pos++;
+        }
+        throw error("unterminated string");
+    }
+
+    private String cached(int start, int stop) {
+        int len = stop - start;
+        int h = 0;
+        for (int i = start; i < stop; i++) {
+            h = 31 * h + buf[i];
+        }
+        int mask = cacheKeys.length - 1;
+        int slot = (h ^ (h >>> 16)) & mask;
+        while (cacheKeys[slot] != null) {
+            byte[] k = cacheKeys[slot];
+            if (k.length == len && regionEquals(k, start)) {
+                return cacheValues[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        String value = decodeString(start, stop);
+        if (cacheCount < STRING_CACHE_SIZE) {
+            byte[] key = new byte[len];
+            System.arraycopy(buf, start, key, 0, len);
+            cacheKeys[slot] = key;
+            cacheValues[slot] = value;
+            cacheCount++;
+        }
+        return value;
+    }
+
+    private boolean regionEquals(byte[] key, int start) {
+        for (int i = 0; i < key.length; i++) {
+            if (key[i] != buf[start + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 反转义 [start, stop) 中的字符串内容
+     */
+    private String decodeString(int start, int stop) {
+        boolean escaped = false;
+        for (int i = start; i < stop; i++) {
+            if (buf[i] == '\\') {
+                escaped = true;
+                break;
+            }
+        }
+        if (!escaped) {
+            return new String(buf, start, stop - start, StandardCharsets.UTF_8);
+        }
+        // 转义序列都是 ASCII，先按 UTF-8 解码再处理转义
+        String raw = new String(buf, start, stop - start, StandardCharsets.UTF_8);
+        StringBuilder sb = new StringBuilder(raw.length());
+        for (int i = 0; i < raw.length(); i++) {
+            char ch = raw.charAt(i);
+            if (ch != '\\' || i + 1 >= raw.length()) {
+                sb.append(ch);
+                continue;
+            }
+            char e = raw.charAt(++i);
+            switch (e) {
+                case 'n': sb.append('\n'); break;
+                case 't': sb.append('\t'); break;
+                case 'r': sb.append('\r'); break;
+                case 'b': sb.append('\b'); break;
+                case 'f': sb.append('\f'); break;
+                case 'u':
+                    if (i + 4 < raw.length()) {
+                        sb.append((char) Integer.parseInt(raw.substring(i + 1, i + 5), 16));
+                        i += 4;
+                    }
+                    break;
+                default: sb.append(e); break;
+            }
+        }
+        return sb.toString();
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException(message + " at " + pos);
+    }
+}
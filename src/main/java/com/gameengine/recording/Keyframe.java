@@ -0,0 +1,28 @@
+package com.gameengine.recording;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 关键帧：时间戳（相对录制开始的毫秒数）与对象状态列表
+ *
+ * full 为 true 时 objects 是完整状态；否则为增量帧，objects 只含相对上一帧新出现或移动过的对象，
+ * removed 为上一帧之后消失的对象 id。增量帧需要从最近的完整帧开始依次应用（见 KeyframeAssembler）。
+ */
+public class Keyframe {
+    public long t;
+    public boolean full = true;
+    public List<EntityState> objects;
+    public List<Integer> removed;
+
+    public Keyframe() {
+        this.objects = new ArrayList<>();
+        this.removed = new ArrayList<>();
+    }
+
+    public Keyframe(long t, List<EntityState> objects) {
+        this.t = t;
+        this.objects = objects;
+        this.removed = new ArrayList<>();
+    }
+}
@@ -0,0 +1,101 @@
+package com.gameengine.recording;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 由完整帧与增量帧重建完整状态
+ *
+ * 完整帧替换全部状态；增量帧先移除 removed 中的对象，再更新已有对象的位置、加入新对象。
+ * 在第一个完整帧之前收到的增量帧被忽略。对象按首次出现的顺序排列。
+ * 旧格式（旧 JSONL、二进制 v1）没有 id：按（名字，该名字在帧内的序号）分配固定的负数 id，
+ * 前面的对象消失时其他名字的对象不受影响，与按名字分组对应的旧回放方式一致。
+ */
+public class KeyframeAssembler {
+    private final Map<Integer, EntityState> states = new LinkedHashMap<>();
+    private long t;
+    private boolean ready;
+    // 旧格式的占位 id：键为 名字序号 << 32 | 帧内同名序号
+    private final Map<String, Integer> legacyNames = new HashMap<>();
+    private final Map<Long, Integer> legacyIds = new HashMap<>();
+    private final Map<String, int[]> legacyCounts = new HashMap<>();
+
+    public void reset() {
+        states.clear();
+        legacyNames.clear();
+        legacyIds.clear();
+        t = 0;
+        ready = false;
+    }
+
+    /**
+     * 应用一帧，返回是否生效
+     */
+    public boolean apply(Keyframe frame) {
+        if (frame.full) {
+            states.clear();
+            legacyCounts.clear();
+            for (EntityState s : frame.objects) {
+                EntityState copy = s.copy();
+                if (copy.id < 0) {
+                    copy.id = legacyId(copy.name);
+                }
+                states.put(copy.id, copy);
+            }
+            ready = true;
+        } else {
+            if (!ready) {
+                return false;
+            }
+            for (Integer id : frame.removed) {
+                states.remove(id);
+            }
+            for (EntityState s : frame.objects) {
+                EntityState cur = states.get(s.id);
+                if (cur != null) {
+                    cur.x = s.x;
+                    cur.y = s.y;
+                } else if (s.name != null) {
+                    states.put(s.id, s.copy());
+                }
+            }
+        }
+        t = frame.t;
+        return true;
+    }
+
+    private int legacyId(String name) {
+        String n = name != null ? name : "";
+        Integer nameIndex = legacyNames.get(n);
+        if (nameIndex == null) {
+            nameIndex = legacyNames.size();
+            legacyNames.put(n, nameIndex);
+        }
+        int[] count = legacyCounts.computeIfAbsent(n, k -> new int[1]);
+        long key = ((long) nameIndex << 32) | count[0]++;
+        Integer id = legacyIds.get(key);
+        if (id == null) {
+            id = -(legacyIds.size() + 1);
+            legacyIds.put(key, id);
+        }
+        return id;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * 当前完整状态的副本
+     */
+    public Keyframe toKeyframe() {
+        List<EntityState> list = new ArrayList<>(states.size());
+        for (EntityState s : states.values()) {
+            list.add(s.copy());
+        }
+        return new Keyframe(t, list);
+    }
+}
@@ -0,0 +1,198 @@
+package com.gameengine.recording;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 只读内存映射的录制文件，读取时由操作系统的页缓存负责缓冲，不经过 Java 堆上的读缓冲
+ *
+ * 同一个文件的多个回放（多次 openForRead、跳转后重新打开）共享一份映射：acquire 增加引用计数，
+ * 每个持有者用完后 release 一次，计数归零时从共享表中移除。文件在映射之后变长（仍在录制）时，
+ * 下一次 acquire 会按新长度建立新映射，已有的持有者继续使用旧映射。
+ * 单个 MappedByteBuffer 最大 2GB，文件按 1GB 分段映射，读取可以跨段。
+ */
+public final class MappedRecording {
+    private static final int SEGMENT_SHIFT = 30;
+    private static final long SEGMENT_SIZE = 1L << SEGMENT_SHIFT;
+    private static final Map<String, MappedRecording> SHARED = new HashMap<>();
+
+    private final String key;
+    private final long size;
+    private final MappedByteBuffer[] segments;
+    // 引用计数，由 SHARED 的锁保护
+    private int refs;
+
+    private MappedRecording(String key, FileChannel channel, long size) throws IOException {
+        this.key = key;
+        this.size = size;
+        int n = (int) ((size + SEGMENT_SIZE - 1) >>> SEGMENT_SHIFT);
+        this.segments = new MappedByteBuffer[n];
+        for (int i = 0; i < n; i++) {
+            long start = (long) i << SEGMENT_SHIFT;
+            segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(SEGMENT_SIZE, size - start));
+        }
+    }
+
+    /**
+     * 取得文件的共享映射（引用计数加一），用完须调用 release
+     */
+    public static MappedRecording acquire(File file) throws IOException {
+        String key = file.getCanonicalPath();
+        synchronized (SHARED) {
+            MappedRecording m = SHARED.get(key);
+            if (m == null || m.size != file.length()) {
+                try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                    m = new MappedRecording(key, channel, channel.size());
+                }
+                SHARED.put(key, m);
+            }
+            m.refs++;
+            return m;
+        }
+    }
+
+    /**
+     * 释放一次引用；映射本身在没有缓冲区引用后由 GC 解除
+     */
+    public void release() {
+        synchronized (SHARED) {
+            if (refs <= 0) {
+                return;
+            }
+            if (--refs == 0 && SHARED.get(key) == this) {
+                SHARED.remove(key);
+            }
+        }
+    }
+
+    /**
+     * 当前共享的映射数，用于统计
+     */
+    public static int sharedCount() {
+        synchronized (SHARED) {
+            return SHARED.size();
+        }
+    }
+
+    public long size() {
+        return size;
+    }
+
+    /**
+     * 从 position 处读取最多 len 个字节到 dst，返回读到的字节数，position 到达末尾时返回 -1
+     * 使用绝对位置读取，多个线程可以同时读同一份映射
+     */
+    public int read(long position, byte[] dst, int off, int len) {
+        if (position >= size) {
+            return -1;
+        }
+        int total = 0;
+        while (len > 0 && position < size) {
+            MappedByteBuffer seg = segments[(int) (position >>> SEGMENT_SHIFT)];
+            int index = (int) (position & (SEGMENT_SIZE - 1));
+            int n = Math.min(len, seg.limit() - index);
+            seg.get(index, dst, off, n);
+            position += n;
+            off += n;
+            len -= n;
+            total += n;
+        }
+        return total;
+    }
+
+    /**
+     * [position, position + length) 的只读视图，不复制；区间跨段时返回 null
+     */
+    public ByteBuffer slice(long position, int length) {
+        if (length == 0 && position <= size) {
+            return ByteBuffer.allocate(0).asReadOnlyBuffer();
+        }
+        int seg = (int) (position >>> SEGMENT_SHIFT);
+        int index = (int) (position & (SEGMENT_SIZE - 1));
+        if (position + length > size || index + length > segments[seg].limit()) {
+            return null;
+        }
+        return segments[seg].asReadOnlyBuffer().position(index).limit(index + length).slice();
+    }
+
+    /**
+     * 从 offset 处开始的输入流，支持 mark/reset；关闭流时释放一次引用
+     * 调用方已经 acquire 过，流接管这次引用
+     */
+    public InputStream openStream(long offset) {
+        return new MappedInputStream(this, Math.min(Math.max(0L, offset), size));
+    }
+
+    private static final class MappedInputStream extends InputStream {
+        private final MappedRecording mapping;
+        private final byte[] single = new byte[1];
+        private long position;
+        private long mark;
+        private boolean closed;
+
+        MappedInputStream(MappedRecording mapping, long position) {
+            this.mapping = mapping;
+            this.position = position;
+            this.mark = position;
+        }
+
+        @Override
+        public int read() {
+            return read(single, 0, 1) < 0 ? -1 : single[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            int n = mapping.read(position, b, off, len);
+            if (n > 0) {
+                position += n;
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) {
+            long skipped = Math.max(0L, Math.min(n, mapping.size - position));
+            position += skipped;
+            return skipped;
+        }
+
+        @Override
+        public int available() {
+            return (int) Math.min(Integer.MAX_VALUE, mapping.size - position);
+        }
+
+        @Override
+        public boolean markSupported() {
+            return true;
+        }
+
+        @Override
+        public synchronized void mark(int readlimit) {
+            mark = position;
+        }
+
+        @Override
+        public synchronized void reset() {
+            position = mark;
+        }
+
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                mapping.release();
+            }
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.gameengine.recording;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 可增长的小端字节缓冲，编码器向其中写记录，写完后用 view() 交给存储
+ * 只在容量不足时扩容，复用同一实例可以避免每帧分配
+ */
+public final class RecordBuffer {
+    private ByteBuffer buf;
+
+    public RecordBuffer() {
+        this(4096);
+    }
+
+    public RecordBuffer(int initialCapacity) {
+        this.buf = ByteBuffer.allocate(Math.max(16, initialCapacity)).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    public void clear() {
+        buf.clear();
+    }
+
+    public int position() {
+        return buf.position();
+    }
+
+    /**
+     * 已写入内容的只读视图 [0, position)
+     */
+    public ByteBuffer view() {
+        ByteBuffer v = buf.duplicate();
+        v.flip();
+        return v.asReadOnlyBuffer().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    public void putByte(int b) {
+        ensure(1);
+        buf.put((byte) b);
+    }
+
+    public void putBytes(byte[] bytes) {
+        ensure(bytes.length);
+        buf.put(bytes);
+    }
+
+    public void putFloat(float v) {
+        ensure(4);
+        buf.putFloat(v);
+    }
+
+    /**
+     * 无符号 LEB128 变长整数
+     */
+    public void putVarLong(long v) {
+        ensure(10);
+        while ((v & ~0x7FL) != 0) {
+            buf.put((byte) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        buf.put((byte) v);
+    }
+
+    public void putVarInt(int v) {
+        putVarLong(v & 0xFFFFFFFFL);
+    }
+
+    /**
+     * 字符串：UTF-8 字节长度（变长整数）+ 字节
+     */
+    public void putString(String s) {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        putVarInt(bytes.length);
+        putBytes(bytes);
+    }
+
+    /**
+     * 在 pos 处写入定长 4 字节的小端 int（用于回填记录长度）
+     */
+    public void putIntAt(int pos, int v) {
+        buf.putInt(pos, v);
+    }
+
+    public void putInt(int v) {
+        ensure(4);
+        buf.putInt(v);
+    }
+
+    public void putLong(long v) {
+        ensure(8);
+        buf.putLong(v);
+    }
+
+    private void ensure(int n) {
+        if (buf.remaining() >= n) {
+            return;
+        }
+        int cap = Math.max(buf.capacity() * 2, buf.position() + n);
+        ByteBuffer grown = ByteBuffer.allocate(cap).order(ByteOrder.LITTLE_ENDIAN);
+        buf.flip();
+        grown.put(buf);
+        buf = grown;
+    }
+}
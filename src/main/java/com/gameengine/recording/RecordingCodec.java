@@ -0,0 +1,111 @@
+package com.gameengine.recording;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * 录制文件编解码器：写入时把记录编码到 RecordBuffer，读取时解码整段字节并回调监听器
+ *
+ * 记录分三类：header（每个文件一条，总在最前）、input（刚按下的按键）、keyframe（对象状态快照）。
+ * 确定性录制另有 key（按模拟步记录的按下/松开事件）与 checkpoint（某一步开始时的状态校验和）。
+ * 读取有两种方式：decode 一次解码整段字节；openCursor 从流中逐条拉取，内存占用与文件长度无关。
+ * 目前有两种实现：紧凑的二进制格式（默认）与便于调试的 JSONL。
+ */
+public interface RecordingCodec {
+    /**
+     * 解码回调；回调的 Keyframe 及其中的对象可能被解码器复用，只在回调期间有效，需要保留时拷贝
+     */
+    interface Listener {
+        void onHeader(RecordingHeader header);
+
+        void onInput(long t, int key);
+
+        void onKeyframe(Keyframe frame);
+
+        default void onKeyEvent(long tick, int key, boolean down) {
+        }
+
+        default void onCheckpoint(long tick, long checksum) {
+        }
+    }
+
+    /**
+     * 逐条读取记录的游标，不是线程安全的
+     */
+    interface Cursor extends Closeable {
+        /**
+         * 读取下一条记录，解码出内容时回调 listener；流结束或末尾记录不完整时返回 false
+         */
+        boolean next(Listener listener) throws IOException;
+    }
+
+    /**
+     * 文件扩展名（不含点）
+     */
+    String getExtension();
+
+    void encodeHeader(RecordingHeader header, RecordBuffer out);
+
+    void encodeInput(long t, int key, RecordBuffer out);
+
+    void encodeKeyframe(Keyframe frame, RecordBuffer out);
+
+    /**
+     * 第 tick 步开始前生效的按键事件；tick 为 -1 表示录制开始时已经按住的键
+     */
+    void encodeKeyEvent(long tick, int key, boolean down, RecordBuffer out);
+
+    /**
+     * 第 tick 步开始时的状态校验和，回放时用于检测不同步
+     */
+    void encodeCheckpoint(long tick, long checksum, RecordBuffer out);
+
+    /**
+     * 解码 data 中的全部记录；末尾不完整的记录（例如写入中断）被忽略
+     */
+    void decode(ByteBuffer data, Listener listener);
+
+    /**
+     * 在 in 上打开游标；关闭游标会关闭 in。同一个编解码器实例同时只能有一个游标或 decode 在使用
+     */
+    Cursor openCursor(InputStream in) throws IOException;
+
+    /**
+     * 在同一文件中间的同步点上打开游标（见 RecordingStorage.markSyncPoint），in 从同步点开始。
+     * 需要先用同一个实例的 openCursor 读过文件开头（格式版本与 header）
+     */
+    Cursor openCursorAt(InputStream in) throws IOException;
+
+    /**
+     * 按内容选择解码器：以二进制魔数开头的用二进制格式，否则按 JSONL 处理
+     */
+    static RecordingCodec detect(ByteBuffer data) {
+        if (BinaryRecordingCodec.hasMagic(data)) {
+            return new BinaryRecordingCodec();
+        }
+        return new JsonlRecordingCodec();
+    }
+
+    /**
+     * 按流开头的内容选择解码器，不消耗流中的数据；in 须支持 mark/reset
+     */
+    static RecordingCodec detect(InputStream in) throws IOException {
+        if (!in.markSupported()) {
+            throw new IllegalArgumentException("stream must support mark/reset");
+        }
+        byte[] head = new byte[4];
+        in.mark(head.length);
+        int n = 0;
+        while (n < head.length) {
+            int r = in.read(head, n, head.length - n);
+            if (r < 0) {
+                break;
+            }
+            n += r;
+        }
+        in.reset();
+        return detect(ByteBuffer.wrap(head, 0, n));
+    }
+}
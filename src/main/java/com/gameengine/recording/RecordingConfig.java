@@ -1,9 +1,33 @@
 package com.gameengine.recording;
 
 public class RecordingConfig {
+    /**
+     * 写线程跟不上、队列已满时新关键帧的处理方式
+     * BLOCK：游戏线程等待空位；DROP：丢弃新帧；COALESCE：只保留最新一帧，空出位置后再入队
+     * 输入事件在任何策略下都不丢弃，随下一次入队的数据写出
+     */
+    public enum OverflowPolicy { BLOCK, DROP, COALESCE }
+
     private long warmupNs = 500_000_000L;
     private long intervalNs = 100_000_000L;
     private int[] keys = new int[]{32, 80, 87, 83, 65, 68, 38, 40, 37, 39, 49, 50, 51, 52, 53, 54, 55, 97, 98, 99, 100, 101, 102, 103};
+    // 录制文件格式，默认二进制；调试时可换成 JsonlRecordingCodec
+    private RecordingCodec codec = new BinaryRecordingCodec();
+    // 游戏线程与写线程之间的快照队列长度（向上取 2 的幂）
+    private int queueCapacity = 16;
+    private OverflowPolicy overflowPolicy = OverflowPolicy.COALESCE;
+    // 位置量化精度（像素），0 表示按原始浮点记录
+    private float positionPrecision = 0.1f;
+    // 增量帧只记录相对上次写出位置移动超过该距离（像素）的对象
+    private float deltaThreshold = 0.5f;
+    // 每隔多少个关键帧写一个完整帧，1 表示不使用增量帧
+    private int fullKeyframeInterval = 50;
+    // 确定性录制：按固定步长计 tick，记录按键按下/松开事件与随机种子，回放时重新模拟；关键帧只作为校验点
+    private boolean deterministic = false;
+    private long seed = 0L;
+    private float tickRate = 60f;
+    // 确定性录制时每隔多少 tick 写一个带状态校验和的关键帧
+    private int checkpointInterval = 300;
 
     public long getWarmupNs() { return warmupNs; }
     public void setWarmupNs(long warmupNs) { this.warmupNs = warmupNs; }
@@ -11,4 +35,24 @@ public class RecordingConfig {
     public void setIntervalNs(long intervalNs) { this.intervalNs = intervalNs; }
     public int[] getKeys() { return keys; }
     public void setKeys(int[] keys) { this.keys = keys; }
-}
\ No newline at end of file
+    public RecordingCodec getCodec() { return codec; }
+    public void setCodec(RecordingCodec codec) { this.codec = codec; }
+    public int getQueueCapacity() { return queueCapacity; }
+    public void setQueueCapacity(int queueCapacity) { this.queueCapacity = queueCapacity; }
+    public OverflowPolicy getOverflowPolicy() { return overflowPolicy; }
+    public void setOverflowPolicy(OverflowPolicy overflowPolicy) { this.overflowPolicy = overflowPolicy; }
+    public float getPositionPrecision() { return positionPrecision; }
+    public void setPositionPrecision(float positionPrecision) { this.positionPrecision = positionPrecision; }
+    public float getDeltaThreshold() { return deltaThreshold; }
+    public void setDeltaThreshold(float deltaThreshold) { this.deltaThreshold = deltaThreshold; }
+    public int getFullKeyframeInterval() { return fullKeyframeInterval; }
+    public void setFullKeyframeInterval(int fullKeyframeInterval) { this.fullKeyframeInterval = fullKeyframeInterval; }
+    public boolean isDeterministic() { return deterministic; }
+    public void setDeterministic(boolean deterministic) { this.deterministic = deterministic; }
+    public long getSeed() { return seed; }
+    public void setSeed(long seed) { this.seed = seed; }
+    public float getTickRate() { return tickRate; }
+    public void setTickRate(float tickRate) { this.tickRate = tickRate; }
+    public int getCheckpointInterval() { return checkpointInterval; }
+    public void setCheckpointInterval(int checkpointInterval) { this.checkpointInterval = checkpointInterval; }
+}
@@ -0,0 +1,33 @@
+package com.gameengine.recording;
+
+/**
+ * 录制文件头：版本与窗口尺寸等元信息，用于回放初始化
+ */
+public class RecordingHeader {
+    public long t;
+    public String version;
+    public int width;
+    public int height;
+    // 位置量化精度（单位像素），0 表示不量化
+    public float precision;
+    // 确定性录制：模拟频率（步/秒）与随机种子；tickRate 为 0 表示只能按关键帧回放
+    public float tickRate;
+    public long seed;
+
+    /**
+     * 是否为确定性录制（可以按输入重新模拟）
+     */
+    public boolean isDeterministic() {
+        return tickRate > 0f;
+    }
+
+    public RecordingHeader() {
+    }
+
+    public RecordingHeader(long t, String version, int width, int height) {
+        this.t = t;
+        this.version = version;
+        this.width = width;
+        this.height = height;
+    }
+}
@@ -0,0 +1,115 @@
+package com.gameengine.recording;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * 录制文件的时间索引：完整关键帧的时间戳与其同步点的文件偏移，按时间递增
+ *
+ * 由写线程在每个完整帧前记录，录制结束时写成旁路文件（见 RecordingStorage.writeIndex）。
+ * 回放跳转时找到目标时间之前最近的完整帧，从它的偏移处开始解码。
+ * 文件格式（大端）：魔数 "KIDX"、版本、时长（毫秒）、条目数、每条 t 与 offset。
+ */
+public class RecordingIndex {
+    private static final int MAGIC = 0x4B494458;
+    private static final int VERSION = 1;
+
+    private long[] times = new long[64];
+    private long[] offsets = new long[64];
+    private int count;
+    private long durationMs;
+
+    public void add(long t, long offset) {
+        if (count == times.length) {
+            times = Arrays.copyOf(times, count * 2);
+            offsets = Arrays.copyOf(offsets, count * 2);
+        }
+        times[count] = t;
+        offsets[count] = offset;
+        count++;
+        durationMs = Math.max(durationMs, t);
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public long getTime(int i) {
+        return times[i];
+    }
+
+    public long getOffset(int i) {
+        return offsets[i];
+    }
+
+    /**
+     * 录制时长，即最后一个关键帧的时间戳
+     */
+    public long getDurationMs() {
+        return durationMs;
+    }
+
+    public void setDurationMs(long durationMs) {
+        this.durationMs = durationMs;
+    }
+
+    /**
+     * 时间不晚于 t 的最后一个条目的下标，t 早于所有条目时返回 0，索引为空时返回 -1
+     */
+    public int floor(long t) {
+        if (count == 0) {
+            return -1;
+        }
+        int lo = 0;
+        int hi = count - 1;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (times[mid] <= t) {
+                lo = mid;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return lo;
+    }
+
+    public void write(OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeInt(VERSION);
+        data.writeLong(durationMs);
+        data.writeInt(count);
+        for (int i = 0; i < count; i++) {
+            data.writeLong(times[i]);
+            data.writeLong(offsets[i]);
+        }
+        data.flush();
+    }
+
+    /**
+     * 读取索引，格式不对时抛出 IOException
+     */
+    public static RecordingIndex read(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        if (data.readInt() != MAGIC) {
+            throw new IOException("not a recording index");
+        }
+        int version = data.readInt();
+        if (version > VERSION) {
+            throw new IOException("unsupported index version " + version);
+        }
+        RecordingIndex index = new RecordingIndex();
+        long duration = data.readLong();
+        int n = data.readInt();
+        for (int i = 0; i < n; i++) {
+            long t = data.readLong();
+            index.add(t, data.readLong());
+        }
+        index.durationMs = duration;
+        return index;
+    }
+}
@@ -8,25 +8,34 @@ import com.gameengine.components.RenderComponent;
 import com.gameengine.input.InputManager;
 import com.gameengine.components.RenderComponent.Color;
 
-import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
 
 /**
- * 录制服务：将运行过程写成 JSONL（header/input/keyframe）。
+ * 录制服务：将运行过程写成 header/input/keyframe 记录，编码格式由 RecordingConfig 的编解码器决定
+ * （默认二进制，可选 JSONL）。
+ *
+ * 游戏线程只把输入和对象状态拷贝进预分配的快照，编码、写盘与 flush 由 AsyncRecordingWriter 的写线程完成，
+ * 磁盘抖动不会直接变成掉帧。写线程跟不上时按 overflowPolicy 阻塞、丢帧或合并。
  *
  * 配置/策略：
  * - warmupNs：暖机期，避免刚启动就写入空关键帧。
  * - intervalNs：关键帧间隔，按固定周期写入状态快照。
- * - known：外观去重集，同名对象的渲染描述只写一次，后续只写位置。
+ * - queueCapacity / overflowPolicy：快照队列长度与溢出策略。
  *
  * 生命周期：
- * - start(scene, renderer, input, name, version)：写 header 并启用录制。
- * - onFrame(deltaTime)：写 just-pressed 输入；暖机后按周期写 keyframe。
- * - stop()：写最后一帧并关闭存储。
+ * - start(scene, renderer, input, name, version)：写 header，启动写线程。
+ * - onFrame(deltaTime)：记录 just-pressed 输入；暖机后按周期拷贝 keyframe 并入队。
+ * - stop()：入队最后一帧，等待写线程写完并关闭存储。
+ *
+ * 确定性模式（config.deterministic）：onFrame 每次调用算一个固定步长的 tick，
+ * 通过 InputManager 的监听记录每个按键的按下/松开及其 tick，header 写入 tickRate 与随机种子，
+ * 回放时按相同 tick 喂回输入重新模拟（见 InputReplay）。关键帧只每 checkpointInterval 个 tick 写一次，
+ * 附带场景状态校验和（StateChecksum），用来发现回放分叉。
  */
 public class RecordingService {
+    // 等待写线程收尾的最长时间
+    private static final long CLOSE_TIMEOUT_MS = 2000L;
+
     // 存储抽象
     private final RecordingStorage storage;
     private final RecordingConfig config;
@@ -38,12 +47,16 @@ public class RecordingService {
     private boolean recording;
     private long startNs;
     private long lastKeyframeNs;
+    // 确定性模式：当前 tick（onFrame 结束时加一）
+    private boolean deterministic;
+    private long tick;
+    private InputManager.KeyEventListener keyListener;
     // 暖机时间与关键帧周期来源于config
     // 元信息写入到 header
     private String name;
     private String version;
-    // 外观去重,同名对象的外观只写一次
-    private final Set<String> known;
+    private final RecordingCodec codec;
+    private AsyncRecordingWriter writer;
 
     public RecordingService(RecordingStorage storage) {
         this(storage, new RecordingConfig());
@@ -52,11 +65,11 @@ public class RecordingService {
     public RecordingService(RecordingStorage storage, RecordingConfig config) {
         this.storage = storage;
         this.config = config;
-        this.known = new HashSet<>();
+        this.codec = config.getCodec() != null ? config.getCodec() : new BinaryRecordingCodec();
     }
 
     /**
-     * 开始录制：写入 header 并初始化时间轴。
+     * 开始录制：写入 header 并初始化时间轴，之后的记录交给写线程。
      */
     public void start(Scene scene, Renderer renderer, InputManager input, String name, String version) {
         try {
@@ -65,13 +78,26 @@ public class RecordingService {
             this.input = input;
             this.name = name;
             this.version = version;
-            this.storage.openForWrite(name);
-            this.recording = true;
+            this.storage.openForWrite(name + "." + codec.getExtension());
             this.startNs = System.nanoTime();
             this.lastKeyframeNs = startNs;
-            String header = headerJson(nowMs());
-            storage.appendLine(header);
+            this.deterministic = config.isDeterministic() && config.getTickRate() > 0f;
+            this.tick = 0L;
+            RecordBuffer buffer = new RecordBuffer(256);
+            codec.encodeHeader(header(nowMs()), buffer);
+            storage.append(buffer.view());
             storage.flush();
+            this.writer = new AsyncRecordingWriter(storage, codec, config);
+            this.writer.start();
+            if (deterministic && input != null) {
+                // 开始录制时已经按住的键
+                for (int code : input.getPressedKeys()) {
+                    writer.addKeyEvent(-1L, code, true);
+                }
+                keyListener = (code, down) -> writer.addKeyEvent(tick, code, down);
+                input.addKeyEventListener(keyListener);
+            }
+            this.recording = true;
         } catch (Exception e) {
             this.recording = false;
         }
@@ -79,43 +105,67 @@ public class RecordingService {
 
     /**
      * 帧回调：
-     * - 先写 just-pressed 输入事件；
-     * - 暖机结束后，按 intervalNs 周期写关键帧。
+     * - 先记录 just-pressed 输入事件；
+     * - 暖机结束后，按 intervalNs 周期拷贝关键帧并入队；
+     * - 队列满时留下的关键帧（COALESCE）在之后的帧里继续尝试入队。
      */
     public void onFrame(float deltaTime) {
         if (!recording)
             return;
+        if (deterministic) {
+            onTick();
+            return;
+        }
         long n = System.nanoTime();
         long t = nowMs(n);
         recordInputs(t);
         if (n - startNs < config.getWarmupNs())
             return;
         if (n - lastKeyframeNs >= config.getIntervalNs()) {
-            String keyFrame = keyframeJson(t);
-            try {
-                storage.appendLine(keyFrame);
-                storage.flush();
-            } catch (Exception e) {
-            }
+            captureKeyframe(t);
+            writer.offer();
             lastKeyframeNs = n;
+        } else if (writer.hasPendingKeyframe()) {
+            writer.offer();
+        }
+    }
+
+    /**
+     * 确定性模式的一个 tick：到校验点时拷贝带校验和的关键帧，时间戳为 tick 换算的毫秒
+     * 按键事件已由监听在 InputManager.update() 中记下，属于本 tick
+     */
+    private void onTick() {
+        int interval = Math.max(1, config.getCheckpointInterval());
+        if (tick % interval == 0) {
+            captureKeyframe(tickMs(tick));
+            writer.setCheckpoint(tick, StateChecksum.of(scene));
+            writer.offer();
+        } else if (writer.hasPendingKeyframe()) {
+            writer.offer();
         }
+        tick++;
     }
 
     /**
-     * 结束录制：强制写最后关键帧并关闭存储。
+     * 结束录制：入队最后关键帧，等待写线程写完并关闭存储。
      */
     public void stop() {
         if (!recording)
             return;
-        try {
-            String keyFrame = keyframeJson(nowMs());
-            storage.appendLine(keyFrame);
-            storage.flush();
-            storage.closeWrite();
-        } catch (Exception e) {
+        if (keyListener != null) {
+            input.removeKeyEventListener(keyListener);
+            keyListener = null;
         }
+        captureKeyframe(deterministic ? tickMs(tick) : nowMs());
+        writer.close(CLOSE_TIMEOUT_MS);
         recording = false;
-        known.clear();
+    }
+
+    /**
+     * 写线程与队列统计，未开始录制时为 null
+     */
+    public AsyncRecordingWriter getWriter() {
+        return writer;
     }
 
     private long nowMs() {
@@ -126,6 +176,10 @@ public class RecordingService {
         return (n - startNs) / 1_000_000L;
     }
 
+    private long tickMs(long t) {
+        return (long) (t * 1000.0 / config.getTickRate());
+    }
+
     /**
      * 采集输入：只记录“刚按下”的按键以便回放驱动逻辑。
      */
@@ -135,11 +189,7 @@ public class RecordingService {
         int[] keys = config.getKeys();
         for (int code : keys) {
             if (input.isKeyJustPressed(code)) {
-                String line = inputJson(t, code);
-                try {
-                    storage.appendLine(line);
-                } catch (Exception e) {
-                }
+                writer.addInput(t, code);
             }
         }
     }
@@ -147,83 +197,50 @@ public class RecordingService {
     /**
      * header：窗口尺寸与版本等元信息，用于回放初始化。
      */
-    private String headerJson(long t) {
+    private RecordingHeader header(long t) {
         int w = renderer != null ? renderer.getWidth() : 0;
         int h = renderer != null ? renderer.getHeight() : 0;
         String v = version != null ? version : "";
-        return "{" +
-                "\"type\":\"header\"," +
-                "\"t\":" + t + "," +
-                "\"version\":\"" + v + "\"," +
-                "\"width\":" + w + "," +
-                "\"height\":" + h +
-                "}";
-    }
-
-    private String inputJson(long t, int code) {
-        return "{" +
-                "\"type\":\"input\"," +
-                "\"t\":" + t + "," +
-                "\"key\":" + code +
-                "}";
+        RecordingHeader header = new RecordingHeader(t, v, w, h);
+        header.precision = Math.max(0f, config.getPositionPrecision());
+        if (deterministic) {
+            header.tickRate = config.getTickRate();
+            header.seed = config.getSeed();
+        }
+        return header;
     }
 
     /**
-     * keyframe：对象列表位置快照；首次出现时携带外观（rt/尺寸/颜色/图片路径）。
+     * keyframe：把对象位置与外观（rt/尺寸/颜色/图片路径）拷贝进写线程的暂存快照。
+     * 外观去重在写线程完成，这里只复制引用与数值，不分配对象。
      */
-    private String keyframeJson(long t) {
-        List<GameObject> objs = scene != null ? scene.getGameObjects() : new ArrayList<>();
-        StringBuilder sb = new StringBuilder();
-        sb.append("{");
-        sb.append("\"type\":\"keyframe\",");
-        sb.append("\"t\":").append(t).append(",");
-        sb.append("\"objects\":[");
-        boolean first = true;
-        for (GameObject obj : objs) {
+    private void captureKeyframe(long t) {
+        RecordingSnapshot snap = writer.beginKeyframe(t);
+        if (scene == null)
+            return;
+        List<GameObject> objs = scene.getGameObjects();
+        for (int k = 0; k < objs.size(); k++) {
+            GameObject obj = objs.get(k);
             TransformComponent tc = obj.getComponent(TransformComponent.class);
             if (tc == null)
                 continue;
+            int i = snap.addEntity(obj.getId(), obj.getName(), tc.getX(), tc.getY());
             RenderComponent rc = obj.getComponent(RenderComponent.class);
-            float x = tc.getPosition().x;
-            float y = tc.getPosition().y;
-            String key = obj.getName();
-            if (!first)
-                sb.append(",");
-            first = false;
-            sb.append("{");
-            sb.append("\"name\":\"").append(key).append("\",");
-            sb.append("\"x\":").append(x).append(",");
-            sb.append("\"y\":").append(y);
-            if (!known.contains(key)) {
-                if (rc != null) {
-                    String rt = rc.getRenderType().name();
-                    float w = rc.getSize().x;
-                    float h = rc.getSize().y;
-                    Color c = rc.getColor();
-                    sb.append(",\"rt\":\"").append(rt).append("\"");
-                    sb.append(",\"w\":").append(w);
-                    sb.append(",\"h\":").append(h);
-                    if (c != null) {
-                        sb.append(",\"color\":[").append(c.r).append(",").append(c.g).append(",").append(c.b)
-                                .append(",").append(c.a).append("]");
-                    }
-                    // 保存图片路径
-                    String imgPath = rc.getImagePath();
-                    if (imgPath != null && !imgPath.isEmpty()) {
-                        // 转义反斜杠
-                        String escapedPath = imgPath.replace("\\", "\\\\");
-                        sb.append(",\"img\":\"").append(escapedPath).append("\"");
-                    }
-                }
+            if (rc == null)
+                continue;
+            snap.rt[i] = rc.getRenderType().name();
+            snap.w[i] = rc.getWidth();
+            snap.h[i] = rc.getHeight();
+            Color c = rc.getColor();
+            if (c != null) {
+                snap.hasColor[i] = true;
+                snap.color[i * 4] = c.r;
+                snap.color[i * 4 + 1] = c.g;
+                snap.color[i * 4 + 2] = c.b;
+                snap.color[i * 4 + 3] = c.a;
             }
-            sb.append("}");
-        }
-        sb.append("]");
-        sb.append("}");
-        for (GameObject obj : objs) {
-            String key = obj.getName();
-            known.add(key);
+            // 保存图片路径
+            snap.img[i] = rc.getImagePath();
         }
-        return sb.toString();
     }
-}
\ No newline at end of file
+}
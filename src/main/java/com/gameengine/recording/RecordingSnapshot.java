@@ -0,0 +1,123 @@
+package com.gameengine.recording;
+
+import java.util.Arrays;
+
+/**
+ * 游戏线程交给写线程的一份数据：上次入队以来的输入事件（确定性录制为按键事件），以及可选的一帧关键帧与校验点
+ *
+ * 对象状态按结构数组存放，只在容量不足时扩容，槽位在环形队列中循环复用。
+ * 外观字段每帧都照抄，是否写出由写线程去重决定。
+ */
+final class RecordingSnapshot {
+    // 输入事件
+    long[] inputT = new long[16];
+    int[] inputKey = new int[16];
+    int inputCount;
+    // 确定性录制的按键事件
+    long[] keyTick = new long[16];
+    int[] keyCode = new int[16];
+    boolean[] keyDown = new boolean[16];
+    int keyCount;
+
+    // 关键帧
+    boolean hasKeyframe;
+    long t;
+    // 关键帧附带的校验点（确定性录制）
+    boolean hasCheckpoint;
+    long checkpointTick;
+    long checksum;
+    int count;
+    int[] ids = new int[64];
+    String[] names = new String[64];
+    float[] x = new float[64];
+    float[] y = new float[64];
+    String[] rt = new String[64];
+    float[] w = new float[64];
+    float[] h = new float[64];
+    boolean[] hasColor = new boolean[64];
+    float[] color = new float[64 * 4];
+    String[] img = new String[64];
+
+    // 入队时间，用于统计写入延迟
+    long publishNs;
+
+    void clear() {
+        inputCount = 0;
+        keyCount = 0;
+        clearKeyframe();
+    }
+
+    /**
+     * 丢弃关键帧部分，保留输入事件
+     */
+    void clearKeyframe() {
+        hasKeyframe = false;
+        hasCheckpoint = false;
+        // 释放字符串引用，避免槽位长期持有已移除对象的数据
+        Arrays.fill(names, 0, count, null);
+        Arrays.fill(rt, 0, count, null);
+        Arrays.fill(img, 0, count, null);
+        count = 0;
+    }
+
+    void addInput(long time, int key) {
+        if (inputCount == inputT.length) {
+            inputT = Arrays.copyOf(inputT, inputCount * 2);
+            inputKey = Arrays.copyOf(inputKey, inputCount * 2);
+        }
+        inputT[inputCount] = time;
+        inputKey[inputCount] = key;
+        inputCount++;
+    }
+
+    void addKeyEvent(long tick, int key, boolean down) {
+        if (keyCount == keyTick.length) {
+            keyTick = Arrays.copyOf(keyTick, keyCount * 2);
+            keyCode = Arrays.copyOf(keyCode, keyCount * 2);
+            keyDown = Arrays.copyOf(keyDown, keyCount * 2);
+        }
+        keyTick[keyCount] = tick;
+        keyCode[keyCount] = key;
+        keyDown[keyCount] = down;
+        keyCount++;
+    }
+
+    void beginKeyframe(long time) {
+        clearKeyframe();
+        hasKeyframe = true;
+        t = time;
+    }
+
+    /**
+     * 追加一个对象，返回其下标；外观字段由调用方按下标填写（rt 为 null 表示没有外观）
+     */
+    int addEntity(int id, String name, float px, float py) {
+        if (count == names.length) {
+            grow(count * 2);
+        }
+        int i = count++;
+        ids[i] = id;
+        names[i] = name;
+        x[i] = px;
+        y[i] = py;
+        rt[i] = null;
+        w[i] = 0f;
+        h[i] = 0f;
+        hasColor[i] = false;
+        img[i] = null;
+        return i;
+    }
+
+    private void grow(int cap) {
+        ids = Arrays.copyOf(ids, cap);
+        names = Arrays.copyOf(names, cap);
+        x = Arrays.copyOf(x, cap);
+        y = Arrays.copyOf(y, cap);
+        rt = Arrays.copyOf(rt, cap);
+        w = Arrays.copyOf(w, cap);
+        h = Arrays.copyOf(h, cap);
+        hasColor = Arrays.copyOf(hasColor, cap);
+        color = Arrays.copyOf(color, cap * 4);
+        img = Arrays.copyOf(img, cap);
+    }
+}
@@ -1,12 +1,45 @@
 package com.gameengine.recording;
 
+import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.util.List;
 
+/**
+ * 录制存储抽象。openForWrite 的名字可以带扩展名（如 "battle_1.krec"），不带时按 .jsonl 处理
+ */
 public interface RecordingStorage {
     void openForWrite(String name) throws Exception;
     void appendLine(String line) throws Exception;
+    /**
+     * 追加 data 中 [position, limit) 的字节，不改变 data 的位置
+     */
+    void append(ByteBuffer data) throws Exception;
     void flush() throws Exception;
     void closeWrite() throws Exception;
     List<String> listRecordings() throws Exception;
     List<String> readAll(String name) throws Exception;
-}
\ No newline at end of file
+    /**
+     * 读取录制文件的全部字节，文件不存在时返回空缓冲
+     */
+    ByteBuffer readAllBytes(String name) throws Exception;
+    /**
+     * 按顺序读取录制内容的流（压缩文件已解压，支持 mark/reset），文件不存在时返回空流；由调用方关闭
+     */
+    InputStream openForRead(String name) throws Exception;
+    /**
+     * 从 markSyncPoint 返回的偏移处开始读取
+     */
+    InputStream openForRead(String name, long offset) throws Exception;
+    /**
+     * 标记同步点：返回当前写入位置的文件偏移，之后写入的数据可以从这里单独读取
+     */
+    long markSyncPoint() throws Exception;
+    /**
+     * 为当前正在写入的录制保存时间索引，须在 closeWrite 之前调用
+     */
+    void writeIndex(RecordingIndex index) throws Exception;
+    /**
+     * 读取录制的时间索引，没有索引（旧文件或写入中断）时返回 null
+     */
+    RecordingIndex readIndex(String name) throws Exception;
+}
@@ -0,0 +1,294 @@
+package com.gameengine.recording;
+
+import java.io.InputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 回放预读线程：从存储流式读取录制文件，重建完整关键帧后放入有界队列
+ *
+ * 队列满时预读线程阻塞，最多领先播放位置 window 帧，内存占用与录制长度无关。
+ * 回放只在游戏线程调用 poll()，拿不到帧时说明预读还没跟上或已经读完（见 isFinished）。
+ *
+ * seek(t) 由游戏线程调用：预读线程丢弃队列，按时间索引找到 t 之前最近的完整帧，从它的同步点开始解码，
+ * 只把 t 时刻的状态及之后的帧放入队列。没有索引或还没读到文件头时从文件开头解码到 t。
+ * 预读线程启动后先同步读完文件头再处理跳转。
+ * 请求与完成用两个代号区分，完成之前 poll() 不返回旧位置的帧。
+ * 跳转与关闭只设置标志并 unpark 预读线程，不使用 interrupt：映射与文件通道在打开时被中断会直接关闭，
+ * 预读线程在队列满时按 OFFER_WAIT_MS 轮询标志。跳转时打不开文件只结束这次跳转（视为读完），线程继续等待下一次跳转。
+ */
+public class ReplayLoader {
+    private static final long OFFER_WAIT_MS = 20L;
+
+    private final RecordingStorage storage;
+    private final String name;
+    private final BlockingQueue<Keyframe> queue;
+    private final Thread thread;
+    private volatile boolean closed;
+    private volatile boolean endOfFile;
+    private volatile RecordingHeader header;
+    private volatile RecordingIndex index;
+    private volatile long decodedFrames;
+    // 跳转请求：seekTarget 在 seekRequest 之前写入
+    private volatile long seekTarget;
+    private volatile int seekRequest;
+    private volatile int seekServed;
+
+    // 以下只由预读线程访问
+    private final KeyframeAssembler assembler = new KeyframeAssembler();
+    private RecordingCodec codec;
+    private RecordingCodec.Cursor cursor;
+    // 跳转后还没到达目标时间：只应用帧，不入队
+    private boolean skipping;
+    private long skipUntil;
+    // 跳转或关闭已请求，放弃当前位置的解码
+    private boolean abandoned;
+
+    public ReplayLoader(RecordingStorage storage, String name, int window) {
+        this.storage = storage;
+        this.name = name;
+        this.queue = new ArrayBlockingQueue<>(Math.max(2, window));
+        this.thread = new Thread(this::load, "ReplayLoader");
+        this.thread.setDaemon(true);
+    }
+
+    public void start() {
+        thread.start();
+    }
+
+    /**
+     * 取出下一帧完整状态，暂时没有（或跳转尚未完成）时返回 null
+     */
+    public Keyframe poll() {
+        if (seekServed != seekRequest) {
+            return null;
+        }
+        return queue.poll();
+    }
+
+    /**
+     * 跳到 t 毫秒处；之后 poll() 返回的第一帧是 t 时刻（或之前最近）的完整状态
+     */
+    public void seek(long t) {
+        seekTarget = Math.max(0L, t);
+        seekRequest++;
+        LockSupport.unpark(thread);
+    }
+
+    /**
+     * 文件已读完且队列中的帧都已取走
+     */
+    public boolean isFinished() {
+        return endOfFile && seekServed == seekRequest && queue.isEmpty();
+    }
+
+    /**
+     * 文件头，读到之前为 null
+     */
+    public RecordingHeader getHeader() {
+        return header;
+    }
+
+    /**
+     * 录制时长（来自时间索引），没有索引时为 -1
+     */
+    public long getDurationMs() {
+        RecordingIndex i = index;
+        return i != null ? i.getDurationMs() : -1L;
+    }
+
+    public boolean hasIndex() {
+        return index != null;
+    }
+
+    public long getDecodedFrames() {
+        return decodedFrames;
+    }
+
+    public int getBufferedFrames() {
+        return queue.size();
+    }
+
+    /**
+     * 停止预读并关闭文件
+     */
+    public void close() {
+        closed = true;
+        LockSupport.unpark(thread);
+        queue.clear();
+    }
+
+    private final RecordingCodec.Listener listener = new RecordingCodec.Listener() {
+        @Override
+        public void onHeader(RecordingHeader h) {
+            header = h;
+        }
+
+        @Override
+        public void onInput(long t, int key) {
+        }
+
+        @Override
+        public void onKeyframe(Keyframe frame) {
+            if (skipping && frame.t > skipUntil) {
+                // 目标时刻的状态是应用这一帧之前的状态
+                skipping = false;
+                if (assembler.isReady()) {
+                    offer(assembler.toKeyframe());
+                }
+            }
+            if (!assembler.apply(frame) || skipping) {
+                return;
+            }
+            offer(assembler.toKeyframe());
+        }
+    };
+
+    private void offer(Keyframe frame) {
+        while (!abandoned) {
+            if (closed || seekServed != seekRequest) {
+                abandoned = true;
+                return;
+            }
+            try {
+                if (queue.offer(frame, OFFER_WAIT_MS, TimeUnit.MILLISECONDS)) {
+                    decodedFrames++;
+                    return;
+                }
+            } catch (InterruptedException e) {
+                // 不使用中断传递请求，保留中断状态并按关闭处理
+                Thread.currentThread().interrupt();
+                closed = true;
+            }
+        }
+    }
+
+    private void load() {
+        try {
+            index = storage.readIndex(name);
+        } catch (Exception e) {
+            index = null;
+        }
+        try {
+            try {
+                open(-1L);
+                readHeader();
+            } catch (Exception e) {
+                failOpen();
+            }
+            while (!closed) {
+                if (seekServed != seekRequest) {
+                    beginSeek();
+                    continue;
+                }
+                abandoned = false;
+                if (!endOfFile && readNext()) {
+                    continue;
+                }
+                if (abandoned) {
+                    continue;
+                }
+                if (!endOfFile) {
+                    endOfFile = true;
+                    if (skipping) {
+                        // 目标时间在最后一帧之后，停在最后一帧
+                        skipping = false;
+                        if (assembler.isReady()) {
+                            offer(assembler.toKeyframe());
+                        }
+                    }
+                }
+                // 读完后等待跳转或关闭
+                if (!closed && seekServed == seekRequest) {
+                    LockSupport.park(this);
+                }
+            }
+        } finally {
+            closeCursor();
+        }
+    }
+
+    /**
+     * 读一条记录；读取出错（格式错误、文件被截断）时按读到这里为止处理
+     */
+    private boolean readNext() {
+        try {
+            return cursor.next(listener);
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    /**
+     * 处理跳转之前先读到文件头：二进制格式从同步点继续读取需要文件开头的格式版本与位置精度
+     */
+    private void readHeader() {
+        abandoned = false;
+        while (header == null && !abandoned && !closed && readNext()) {
+        }
+    }
+
+    /**
+     * 打不开文件：当前位置视为已读完
+     */
+    private void failOpen() {
+        closeCursor();
+        assembler.reset();
+        skipping = false;
+        endOfFile = true;
+    }
+
+    /**
+     * 打开游标：offset < 0 时从文件开头读，否则从该同步点读
+     */
+    private void open(long offset) throws Exception {
+        boolean fromStart = offset < 0 || codec == null;
+        // 先打开新的流再关闭旧游标，内存映射的引用不会在中间降为 0，跳转前后共用同一份映射
+        InputStream in = fromStart ? storage.openForRead(name) : storage.openForRead(name, offset);
+        closeCursor();
+        assembler.reset();
+        endOfFile = false;
+        try {
+            if (fromStart) {
+                codec = RecordingCodec.detect(in);
+                cursor = codec.openCursor(in);
+            } else {
+                cursor = codec.openCursorAt(in);
+            }
+        } catch (Exception e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    private void beginSeek() {
+        int request = seekRequest;
+        long target = seekTarget;
+        abandoned = false;
+        queue.clear();
+        RecordingIndex idx = index;
+        // 还没读到文件头（格式未知）时从文件开头解码到目标时间
+        int i = idx != null && header != null ? idx.floor(target) : -1;
+        try {
+            open(i >= 0 ? idx.getOffset(i) : -1L);
+            skipping = true;
+            skipUntil = target;
+        } catch (Exception e) {
+            failOpen();
+        }
+        // 旧位置的帧已清空，之后入队的都是新位置的帧
+        seekServed = request;
+    }
+
+    private void closeCursor() {
+        if (cursor != null) {
+            try {
+                cursor.close();
+            } catch (Exception ignored) {
+            }
+            cursor = null;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.gameengine.recording;
+
+import com.gameengine.components.HealthComponent;
+import com.gameengine.components.TransformComponent;
+import com.gameengine.core.GameObject;
+import com.gameengine.scene.Scene;
+
+import java.util.List;
+
+/**
+ * 场景状态校验和：确定性录制在校验点写入，回放重新模拟到同一 tick 时比较，不一致说明模拟已分叉
+ *
+ * 只计入活跃且有 Transform 的对象：名字、位置（float 原始位）与血量。
+ * 每个对象单独做 FNV-1a 后相加，结果与对象在场景中的排列顺序无关（对象池复用会改变顺序）。
+ */
+public final class StateChecksum {
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private StateChecksum() {
+    }
+
+    public static long of(Scene scene) {
+        if (scene == null) {
+            return 0L;
+        }
+        long sum = 0L;
+        List<GameObject> objs = scene.getGameObjects();
+        for (int i = 0; i < objs.size(); i++) {
+            GameObject obj = objs.get(i);
+            if (!obj.isActive()) {
+                continue;
+            }
+            TransformComponent tc = obj.getComponent(TransformComponent.class);
+            if (tc == null) {
+                continue;
+            }
+            long h = FNV_OFFSET;
+            h = mix(h, obj.getName() != null ? obj.getName().hashCode() : 0);
+            h = mix(h, Float.floatToIntBits(tc.getX()));
+            h = mix(h, Float.floatToIntBits(tc.getY()));
+            HealthComponent hc = obj.getComponent(HealthComponent.class);
+            if (hc != null) {
+                h = mix(h, hc.getHealth());
+            }
+            sum += h;
+        }
+        return sum;
+    }
+
+    private static long mix(long h, int v) {
+        for (int i = 0; i < 4; i++) {
+            h ^= (v >>> (i * 8)) & 0xff;
+            h *= FNV_PRIME;
+        }
+        return h;
+    }
+}
@@ -0,0 +1,89 @@
+package com.gameengine.scene;
+
+import com.gameengine.core.GameObject;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 场景内的稠密对象列表，可附带与对象一一对应的数据（如组件）
+ *
+ * 以对象的场景槽位记录其在列表中的位置，添加、删除均为 O(1)（删除时用末尾元素填补空位，
+ * 因此不保证顺序）。对外只暴露只读视图，查询时不复制也不分配。
+ */
+final class EntityList<T> {
+    private final ArrayList<GameObject> objects;
+    private final ArrayList<T> items;
+    private final List<GameObject> objectsView;
+    private final List<T> itemsView;
+    // 下标为场景槽位，值为列表位置 + 1，0 表示不在列表中
+    private int[] positions;
+
+    EntityList() {
+        this.objects = new ArrayList<>();
+        this.items = new ArrayList<>();
+        this.objectsView = Collections.unmodifiableList(objects);
+        this.itemsView = Collections.unmodifiableList(items);
+        this.positions = new int[0];
+    }
+
+    boolean add(GameObject obj, T item) {
+        int slot = obj.getSceneSlot();
+        if (slot >= positions.length) {
+            positions = Arrays.copyOf(positions, Math.max(slot + 1, positions.length * 2));
+        }
+        if (positions[slot] != 0) {
+            return false;
+        }
+        objects.add(obj);
+        items.add(item);
+        positions[slot] = objects.size();
+        return true;
+    }
+
+    boolean remove(GameObject obj) {
+        int slot = obj.getSceneSlot();
+        if (slot < 0 || slot >= positions.length || positions[slot] == 0) {
+            return false;
+        }
+        int pos = positions[slot] - 1;
+        int last = objects.size() - 1;
+        if (pos != last) {
+            GameObject moved = objects.get(last);
+            objects.set(pos, moved);
+            items.set(pos, items.get(last));
+            positions[moved.getSceneSlot()] = pos + 1;
+        }
+        objects.remove(last);
+        items.remove(last);
+        positions[slot] = 0;
+        return true;
+    }
+
+    boolean contains(GameObject obj) {
+        int slot = obj.getSceneSlot();
+        return slot >= 0 && slot < positions.length && positions[slot] != 0;
+    }
+
+    int size() {
+        return objects.size();
+    }
+
+    void clear() {
+        for (GameObject obj : objects) {
+            positions[obj.getSceneSlot()] = 0;
+        }
+        objects.clear();
+        items.clear();
+    }
+
+    List<GameObject> objects() {
+        return objectsView;
+    }
+
+    List<T> items() {
+        return itemsView;
+    }
+}
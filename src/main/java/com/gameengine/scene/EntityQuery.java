@@ -0,0 +1,96 @@
+package com.gameengine.scene;
+
+import com.gameengine.core.ComponentType;
+import com.gameengine.core.GameObject;
+
+import java.util.List;
+
+/**
+ * 登记在场景上的实体查询：带有全部指定标签与组件的活跃对象
+ *
+ * 由 Scene.createQuery 创建，结果随对象登记/移除、激活/失活、新增组件和标签变化增量维护，
+ * 读取时不遍历场景也不分配。成员每变化一次 version 加一，调用方可以据此跳过成员未变时的工作。
+ * 结果列表为只读视图，顺序不固定（删除时用末尾元素填补空位）。
+ */
+public final class EntityQuery {
+    private final long tags;
+    private final int[] componentIds;
+    private final EntityList<GameObject> members = new EntityList<>();
+    private int version;
+
+    EntityQuery(long tags, Class<?>[] componentTypes) {
+        this.tags = tags;
+        this.componentIds = new int[componentTypes.length];
+        for (int i = 0; i < componentTypes.length; i++) {
+            componentIds[i] = ComponentType.idOf(componentTypes[i]);
+        }
+    }
+
+    /**
+     * 对象是否满足查询条件
+     */
+    public boolean matches(GameObject obj) {
+        if (!obj.isActive() || (obj.getTags() & tags) != tags) {
+            return false;
+        }
+        for (int id : componentIds) {
+            if (obj.getComponentById(id) == null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 对象的状态可能已变化，按当前条件加入或移出结果
+     */
+    void update(GameObject obj) {
+        boolean changed = matches(obj) ? members.add(obj, obj) : members.remove(obj);
+        if (changed) {
+            version++;
+        }
+    }
+
+    void remove(GameObject obj) {
+        if (members.remove(obj)) {
+            version++;
+        }
+    }
+
+    void clear() {
+        if (members.size() > 0) {
+            members.clear();
+            version++;
+        }
+    }
+
+    public List<GameObject> getObjects() {
+        return members.objects();
+    }
+
+    public int size() {
+        return members.size();
+    }
+
+    public boolean isEmpty() {
+        return members.size() == 0;
+    }
+
+    /**
+     * 第一个成员，没有时返回 null；只有一个成员的查询（如玩家）用它读取
+     */
+    public GameObject first() {
+        return members.size() > 0 ? members.objects().get(0) : null;
+    }
+
+    public boolean contains(GameObject obj) {
+        return members.contains(obj);
+    }
+
+    /**
+     * 成员变化计数
+     */
+    public int getVersion() {
+        return version;
+    }
+}
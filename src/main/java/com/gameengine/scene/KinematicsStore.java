@@ -0,0 +1,67 @@
+package com.gameengine.scene;
+
+import java.util.Arrays;
+
+/**
+ * 位置/速度/加速度的结构数组（SoA）存储，由 Scene 持有
+ *
+ * 下标为对象的场景槽位。对象登记到场景后，其 TransformComponent 与 PhysicsComponent
+ * 改为读写这里的数组；移除时数值写回组件自身。物理等系统可以直接在数组上循环，
+ * 避免逐个组件取值时创建 Vector2。
+ * 扩容会替换数组实例，使用方不要跨帧缓存数组引用。
+ * px/py 保存上一个模拟步结束时的位置，渲染时按 alpha 在两步之间插值。
+ */
+public class KinematicsStore {
+    public float[] x;
+    public float[] y;
+    public float[] vx;
+    public float[] vy;
+    public float[] ax;
+    public float[] ay;
+    public float[] px;
+    public float[] py;
+    // 渲染插值系数，0 为上一步的位置，1 为当前位置
+    public float alpha = 1f;
+
+    public KinematicsStore() {
+        this.x = new float[0];
+        this.y = new float[0];
+        this.vx = new float[0];
+        this.vy = new float[0];
+        this.ax = new float[0];
+        this.ay = new float[0];
+        this.px = new float[0];
+        this.py = new float[0];
+    }
+
+    /**
+     * 保证槽位 [0, slots) 可用
+     */
+    public void ensureCapacity(int slots) {
+        if (x.length >= slots) {
+            return;
+        }
+        int cap = Math.max(slots, Math.max(64, x.length * 2));
+        x = Arrays.copyOf(x, cap);
+        y = Arrays.copyOf(y, cap);
+        vx = Arrays.copyOf(vx, cap);
+        vy = Arrays.copyOf(vy, cap);
+        ax = Arrays.copyOf(ax, cap);
+        ay = Arrays.copyOf(ay, cap);
+        px = Arrays.copyOf(px, cap);
+        py = Arrays.copyOf(py, cap);
+    }
+
+    /**
+     * 记录槽位 [0, slots) 的当前位置，作为下一步的插值起点
+     */
+    public void snapshot(int slots) {
+        int n = Math.min(slots, x.length);
+        System.arraycopy(x, 0, px, 0, n);
+        System.arraycopy(y, 0, py, 0, n);
+    }
+
+    public int capacity() {
+        return x.length;
+    }
+}
@@ -1,11 +1,17 @@
 package com.gameengine.scene;
 
+import com.gameengine.graphics.ParticleSystem;
 import com.gameengine.graphics.Renderer;
 import com.gameengine.core.GameObject;
 import com.gameengine.core.Component;
+import com.gameengine.core.ComponentType;
+import com.gameengine.core.Tags;
+import com.gameengine.components.PhysicsComponent;
+import com.gameengine.components.TransformComponent;
+import com.gameengine.jobs.JobSystem;
+import com.gameengine.pool.GameObjectPool;
 // 移除具体游戏逻辑的import
 import java.util.*;
-import java.util.stream.Collectors;
 
 /**
  * 场景类，管理游戏对象和组件
@@ -18,7 +24,24 @@ public class Scene {
     private boolean initialized;
     private Renderer renderer;
 
-    // 移除未使用的组件索引
+    // 组件索引：下标为组件类型 id，随对象登记/移除实时维护
+    private EntityList<Component<?>>[] componentLists;
+    // 标签索引：下标为标签位序号（见 Tags），同样随登记/移除及标签变化实时维护
+    private final EntityList<GameObject>[] tagLists;
+    // 登记的实体查询，结构变化时逐个更新
+    private final List<EntityQuery> queries;
+    // 场景槽位分配，空闲槽位优先复用
+    private int[] freeSlots;
+    private int freeSlotCount;
+    private int nextSlot;
+    // 位置/速度的结构数组存储，为 null 时组件使用各自的字段
+    private KinematicsStore kinematics;
+    // 粒子（拖尾、爆炸等）不作为场景对象，由粒子系统统一更新和批量渲染
+    private ParticleSystem particles;
+    // 按原型名登记的对象池
+    private Map<String, GameObjectPool> pools;
+    // 引擎共享的任务系统，为 null 时各系统串行执行
+    private JobSystem jobSystem;
 
     public Scene(String name) {
         this.name = name;
@@ -26,7 +49,21 @@ public class Scene {
         this.objectsToAdd = new ArrayList<>();
         this.objectsToRemove = new ArrayList<>();
         this.initialized = false;
-        // 移除组件索引初始化
+        this.componentLists = newEntityLists(0);
+        this.tagLists = newEntityLists(Tags.MAX_TAGS);
+        this.queries = new ArrayList<>();
+        this.freeSlots = new int[0];
+        this.kinematics = new KinematicsStore();
+        this.particles = new ParticleSystem(4096);
+        this.pools = new LinkedHashMap<>();
+    }
+
+    /**
+     * 泛型数组不能直接创建，统一在这里转换
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static <T> EntityList<T>[] newEntityLists(int length) {
+        return new EntityList[length];
     }
 
     /**
@@ -43,9 +80,15 @@ public class Scene {
      * 更新场景
      */
     public void update(float deltaTime) {
+        // 记录本步开始前的位置，供渲染插值
+        if (kinematics != null) {
+            kinematics.snapshot(nextSlot);
+        }
+
         // 添加新对象
         for (GameObject obj : objectsToAdd) {
             gameObjects.add(obj);
+            registerGameObject(obj);
             if (initialized) {
                 obj.initialize();
             }
@@ -54,7 +97,10 @@ public class Scene {
 
         // 移除标记的对象
         for (GameObject obj : objectsToRemove) {
-            gameObjects.remove(obj);
+            if (gameObjects.remove(obj)) {
+                unregisterGameObject(obj);
+                returnToPool(obj);
+            }
         }
         objectsToRemove.clear();
 
@@ -66,8 +112,16 @@ public class Scene {
                 obj.update(deltaTime);
             } else {
                 iterator.remove();
+                unregisterGameObject(obj);
+                if (obj.getPool() != null) {
+                    // 已在本帧移出并回池，不能留在待移除列表中，否则被再次取出后会被误移除
+                    objectsToRemove.remove(obj);
+                    returnToPool(obj);
+                }
             }
         }
+
+        particles.update(deltaTime);
     }
 
     /**
@@ -79,6 +133,7 @@ public class Scene {
                 obj.render();
             }
         }
+        particles.render(renderer);
     }
 
     /**
@@ -95,30 +150,344 @@ public class Scene {
         }
     }
 
+    /**
+     * 登记对象池，同一原型名只保留最后登记的池
+     */
+    public void addPool(GameObjectPool pool) {
+        pools.put(pool.getArchetype(), pool);
+    }
+
+    public GameObjectPool getPool(String archetype) {
+        return pools.get(archetype);
+    }
+
+    public Collection<GameObjectPool> getPools() {
+        return Collections.unmodifiableCollection(pools.values());
+    }
+
+    /**
+     * 从对应原型的对象池取出对象并加入场景，没有登记该原型的池时返回 null
+     * 取出的对象组件已重置，位置、速度等由调用方设置
+     */
+    public GameObject spawn(String archetype) {
+        GameObjectPool pool = pools.get(archetype);
+        if (pool == null) {
+            return null;
+        }
+        GameObject obj = pool.acquire();
+        addGameObject(obj);
+        return obj;
+    }
+
+    /**
+     * 移除对象：池化对象立即失活，在下一次 update 移出场景后回到池中；其他对象直接销毁
+     */
+    public void despawn(GameObject gameObject) {
+        if (gameObject.getPool() != null) {
+            gameObject.setActive(false);
+        } else {
+            gameObject.destroy();
+        }
+        removeGameObject(gameObject);
+    }
+
+    private void returnToPool(GameObject obj) {
+        GameObjectPool pool = obj.getPool();
+        if (pool != null) {
+            pool.release(obj);
+        }
+    }
+
     /**
      * 根据组件类型查找游戏对象
+     * 返回场景维护的只读列表，不复制；对象登记或移除后内容随之变化，顺序不固定
      */
     public <T extends Component<T>> List<GameObject> findGameObjectsByComponent(Class<T> componentType) {
-        return gameObjects.stream()
-                .filter(obj -> obj.hasComponent(componentType))
-                .collect(Collectors.toList());
+        return componentList(ComponentType.idOf(componentType)).objects();
     }
 
     /**
      * 获取所有具有指定组件的游戏对象
+     * 与 findGameObjectsByComponent 下标一一对应，同样是不复制的只读列表
      */
+    @SuppressWarnings("unchecked")
     public <T extends Component<T>> List<T> getComponents(Class<T> componentType) {
-        return findGameObjectsByComponent(componentType).stream()
-                .map(obj -> obj.getComponent(componentType))
-                .filter(Objects::nonNull)
-                .collect(Collectors.toList());
+        return (List<T>) (List<?>) componentList(ComponentType.idOf(componentType)).items();
+    }
+
+    /**
+     * 查找带有指定标签的游戏对象，tag 为 Tags 中的单个标签掩码
+     * 与组件查询一样返回不复制的只读列表，顺序不固定；本步内被移除（失活）的对象在下一次 update 前仍在列表中
+     */
+    public List<GameObject> findGameObjectsByTag(long tag) {
+        if (Long.bitCount(tag) != 1) {
+            throw new IllegalArgumentException("需要单个标签: " + Long.toHexString(tag));
+        }
+        return tagList(Long.numberOfTrailingZeros(tag)).objects();
+    }
+
+    public List<GameObject> findGameObjectsByTag(String tag) {
+        long mask = Tags.find(tag);
+        return mask != 0L ? findGameObjectsByTag(mask) : Collections.emptyList();
+    }
+
+    /**
+     * 创建并登记实体查询：带有 tags 中全部标签（0 表示不限）且具有全部 componentTypes 组件的活跃对象
+     * 查询在场景存续期间一直增量维护，应在初始化时创建一次并保存，不要每帧创建；不再使用时用 removeQuery 注销
+     */
+    public EntityQuery createQuery(long tags, Class<?>... componentTypes) {
+        EntityQuery query = new EntityQuery(tags, componentTypes);
+        for (GameObject obj : gameObjects) {
+            if (obj.getSceneSlot() >= 0) {
+                query.update(obj);
+            }
+        }
+        queries.add(query);
+        return query;
+    }
+
+    /**
+     * 注销实体查询，之后场景不再维护它的结果
+     */
+    public void removeQuery(EntityQuery query) {
+        if (queries.remove(query)) {
+            query.clear();
+        }
+    }
+
+    /**
+     * 已登记对象激活或失活时由 GameObject 回调，更新实体查询
+     */
+    public void onActiveChanged(GameObject obj) {
+        if (obj.getScene() != this || obj.getSceneSlot() < 0) {
+            return;
+        }
+        updateQueries(obj);
+    }
+
+    private void updateQueries(GameObject obj) {
+        for (int i = 0; i < queries.size(); i++) {
+            queries.get(i).update(obj);
+        }
+    }
+
+    /**
+     * 已登记对象的标签变化时由 GameObject 回调，更新标签索引
+     */
+    public void onTagsChanged(GameObject obj, long oldTags) {
+        if (obj.getScene() != this || obj.getSceneSlot() < 0) {
+            return;
+        }
+        long tags = obj.getTags();
+        for (long removed = oldTags & ~tags; removed != 0; removed &= removed - 1) {
+            tagList(Long.numberOfTrailingZeros(removed)).remove(obj);
+        }
+        for (long added = tags & ~oldTags; added != 0; added &= added - 1) {
+            tagList(Long.numberOfTrailingZeros(added)).add(obj, obj);
+        }
+        updateQueries(obj);
+    }
+
+    /**
+     * 已登记对象新增组件时由 GameObject 回调，更新组件索引
+     */
+    public void onComponentAdded(GameObject obj, Component<?> component) {
+        if (obj.getScene() != this || obj.getSceneSlot() < 0) {
+            return;
+        }
+        for (int id : ComponentType.hierarchyOf(component.getClass())) {
+            if (obj.getComponentById(id) == component) {
+                componentList(id).add(obj, component);
+            }
+        }
+        updateQueries(obj);
+        if (kinematics != null) {
+            bindKinematics(obj);
+        }
+    }
+
+    /**
+     * 对象销毁时由 GameObject 回调，组件清空前先从索引中移除
+     */
+    public void onGameObjectDestroyed(GameObject obj) {
+        if (obj.getScene() == this) {
+            unregisterGameObject(obj);
+        }
+    }
+
+    private void registerGameObject(GameObject obj) {
+        if (obj.getSceneSlot() >= 0) {
+            return;
+        }
+        obj.setSceneSlot(allocateSlot());
+        for (int id = 0, n = obj.getComponentSlotCount(); id < n; id++) {
+            Component<?> component = obj.getComponentById(id);
+            if (component != null) {
+                componentList(id).add(obj, component);
+            }
+        }
+        for (long tags = obj.getTags(); tags != 0; tags &= tags - 1) {
+            tagList(Long.numberOfTrailingZeros(tags)).add(obj, obj);
+        }
+        updateQueries(obj);
+        if (kinematics != null) {
+            bindKinematics(obj);
+        }
+    }
+
+    private void unregisterGameObject(GameObject obj) {
+        int slot = obj.getSceneSlot();
+        if (slot < 0) {
+            return;
+        }
+        unbindKinematics(obj);
+        for (int id = 0, n = Math.min(obj.getComponentSlotCount(), componentLists.length); id < n; id++) {
+            if (componentLists[id] != null && obj.getComponentById(id) != null) {
+                componentLists[id].remove(obj);
+            }
+        }
+        for (long tags = obj.getTags(); tags != 0; tags &= tags - 1) {
+            tagList(Long.numberOfTrailingZeros(tags)).remove(obj);
+        }
+        for (int i = 0; i < queries.size(); i++) {
+            queries.get(i).remove(obj);
+        }
+        obj.setSceneSlot(-1);
+        releaseSlot(slot);
+    }
+
+    private void bindKinematics(GameObject obj) {
+        int slot = obj.getSceneSlot();
+        kinematics.ensureCapacity(slot + 1);
+        TransformComponent transform = obj.getComponent(TransformComponent.class);
+        if (transform != null && !transform.isBound()) {
+            transform.bind(kinematics, slot);
+        }
+        PhysicsComponent physics = obj.getComponent(PhysicsComponent.class);
+        if (physics != null && !physics.isBound()) {
+            physics.bind(kinematics, slot);
+        }
+    }
+
+    private void unbindKinematics(GameObject obj) {
+        TransformComponent transform = obj.getComponent(TransformComponent.class);
+        if (transform != null) {
+            transform.unbind();
+        }
+        PhysicsComponent physics = obj.getComponent(PhysicsComponent.class);
+        if (physics != null) {
+            physics.unbind();
+        }
+    }
+
+    /**
+     * 启用/禁用结构数组存储（默认启用），已登记的对象会立即绑定或写回
+     */
+    public void setKinematicsStoreEnabled(boolean enabled) {
+        if (enabled == (kinematics != null)) {
+            return;
+        }
+        if (enabled) {
+            kinematics = new KinematicsStore();
+            kinematics.ensureCapacity(nextSlot);
+            for (GameObject obj : gameObjects) {
+                if (obj.getSceneSlot() >= 0) {
+                    bindKinematics(obj);
+                }
+            }
+        } else {
+            for (GameObject obj : gameObjects) {
+                unbindKinematics(obj);
+            }
+            kinematics = null;
+        }
+    }
+
+    /**
+     * 设置渲染插值系数（0~1），由引擎在每次渲染前按固定步长的剩余时间设置
+     */
+    public void setInterpolationAlpha(float alpha) {
+        if (kinematics != null) {
+            kinematics.alpha = Math.max(0f, Math.min(1f, alpha));
+        }
+    }
+
+    /**
+     * 获取结构数组存储，未启用时返回 null
+     */
+    public KinematicsStore getKinematics() {
+        return kinematics;
+    }
+
+    @SuppressWarnings("unchecked")
+    private EntityList<Component<?>> componentList(int typeId) {
+        if (typeId >= componentLists.length) {
+            componentLists = Arrays.copyOf(componentLists, Math.max(typeId + 1, ComponentType.count()));
+        }
+        EntityList<Component<?>> list = componentLists[typeId];
+        if (list == null) {
+            list = new EntityList<>();
+            componentLists[typeId] = list;
+        }
+        return list;
+    }
+
+    private EntityList<GameObject> tagList(int tagId) {
+        EntityList<GameObject> list = tagLists[tagId];
+        if (list == null) {
+            list = new EntityList<>();
+            tagLists[tagId] = list;
+        }
+        return list;
+    }
+
+    private int allocateSlot() {
+        if (freeSlotCount > 0) {
+            return freeSlots[--freeSlotCount];
+        }
+        return nextSlot++;
+    }
+
+    private void releaseSlot(int slot) {
+        if (freeSlotCount == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, Math.max(16, freeSlots.length * 2));
+        }
+        freeSlots[freeSlotCount++] = slot;
     }
 
     /**
      * 清空场景
      */
     public void clear() {
+        for (EntityList<Component<?>> list : componentLists) {
+            if (list != null) {
+                list.clear();
+            }
+        }
+        for (EntityList<GameObject> list : tagLists) {
+            if (list != null) {
+                list.clear();
+            }
+        }
+        for (EntityQuery query : queries) {
+            query.clear();
+        }
+        for (GameObject obj : gameObjects) {
+            if (obj.getSceneSlot() >= 0) {
+                unbindKinematics(obj);
+                obj.setSceneSlot(-1);
+            }
+        }
+        freeSlotCount = 0;
+        nextSlot = 0;
+        for (GameObject obj : gameObjects) {
+            returnToPool(obj);
+        }
+        for (GameObject obj : objectsToAdd) {
+            returnToPool(obj);
+        }
         gameObjects.clear();
+        particles.clear();
         objectsToAdd.clear();
         objectsToRemove.clear();
     }
@@ -141,6 +510,18 @@ public class Scene {
 
     }
 
+    public ParticleSystem getParticles() {
+        return particles;
+    }
+
+    public JobSystem getJobSystem() {
+        return jobSystem;
+    }
+
+    public void setJobSystem(JobSystem jobSystem) {
+        this.jobSystem = jobSystem;
+    }
+
     public void setRenderer(Renderer renderer) {
         this.renderer = renderer;
     }
@@ -0,0 +1,292 @@
+package com.gameengine.spatial;
+
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+
+/**
+ * 均匀空间哈希网格，用于按位置查询近邻
+ *
+ * 每帧调用 rebuild 用点集重建（计数排序到哈希桶），内部数组只在容量不足时扩容，
+ * 稳定运行时重建不产生任何分配。格子边长一般取查询半径，这样 3x3 邻域即可覆盖半径内的所有点。
+ * 重建完成后的查询是只读的，可以在多个线程中并发调用。
+ * queryNearest 从查询点所在格子向外逐圈搜索 k 个最近点，结果按距离升序，
+ * 最近的 k 个点都找到后即停止，代价与 k 及附近的点数相关，与总点数无关。
+ */
+public class SpatialHashGrid {
+    private static final int MIN_BUCKETS = 16;
+
+    private final float cellSize;
+    private final float invCellSize;
+    private int count;
+    private float[] xs;
+    private float[] ys;
+    private int[] cellXs;
+    private int[] cellYs;
+    private int[] bucketOf;
+    private int[] sorted;
+    private int[] bucketStart;
+    private int[] bucketCursor;
+    private int bucketMask;
+    // 所有点所在格子的范围，最近邻搜索不越过这个范围
+    private int minCellX;
+    private int minCellY;
+    private int maxCellX;
+    private int maxCellY;
+
+    public SpatialHashGrid(float cellSize) {
+        if (cellSize <= 0f) {
+            throw new IllegalArgumentException("cellSize must be positive");
+        }
+        this.cellSize = cellSize;
+        this.invCellSize = 1.0f / cellSize;
+        this.xs = new float[0];
+        this.ys = new float[0];
+        this.cellXs = new int[0];
+        this.cellYs = new int[0];
+        this.bucketOf = new int[0];
+        this.sorted = new int[0];
+        this.bucketStart = new int[MIN_BUCKETS + 1];
+        this.bucketCursor = new int[MIN_BUCKETS];
+        this.bucketMask = MIN_BUCKETS - 1;
+    }
+
+    /**
+     * 用前 count 个点重建网格，点的下标即查询结果中的编号
+     */
+    public void rebuild(float[] pointsX, float[] pointsY, int count) {
+        ensureCapacity(count);
+        this.count = count;
+        System.arraycopy(pointsX, 0, xs, 0, count);
+        System.arraycopy(pointsY, 0, ys, 0, count);
+
+        int buckets = bucketMask + 1;
+        Arrays.fill(bucketStart, 0, buckets + 1, 0);
+        minCellX = Integer.MAX_VALUE;
+        minCellY = Integer.MAX_VALUE;
+        maxCellX = Integer.MIN_VALUE;
+        maxCellY = Integer.MIN_VALUE;
+        for (int i = 0; i < count; i++) {
+            int cx = cellCoord(xs[i]);
+            int cy = cellCoord(ys[i]);
+            minCellX = Math.min(minCellX, cx);
+            minCellY = Math.min(minCellY, cy);
+            maxCellX = Math.max(maxCellX, cx);
+            maxCellY = Math.max(maxCellY, cy);
+            int b = bucket(cx, cy);
+            cellXs[i] = cx;
+            cellYs[i] = cy;
+            bucketOf[i] = b;
+            bucketStart[b + 1]++;
+        }
+        for (int b = 0; b < buckets; b++) {
+            bucketStart[b + 1] += bucketStart[b];
+        }
+        System.arraycopy(bucketStart, 0, bucketCursor, 0, buckets);
+        for (int i = 0; i < count; i++) {
+            sorted[bucketCursor[bucketOf[i]]++] = i;
+        }
+    }
+
+    /**
+     * 查询 (x, y) 所在格子及周围 3x3 格子中的点，编号写入 out，返回个数
+     * out 的长度至少为 size()
+     */
+    public int queryNeighbours(float x, float y, int[] out) {
+        int cx = cellCoord(x);
+        int cy = cellCoord(y);
+        int found = 0;
+        for (int oy = -1; oy <= 1; oy++) {
+            for (int ox = -1; ox <= 1; ox++) {
+                found = collectCell(cx + ox, cy + oy, out, found);
+            }
+        }
+        return found;
+    }
+
+    private int collectCell(int cx, int cy, int[] out, int found) {
+        int b = bucket(cx, cy);
+        for (int k = bucketStart[b], end = bucketStart[b + 1]; k < end; k++) {
+            int i = sorted[k];
+            // 不同格子可能落入同一个桶，只收集真正属于该格子的点，避免重复
+            if (cellXs[i] == cx && cellYs[i] == cy) {
+                out[found++] = i;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * 查询距离 (x, y) 最近且通过 filter 的至多 k 个点，编号按距离升序写入 out（距离相同时编号小的在前），
+     * 距离的平方写入 outDist2，返回个数；out 与 outDist2 的长度至少为 k。filter 为 null 时接受所有点
+     * 两个数组兼作搜索时的大顶堆，查询本身不分配
+     */
+    public int queryNearest(float x, float y, int k, IntPredicate filter, int[] out, float[] outDist2) {
+        if (k <= 0 || count == 0) {
+            return 0;
+        }
+        int cx = cellCoord(x);
+        int cy = cellCoord(y);
+        int maxRing = Math.max(Math.max(cx - minCellX, maxCellX - cx), Math.max(cy - minCellY, maxCellY - cy));
+        int found = 0;
+        for (int r = 0; r <= maxRing; r++) {
+            int x0 = cx - r;
+            int x1 = cx + r;
+            int y0 = cy - r;
+            int y1 = cy + r;
+            // 上下两行
+            int fromX = Math.max(x0, minCellX);
+            int toX = Math.min(x1, maxCellX);
+            for (int gx = fromX; gx <= toX; gx++) {
+                if (y0 >= minCellY && y0 <= maxCellY) {
+                    found = nearestInCell(gx, y0, x, y, k, filter, out, outDist2, found);
+                }
+                if (r > 0 && y1 >= minCellY && y1 <= maxCellY) {
+                    found = nearestInCell(gx, y1, x, y, k, filter, out, outDist2, found);
+                }
+            }
+            // 左右两列（不含角）
+            if (r > 0) {
+                int fromY = Math.max(y0 + 1, minCellY);
+                int toY = Math.min(y1 - 1, maxCellY);
+                for (int gy = fromY; gy <= toY; gy++) {
+                    if (x0 >= minCellX && x0 <= maxCellX) {
+                        found = nearestInCell(x0, gy, x, y, k, filter, out, outDist2, found);
+                    }
+                    if (x1 >= minCellX && x1 <= maxCellX) {
+                        found = nearestInCell(x1, gy, x, y, k, filter, out, outDist2, found);
+                    }
+                }
+            }
+            // 第 r 圈之外的点离查询点至少 r 个格子边长
+            float reach = r * cellSize;
+            if (found == k && outDist2[0] < reach * reach) {
+                break;
+            }
+        }
+        // 大顶堆原地排序为升序
+        for (int end = found - 1; end > 0; end--) {
+            swap(out, outDist2, 0, end);
+            siftDown(out, outDist2, 0, end);
+        }
+        return found;
+    }
+
+    private int nearestInCell(int cx, int cy, float x, float y, int k, IntPredicate filter,
+                              int[] heap, float[] dist, int found) {
+        int b = bucket(cx, cy);
+        for (int s = bucketStart[b], end = bucketStart[b + 1]; s < end; s++) {
+            int i = sorted[s];
+            if (cellXs[i] != cx || cellYs[i] != cy) {
+                continue;
+            }
+            float dx = xs[i] - x;
+            float dy = ys[i] - y;
+            float d2 = dx * dx + dy * dy;
+            if (found == k && !closer(d2, i, dist[0], heap[0])) {
+                continue;
+            }
+            if (filter != null && !filter.test(i)) {
+                continue;
+            }
+            if (found < k) {
+                // 上浮
+                int c = found++;
+                while (c > 0) {
+                    int p = (c - 1) >> 1;
+                    if (!closer(dist[p], heap[p], d2, i)) {
+                        break;
+                    }
+                    heap[c] = heap[p];
+                    dist[c] = dist[p];
+                    c = p;
+                }
+                heap[c] = i;
+                dist[c] = d2;
+            } else {
+                heap[0] = i;
+                dist[0] = d2;
+                siftDown(heap, dist, 0, found);
+            }
+        }
+        return found;
+    }
+
+    /**
+     * (d2a, a) 是否排在 (d2b, b) 之前：距离小的在前，距离相同时编号小的在前
+     */
+    private static boolean closer(float d2a, int a, float d2b, int b) {
+        return d2a < d2b || (d2a == d2b && a < b);
+    }
+
+    private static void siftDown(int[] heap, float[] dist, int c, int n) {
+        while (true) {
+            int l = c * 2 + 1;
+            if (l >= n) {
+                return;
+            }
+            int m = l;
+            if (l + 1 < n && closer(dist[l], heap[l], dist[l + 1], heap[l + 1])) {
+                m = l + 1;
+            }
+            if (!closer(dist[c], heap[c], dist[m], heap[m])) {
+                return;
+            }
+            swap(heap, dist, c, m);
+            c = m;
+        }
+    }
+
+    private static void swap(int[] heap, float[] dist, int a, int b) {
+        int t = heap[a];
+        heap[a] = heap[b];
+        heap[b] = t;
+        float d = dist[a];
+        dist[a] = dist[b];
+        dist[b] = d;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public float getX(int index) {
+        return xs[index];
+    }
+
+    public float getY(int index) {
+        return ys[index];
+    }
+
+    public float getCellSize() {
+        return cellSize;
+    }
+
+    private int cellCoord(float v) {
+        return (int) Math.floor(v * invCellSize);
+    }
+
+    private int bucket(int cx, int cy) {
+        return ((cx * 73856093) ^ (cy * 19349663)) & bucketMask;
+    }
+
+    private void ensureCapacity(int n) {
+        if (xs.length < n) {
+            int cap = Math.max(n, xs.length * 2);
+            xs = new float[cap];
+            ys = new float[cap];
+            cellXs = new int[cap];
+            cellYs = new int[cap];
+            bucketOf = new int[cap];
+            sorted = new int[cap];
+        }
+        int buckets = bucketMask + 1;
+        if (buckets < n * 2) {
+            while (buckets < n * 2) {
+                buckets <<= 1;
+            }
+            bucketStart = new int[buckets + 1];
+            bucketCursor = new int[buckets];
+            bucketMask = buckets - 1;
+        }
+    }
+}
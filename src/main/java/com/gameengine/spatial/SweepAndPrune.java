@@ -0,0 +1,140 @@
+package com.gameengine.spatial;
+
+import java.util.Arrays;
+
+/**
+ * 沿 x 轴扫描排除（sweep and prune）的宽相位：找出包围盒相交且层互相接受的所有对
+ *
+ * 每步用 begin/set 填入包围盒与层掩码，findPairs 按 minX 排序后从左到右扫描，
+ * 每个盒子只与 minX 落在自身 [minX, maxX] 内的后续盒子比较 y 区间。
+ * 排序键把 minX 的浮点位与下标打包成 long，用基本类型排序，内部数组只在容量不足时扩容，
+ * 稳定运行时不产生分配。结果对按扫描顺序排列，相同输入得到相同顺序。
+ */
+public class SweepAndPrune {
+    private int count;
+    private float[] minX = new float[0];
+    private float[] minY = new float[0];
+    private float[] maxX = new float[0];
+    private float[] maxY = new float[0];
+    private int[] layers = new int[0];
+    private int[] masks = new int[0];
+    private long[] keys = new long[0];
+    private int[] order = new int[0];
+    // 按排序后的位置连续存放，扫描时顺序访问
+    private float[] sortedMaxX = new float[0];
+    private float[] sortedMinX = new float[0];
+    private float[] sortedMinY = new float[0];
+    private float[] sortedMaxY = new float[0];
+    private int[] sortedLayers = new int[0];
+    private int[] sortedMasks = new int[0];
+    private int[] pairs = new int[64];
+    private int pairCount;
+
+    /**
+     * 开始填入 count 个包围盒
+     */
+    public void begin(int count) {
+        if (minX.length < count) {
+            int cap = Math.max(count, minX.length * 2);
+            minX = new float[cap];
+            minY = new float[cap];
+            maxX = new float[cap];
+            maxY = new float[cap];
+            layers = new int[cap];
+            masks = new int[cap];
+            keys = new long[cap];
+            order = new int[cap];
+            sortedMinX = new float[cap];
+            sortedMaxX = new float[cap];
+            sortedMinY = new float[cap];
+            sortedMaxY = new float[cap];
+            sortedLayers = new int[cap];
+            sortedMasks = new int[cap];
+        }
+        this.count = count;
+        this.pairCount = 0;
+    }
+
+    public void set(int index, float x0, float y0, float x1, float y1, int layer, int mask) {
+        minX[index] = x0;
+        minY[index] = y0;
+        maxX[index] = x1;
+        maxY[index] = y1;
+        layers[index] = layer;
+        masks[index] = mask;
+    }
+
+    /**
+     * 扫描出所有候选对，返回对数
+     */
+    public int findPairs() {
+        for (int i = 0; i < count; i++) {
+            keys[i] = ((long) sortableBits(minX[i]) << 32) | i;
+        }
+        Arrays.sort(keys, 0, count);
+        for (int s = 0; s < count; s++) {
+            int i = (int) keys[s];
+            order[s] = i;
+            sortedMinX[s] = minX[i];
+            sortedMaxX[s] = maxX[i];
+            sortedMinY[s] = minY[i];
+            sortedMaxY[s] = maxY[i];
+            sortedLayers[s] = layers[i];
+            sortedMasks[s] = masks[i];
+        }
+        pairCount = 0;
+        for (int s = 0; s < count; s++) {
+            float right = sortedMaxX[s];
+            float top = sortedMinY[s];
+            float bottom = sortedMaxY[s];
+            int layer = sortedLayers[s];
+            int mask = sortedMasks[s];
+            for (int t = s + 1; t < count; t++) {
+                if (sortedMinX[t] > right) {
+                    break;
+                }
+                if ((mask & sortedLayers[t]) == 0 || (sortedMasks[t] & layer) == 0) {
+                    continue;
+                }
+                if (sortedMinY[t] > bottom || top > sortedMaxY[t]) {
+                    continue;
+                }
+                addPair(order[s], order[t]);
+            }
+        }
+        return pairCount;
+    }
+
+    public int getPairCount() {
+        return pairCount;
+    }
+
+    public int getPairA(int k) {
+        return pairs[k * 2];
+    }
+
+    public int getPairB(int k) {
+        return pairs[k * 2 + 1];
+    }
+
+    public int size() {
+        return count;
+    }
+
+    private void addPair(int a, int b) {
+        if (pairCount * 2 == pairs.length) {
+            pairs = Arrays.copyOf(pairs, pairs.length * 2);
+        }
+        pairs[pairCount * 2] = a;
+        pairs[pairCount * 2 + 1] = b;
+        pairCount++;
+    }
+
+    /**
+     * 浮点位转换为按有符号整数比较时与浮点大小顺序一致的值
+     */
+    private static int sortableBits(float v) {
+        int bits = Float.floatToIntBits(v);
+        return bits ^ ((bits >> 31) & 0x7fffffff);
+    }
+}